@@ -24,6 +24,7 @@ import static com.erudika.para.core.App.AllowedMethods.PATCH;
 import static com.erudika.para.core.App.AllowedMethods.POST;
 import static com.erudika.para.core.App.AllowedMethods.PUT;
 import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.Sysprop;
 import com.erudika.para.core.Tag;
 import com.erudika.para.core.User;
 import com.erudika.para.core.rest.Signer;
@@ -36,9 +37,11 @@ import com.erudika.para.core.validation.Constraint;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -47,10 +50,13 @@ import java.util.Base64;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
@@ -80,6 +86,7 @@ import org.apache.hc.client5.http.io.HttpClientConnectionManager;
 import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
 import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpRequest;
@@ -87,6 +94,7 @@ import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.apache.hc.core5.io.CloseMode;
 import org.slf4j.Logger;
@@ -123,12 +131,14 @@ public final class ParaClient implements Closeable {
 	private volatile Long tokenKeyExpires;
 	private volatile Long tokenKeyNextRefresh;
 	private int chunkSize = 0;
+	private String mediaType;
 	private boolean throwExceptionOnHTTPError;
 	private final CloseableHttpClient httpclient;
 	private final CloseableHttpAsyncClient httpasyncclient;
 	private final ObjectMapper mapper;
 	private final Object tokenRefreshLock = new Object();
 	private volatile CompletableFuture<Boolean> tokenRefreshFuture;
+	private final ETagCache etagCache;
 
 	/**
 	 * Default constructor.
@@ -144,6 +154,8 @@ public final class ParaClient implements Closeable {
 		this.throwExceptionOnHTTPError = false;
 		mapper = ParaObjectUtils.getJsonMapper();
 		mapper.setDefaultPropertyInclusion(JsonInclude.Include.USE_DEFAULTS);
+		this.etagCache = ETagCache.newCache(Para.getConfig().clientEtagCacheSize(),
+				Para.getConfig().clientEtagCacheMaxMb() * 1024L * 1024L, Para.getConfig().clientEtagCacheMaxBodyKb() * 1024);
 
 		SSLFactory sslFactory = null;
 		if (!StringUtils.isBlank(truststorePath)) {
@@ -224,6 +236,28 @@ public final class ParaClient implements Closeable {
 		this.endpoint = endpoint;
 	}
 
+	/**
+	 * Returns the media type of request and response entities.
+	 * @return the media type, JSON by default
+	 */
+	public String getMediaType() {
+		return isBinary() ? mediaType : ContentType.APPLICATION_JSON.getMimeType();
+	}
+
+	/**
+	 * Sets the media type of request and response entities - JSON (the default) or one of the binary formats
+	 * Smile ({@link ParaObjectUtils#SMILE_MEDIA_TYPE}) and CBOR ({@link ParaObjectUtils#CBOR_MEDIA_TYPE}),
+	 * which are more compact and faster to encode and decode than JSON.
+	 * @param mediaType a media type
+	 */
+	public void setMediaType(String mediaType) {
+		if (Strings.CI.equalsAny(mediaType, ParaObjectUtils.SMILE_MEDIA_TYPE, ParaObjectUtils.CBOR_MEDIA_TYPE)) {
+			this.mediaType = mediaType.toLowerCase(Locale.ROOT);
+		} else {
+			this.mediaType = null;
+		}
+	}
+
 	/**
 	 * Closes the underlying Jersey client and releases resources.
 	 */
@@ -475,16 +509,17 @@ public final class ParaClient implements Closeable {
 		return null;
 	}
 
-	private <T> T readEntity(byte[] respEntity, Class<?> returnType, int statusCode, String reason) throws IOException {
+	private <T> T readEntity(byte[] respEntity, String contentType, Class<?> returnType, int statusCode, String reason)
+			throws IOException {
 		if (respEntity != null && respEntity.length > 0) {
 			if (statusCode == HttpStatus.SC_OK
 					|| statusCode == HttpStatus.SC_CREATED
 					|| statusCode == HttpStatus.SC_NOT_MODIFIED) {
-				return readEntity(respEntity, returnType);
+				return readEntity(respEntity, contentType, returnType);
 			} else if (statusCode != HttpStatus.SC_NOT_FOUND
 					&& statusCode != HttpStatus.SC_NOT_MODIFIED
 					&& statusCode != HttpStatus.SC_NO_CONTENT) {
-				Map<String, Object> error = readEntity(respEntity, Map.class);
+				Map<String, Object> error = readEntity(respEntity, contentType, Map.class);
 				if (error != null && error.containsKey("code")) {
 					String msg = error.containsKey("message") ? (String) error.get("message") : "error";
 					RuntimeException e = new RuntimeException((Integer) error.get("code") + " - " + msg);
@@ -519,7 +554,7 @@ public final class ParaClient implements Closeable {
 				if (type.isAssignableFrom(String.class)) {
 					return (T) new String(in.readAllBytes(), Para.getConfig().defaultEncoding());
 				} else {
-					return mapper.readerFor(type).readValue(in);
+					return getMapper(entity.getContentType()).readerFor(type).readValue(in);
 				}
 			}
 		} catch (Exception ex) {
@@ -531,13 +566,13 @@ public final class ParaClient implements Closeable {
 	}
 
 	@SuppressWarnings("unchecked")
-	private <T> T readEntity(byte[] entity, Class<?> type) {
+	private <T> T readEntity(byte[] entity, String contentType, Class<?> type) {
 		try {
 			if (entity != null && type != null && entity.length > 0) {
 				if (type.isAssignableFrom(String.class)) {
 					return (T) new String(entity, Para.getConfig().defaultEncoding());
 				} else {
-					return mapper.readerFor(type).readValue(entity);
+					return getMapper(contentType).readerFor(type).readValue(entity);
 				}
 			}
 		} catch (Exception ex) {
@@ -754,6 +789,9 @@ public final class ParaClient implements Closeable {
 			}
 
 			req.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+			if (isBinary()) {
+				req.setHeader(HttpHeaders.ACCEPT, mediaType);
+			}
 
 			return syncRequest(req, method, reqDetails, uri, returnType);
 		} catch (URISyntaxException ex) {
@@ -803,6 +841,9 @@ public final class ParaClient implements Closeable {
 		}
 
 		req.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+		if (isBinary()) {
+			req.setHeader(HttpHeaders.ACCEPT, mediaType);
+		}
 
 		CompletableFuture<T> future = new CompletableFuture<>();
 		final String requestUri = uri;
@@ -821,10 +862,28 @@ public final class ParaClient implements Closeable {
 	private <T> T syncRequest(HttpUriRequest req, String method, String reqDetails,
 			String requestUri, Class<?> returnType) {
 		try {
+			CachedResponse cached = getCachedResponse(req, method, requestUri);
 			return httpclient.execute(req, (resp) -> {
 				HttpEntity respEntity = resp.getEntity();
 				int statusCode = resp.getCode();
 				String reason = resp.getReasonPhrase() + reqDetails;
+				if (isCacheable(method)) {
+					String contentType = respEntity == null ? null : respEntity.getContentType();
+					byte[] body = null;
+					if (respEntity != null) {
+						InputStream in = respEntity.getContent();
+						body = in == null ? new byte[0] : in.readNBytes(etagCache.maxBodyBytes + 1);
+						if (body.length > etagCache.maxBodyBytes) {
+							// too large to be cached, so the rest of the body is not buffered
+							etagCache.remove(requestUri);
+							return readEntity(new InputStreamEntity(new SequenceInputStream(new ByteArrayInputStream(body), in),
+									ContentType.parseLenient(contentType)), returnType, statusCode, reason);
+						}
+					}
+					CachedResponse cr = revalidate(requestUri, cached, statusCode, resp.getFirstHeader(HttpHeaders.ETAG),
+							new CachedResponse(null, body, contentType));
+					return readEntity(cr.body(), cr.contentType(), returnType, statusCode, reason);
+				}
 				return readEntity(respEntity, returnType, statusCode, reason);
 			});
 		} catch (Exception ex) {
@@ -840,13 +899,19 @@ public final class ParaClient implements Closeable {
 
 	private <T> void asyncRequest(CompletableFuture<T> future, SimpleHttpRequest req, String method, String reqDetails,
 			String requestUri, Class<?> returnType) {
+		CachedResponse cached = getCachedResponse(req, method, requestUri);
 		httpasyncclient.execute(req, new FutureCallback<SimpleHttpResponse>() {
 			@Override
 			public void completed(SimpleHttpResponse resp) {
 				try {
 					int statusCode = resp.getCode();
 					String reason = resp.getReasonPhrase() + reqDetails;
-					future.complete(readEntity(resp.getBodyBytes(), returnType, statusCode, reason));
+					CachedResponse cr = new CachedResponse(null, resp.getBodyBytes(),
+							resp.getContentType() == null ? null : resp.getContentType().toString());
+					if (isCacheable(method)) {
+						cr = revalidate(requestUri, cached, statusCode, resp.getFirstHeader(HttpHeaders.ETAG), cr);
+					}
+					future.complete(readEntity(cr.body(), cr.contentType(), returnType, statusCode, reason));
 				} catch (Exception ex) {
 					future.completeExceptionally(ex);
 				}
@@ -870,6 +935,93 @@ public final class ParaClient implements Closeable {
 		});
 	}
 
+	private boolean isCacheable(String method) {
+		return etagCache != null && "GET".equals(method);
+	}
+
+	private CachedResponse getCachedResponse(HttpRequest req, String method, String requestUri) {
+		if (!isCacheable(method)) {
+			return null;
+		}
+		CachedResponse cached = etagCache.get(requestUri);
+		if (cached != null) {
+			req.setHeader(HttpHeaders.IF_NONE_MATCH, cached.etag());
+		}
+		return cached;
+	}
+
+	/**
+	 * Returns the GET response, which is the cached response if the server says it's not modified,
+	 * and keeps the response for revalidation if it has an ETag.
+	 */
+	private CachedResponse revalidate(String requestUri, CachedResponse cached, int statusCode, Header etag,
+			CachedResponse resp) {
+		if (statusCode == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+			return cached;
+		}
+		if (statusCode == HttpStatus.SC_OK && etag != null && !StringUtils.isBlank(etag.getValue()) && resp.body() != null) {
+			etagCache.put(requestUri, new CachedResponse(etag.getValue(), resp.body(), resp.contentType()));
+		} else if (cached != null) {
+			etagCache.remove(requestUri);
+		}
+		return resp;
+	}
+
+	/**
+	 * A GET response body with its ETag and content type.
+	 */
+	private record CachedResponse(String etag, byte[] body, String contentType) { }
+
+	/**
+	 * The least recently used GET responses, bounded by their number and by the total size of their bodies.
+	 * Bodies larger than a given size are not cached at all.
+	 */
+	private static final class ETagCache {
+		private final LinkedHashMap<String, CachedResponse> responses = new LinkedHashMap<>(16, 0.75f, true);
+		private final int maxSize;
+		private final long maxBytes;
+		private final int maxBodyBytes;
+		private long bytes;
+
+		private ETagCache(int maxSize, long maxBytes, int maxBodyBytes) {
+			this.maxSize = maxSize;
+			this.maxBytes = maxBytes;
+			this.maxBodyBytes = maxBodyBytes;
+		}
+
+		static ETagCache newCache(int maxSize, long maxBytes, int maxBodyBytes) {
+			if (maxSize <= 0 || maxBytes <= 0 || maxBodyBytes <= 0) {
+				return null;
+			}
+			return new ETagCache(maxSize, maxBytes, maxBodyBytes);
+		}
+
+		synchronized CachedResponse get(String key) {
+			return responses.get(key);
+		}
+
+		synchronized void put(String key, CachedResponse resp) {
+			remove(key);
+			if (resp.body().length > maxBodyBytes) {
+				return;
+			}
+			responses.put(key, resp);
+			bytes += resp.body().length;
+			Iterator<CachedResponse> eldest = responses.values().iterator();
+			while (eldest.hasNext() && (responses.size() > maxSize || bytes > maxBytes)) {
+				bytes -= eldest.next().body().length;
+				eldest.remove();
+			}
+		}
+
+		synchronized void remove(String key) {
+			CachedResponse removed = responses.remove(key);
+			if (removed != null) {
+				bytes -= removed.body().length;
+			}
+		}
+	}
+
 	private HttpUriRequest fromSimpleHttpRequest(SimpleHttpRequest req) {
 		try {
 			HttpUriRequest request = getHttpUriRequest(req.getUri().toString(), req.getMethod(), req.getBodyBytes());
@@ -886,9 +1038,25 @@ public final class ParaClient implements Closeable {
 		return null;
 	}
 
+	private boolean isBinary() {
+		return mediaType != null;
+	}
+
+	private ObjectMapper getMapper(String contentType) {
+		ObjectMapper m = ParaObjectUtils.getMapperForMediaType(contentType);
+		return m == ParaObjectUtils.getJsonMapper() ? mapper : m;
+	}
+
+	private ContentType getRequestContentType() {
+		return isBinary() ? ContentType.create(mediaType) : ContentType.APPLICATION_JSON;
+	}
+
 	private byte[] getJsonEntityAsBytes(Object entity) {
 		if (entity != null) {
 			try {
+				if (isBinary()) {
+					return getMapper(mediaType).writeValueAsBytes(entity);
+				}
 				return ParaObjectUtils.getJsonWriterNoIdent().writeValueAsBytes(entity);
 			} catch (JsonProcessingException ex) {
 				logger.error(null, ex);
@@ -929,19 +1097,19 @@ public final class ParaClient implements Closeable {
 			case "POST":
 				req = new HttpPost(uri);
 				if (jsonEntity != null) {
-					((HttpPost) req).setEntity(new ByteArrayEntity(jsonEntity, ContentType.APPLICATION_JSON));
+					((HttpPost) req).setEntity(new ByteArrayEntity(jsonEntity, getRequestContentType()));
 				}
 				break;
 			case "PUT":
 				req = new HttpPut(uri);
 				if (jsonEntity != null) {
-					((HttpPut) req).setEntity(new ByteArrayEntity(jsonEntity, ContentType.APPLICATION_JSON));
+					((HttpPut) req).setEntity(new ByteArrayEntity(jsonEntity, getRequestContentType()));
 				}
 				break;
 			case "PATCH":
 				req = new HttpPatch(uri);
 				if (jsonEntity != null) {
-					((HttpPatch) req).setEntity(new ByteArrayEntity(jsonEntity, ContentType.APPLICATION_JSON));
+					((HttpPatch) req).setEntity(new ByteArrayEntity(jsonEntity, getRequestContentType()));
 				}
 				break;
 			case "DELETE":
@@ -956,7 +1124,7 @@ public final class ParaClient implements Closeable {
 	private SimpleHttpRequest getSimpleHttpRequest(String uri, String method, byte[] jsonEntity) {
 		SimpleRequestBuilder req = SimpleRequestBuilder.create(method).setUri(uri);
 		if (jsonEntity != null && !"GET".equals(method) && !"DELETE".equals(method)) {
-			req.setBody(jsonEntity, ContentType.APPLICATION_JSON);
+			req.setBody(jsonEntity, getRequestContentType());
 		}
 		return req.build();
 	}
@@ -977,12 +1145,23 @@ public final class ParaClient implements Closeable {
 				if (p.getLastKey() != null) {
 					map.put("lastKey", Collections.singletonList(p.getLastKey()));
 				}
+				if (p.getCursor() != null) {
+					Pager next = new Pager();
+					if (next.applyCursor(p.getCursor()) && next.getPage() == p.getPage()) {
+						map.put("cursor", Collections.singletonList(p.getCursor()));
+					} else {
+						p.setCursor(null); // the page was changed by the caller, so the cursor is stale
+					}
+				}
 				if (p.getSortby() != null) {
 					map.put("sort", Collections.singletonList(p.getSortby()));
 				}
 				if (!p.getSelect().isEmpty()) {
 					map.put("select", Collections.singletonList(StringUtils.join(p.getSelect(), ",")));
 				}
+				if (p.getCountMode() != Pager.CountMode.EXACT) {
+					map.put("count", Collections.singletonList(p.getCountMode().toString()));
+				}
 			}
 		}
 		return map;
@@ -1022,11 +1201,13 @@ public final class ParaClient implements Closeable {
 		if (result != null && !result.isEmpty() && !StringUtils.isBlank(at) && result.containsKey(at)) {
 			if (pager != null && pager.length > 0 && pager[0] != null) {
 				if (result.containsKey("totalHits")) {
-					pager[0].setCount(((Integer) result.get("totalHits")).longValue());
+					pager[0].setCount(((Number) result.get("totalHits")).longValue());
 				}
 				if (result.containsKey("lastKey")) {
 					pager[0].setLastKey((String) result.get("lastKey"));
 				}
+				// the page is left as it is, the cursor is only sent when the caller asks for the page it points to
+				pager[0].setCursor((String) result.get("cursor"));
 			}
 			return getItemsFromList((List<?>) result.get(at));
 		}
@@ -1578,6 +1759,29 @@ public final class ParaClient implements Closeable {
 		return findAsync("", params).thenApply(result -> getItems(result, pager));
 	}
 
+	/**
+	 * Simple query string search across multiple apps (federated search). The query is executed on all apps
+	 * in parallel, on the server, and the results are merged into a single page, sorted by the pager's sort field.
+	 * The current app must be allowed to search in each of the given apps.
+	 * @param <P> type of the object
+	 * @param appids a list of app identifiers
+	 * @param type the type of object to search for. See {@link com.erudika.para.core.ParaObject#getType()}
+	 * @param query the query string
+	 * @param pager a {@link com.erudika.para.core.utils.Pager}
+	 * @return a list of objects found
+	 */
+	public <P extends ParaObject> List<P> findQueryFederated(List<String> appids, String type, String query, Pager... pager) {
+		if (appids == null || appids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Map<String, List<String>> params = new HashMap<>();
+		params.put("appids", getQueryParameters(String.join(",", appids)));
+		params.put("q", getQueryParameters(query));
+		params.put(Config._TYPE, getQueryParameters(type));
+		params.putAll(pagerToParams(pager));
+		return getItems(invokeGet("_search", params, Map.class), pager);
+	}
+
 	/**
 	 * Searches within a nested field. The objects of the given type must contain a nested field "nstd".
 	 * @param <P> type of the object
@@ -2908,6 +3112,28 @@ public final class ParaClient implements Closeable {
 				getEndpoint(), getFullPath("_reindex"), null, params, null, Map.class));
 	}
 
+	/**
+	 * Returns the dead letters of the app - webhook deliveries and indexing operations which failed after retrying.
+	 * @param pager a {@link com.erudika.para.core.utils.Pager}
+	 * @return a list of dead letters
+	 */
+	public List<Sysprop> getDeadLetters(Pager... pager) {
+		return getItems(invokeGet("_deadletters", pagerToParams(pager), Map.class), pager);
+	}
+
+	/**
+	 * Sends a dead letter back to the queue, so that it is processed again.
+	 * @param id the dead letter id
+	 * @return true if the dead letter was requeued
+	 */
+	public boolean replayDeadLetter(String id) {
+		if (StringUtils.isBlank(id)) {
+			return false;
+		}
+		Map<?, ?> res = invokePost("_deadletters/".concat(Utils.urlEncode(id)), null, Map.class);
+		return res != null && res.containsKey("replayed");
+	}
+
 	/**
 	 * Endpoint for sending transactional emails.
 	 * @param toEmails list of email recipients
@@ -3662,7 +3888,19 @@ public final class ParaClient implements Closeable {
 			Pager pager = new Pager(1, "_docid", false, pageSize);
 			List<T> results;
 			do {
+				String lastCursor = pager.getCursor();
+				String lastKey = pager.getLastKey();
+				long lastPage = pager.getPage();
 				results = paginatingFunc.apply(pager);
+				// follow the cursor to the next page, if the API returned one
+				pager.applyCursor(pager.getCursor());
+				if (results.size() < pageSize && pager.getCursor() == null && StringUtils.isBlank(pager.getLastKey())) {
+					break; // last page and nothing to continue from
+				}
+				if (pager.getPage() == lastPage && Objects.equals(pager.getCursor(), lastCursor) &&
+						Objects.equals(pager.getLastKey(), lastKey)) {
+					break; // the next request would return the same page again
+				}
 			} while (!results.isEmpty());
 		}
 	}
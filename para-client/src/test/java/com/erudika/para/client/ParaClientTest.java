@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.client;
+
+import com.erudika.para.core.utils.Pager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ParaClientTest {
+
+	@Test
+	void cursorDoesNotChangeThePage() {
+		try (ParaClient client = new ParaClient("app:cursor", "secret")) {
+			Pager pager = new Pager(1, 2);
+			String cursor = Pager.encodeCursor(2, null, "id2");
+			client.getItems("items", Map.of("items", List.of(), "totalHits", 5, "cursor", cursor), pager);
+			assertEquals(1, pager.getPage());
+			assertEquals(5, pager.getCount());
+			assertEquals(cursor, pager.getCursor());
+
+			// the cursor is sent only with a request for the page it points to
+			pager.setPage(pager.getPage() + 1);
+			assertEquals(List.of(cursor), client.pagerToParams(pager).get("cursor"));
+			pager.setPage(3);
+			assertFalse(client.pagerToParams(pager).containsKey("cursor"));
+			assertNull(pager.getCursor());
+		}
+	}
+
+	@Test
+	void etagCacheSkipsLargeResponses() throws IOException {
+		List<String> conditional = Collections.synchronizedList(new ArrayList<>());
+		String large = "\"" + "x".repeat(2048) + "\"";
+		HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+		server.createContext("/v1/", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+			if (ifNoneMatch != null) {
+				conditional.add(path);
+			}
+			if ("\"e1\"".equals(ifNoneMatch)) {
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+			} else {
+				exchange.getResponseHeaders().add("ETag", "\"e1\"");
+				write(exchange, path.endsWith("large") ? large : "\"small\"");
+			}
+		});
+		server.start();
+		System.setProperty("para.client.etag_cache_size", "10");
+		System.setProperty("para.client.etag_cache_max_body_kb", "1");
+		try (ParaClient client = new ParaClient("app:etag", "secret")) {
+			client.setEndpoint("http://localhost:" + server.getAddress().getPort());
+			assertEquals("\"small\"", client.invokeGet("small", null, String.class));
+			assertEquals("\"small\"", client.invokeGet("small", null, String.class));
+			assertEquals(large, client.invokeGet("large", null, String.class));
+			assertEquals(large, client.invokeGet("large", null, String.class));
+			// only the small response was cached and revalidated
+			assertEquals(List.of("/v1/small"), conditional);
+		} finally {
+			System.clearProperty("para.client.etag_cache_size");
+			System.clearProperty("para.client.etag_cache_max_body_kb");
+			server.stop(0);
+		}
+	}
+
+	private static void write(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		// chunked, so the client doesn't know the size of the body in advance
+		exchange.sendResponseHeaders(200, 0);
+		try (exchange) {
+			exchange.getResponseBody().write(bytes);
+		}
+	}
+}
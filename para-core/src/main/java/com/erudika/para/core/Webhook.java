@@ -19,10 +19,10 @@ package com.erudika.para.core;
 
 import com.erudika.para.core.annotations.Stored;
 import com.erudika.para.core.utils.Config;
-import com.erudika.para.core.utils.Pager;
 import com.erudika.para.core.utils.Para;
 import com.erudika.para.core.utils.ParaObjectUtils;
 import com.erudika.para.core.utils.Utils;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotBlank;
 import java.util.Collection;
 import java.util.Collections;
@@ -113,6 +113,14 @@ public class Webhook extends Sysprop {
 	 * The repeated delivery attempts number.
 	 */
 	@Stored private Integer repeatedDeliveryAttempts; // send the same payload X times
+	/**
+	 * The aggregation window in milliseconds.
+	 */
+	@Stored private Integer batchWindowMillis;
+	/**
+	 * The max number of events in an aggregated payload.
+	 */
+	@Stored private Integer batchMaxEvents;
 
 	/**
 	 * No-args constructor.
@@ -421,6 +429,55 @@ public class Webhook extends Sysprop {
 		this.repeatedDeliveryAttempts = repeatedDeliveryAttempts;
 	}
 
+	/**
+	 * Returns the aggregation window. Events which occur within this time window are sent in a single payload.
+	 * @return the window in milliseconds, 0 if events are not aggregated by time
+	 */
+	public Integer getBatchWindowMillis() {
+		if (batchWindowMillis == null) {
+			return 0;
+		}
+		return Math.max(0, batchWindowMillis);
+	}
+
+	/**
+	 * Sets the aggregation window.
+	 * @param batchWindowMillis the window in milliseconds
+	 */
+	public void setBatchWindowMillis(Integer batchWindowMillis) {
+		this.batchWindowMillis = batchWindowMillis;
+	}
+
+	/**
+	 * Returns the max number of events aggregated in a single payload. A payload is sent as soon as
+	 * this number is reached, even before the aggregation window has passed. If no window is set, pending events
+	 * are sent after one second.
+	 * @return the max number of events, 0 if events are not aggregated by count
+	 */
+	public Integer getBatchMaxEvents() {
+		if (batchMaxEvents == null) {
+			return 0;
+		}
+		return Math.max(0, batchMaxEvents);
+	}
+
+	/**
+	 * Sets the max number of events aggregated in a single payload.
+	 * @param batchMaxEvents the max number of events
+	 */
+	public void setBatchMaxEvents(Integer batchMaxEvents) {
+		this.batchMaxEvents = batchMaxEvents;
+	}
+
+	/**
+	 * Returns true if events are aggregated before they are sent to the target URL.
+	 * @return true if either an aggregation window or a max number of events is set
+	 */
+	@JsonIgnore
+	public boolean isBatched() {
+		return getBatchWindowMillis() > 0 || getBatchMaxEvents() > 1;
+	}
+
 	/**
 	 * Resets the secret key by generating a new one.
 	 */
@@ -520,41 +577,14 @@ public class Webhook extends Sysprop {
 		if (StringUtils.isBlank(appid)) {
 			return;
 		}
-		Pager p = new Pager(10);
-		p.setSortby("_docid");
-		List<Webhook> webhooks;
-		do {
-			Map<String, Object> terms = new HashMap<>();
-			terms.put(eventName, eventValue);
-			terms.put(Config._APPID, appid);
-			terms.put("active", true);
-			webhooks = Para.getSearch().findTerms(appid, Utils.type(Webhook.class), terms, true, p);
-			webhooks.stream().
-					filter(webhook -> typeFilterMatches(webhook, payload) && propertyFilterMatches(webhook, payload)).
-					forEach(webhook -> Para.getQueue().push(webhook.buildPayloadAsJSON(
-					(eventValue instanceof String) ? (String) eventValue : eventName, payload)));
-		} while (!webhooks.isEmpty());
-	}
-
-	/**
-	 * Returns true if the type filter matches the payload.
-	 * @param webhook the webhook
-	 * @param paraObjects the payload
-	 * @return true if matches
-	 */
-	private static boolean typeFilterMatches(Webhook webhook, Object paraObjects) {
-		if (StringUtils.isBlank(webhook.getTypeFilter()) || App.ALLOW_ALL.equals(webhook.getTypeFilter())) {
-			return true;
-		}
-		if (paraObjects instanceof ParaObject) {
-			return webhook.getTypeFilter().equalsIgnoreCase(((ParaObject) paraObjects).getType());
-		} else if (paraObjects instanceof List) {
-			List<?> list = (List) paraObjects;
-			if (!list.isEmpty() && list.get(0) instanceof ParaObject) {
-				return webhook.getTypeFilter().equalsIgnoreCase(((ParaObject) list.get(0)).getType());
+		String event = (eventValue instanceof String) ? (String) eventValue : eventName;
+		for (Webhook webhook : WebhookRegistry.getInstance().getSubscribers(appid, eventName, eventValue, payload)) {
+			if (webhook.isBatched()) {
+				WebhookBatcher.getInstance().add(webhook, event, payload);
+			} else {
+				Para.getQueue().push(webhook.buildPayloadAsJSON(event, payload));
 			}
 		}
-		return false;
 	}
 
 	/**
@@ -563,87 +593,105 @@ public class Webhook extends Sysprop {
 	 * @param payload the payload to match against
 	 * @return true if the payload matches the filter
 	 */
-	@SuppressWarnings("unchecked")
 	public static boolean propertyFilterMatches(Webhook webhook, Object payload) {
-		if (StringUtils.isBlank(webhook.getPropertyFilter())) {
-			return true;
+		PropertyFilter filter = PropertyFilter.compile(webhook.getPropertyFilter());
+		return filter == null || filter.matches(payload);
+	}
+
+	/**
+	 * A property filter like {@code name:value}, {@code name:v1|v2} (any of), {@code name:v1,v2} (all of) or
+	 * {@code name:-} (empty), parsed once so that it can be matched against many payloads.
+	 */
+	static final class PropertyFilter {
+		private final String propName;
+		private final String propValue;
+		private final Set<String> vals;
+		private final boolean matchAll;
+
+		private PropertyFilter(String filter) {
+			boolean valid = filter.contains(":");
+			this.propName = valid ? StringUtils.substringBefore(filter, ":") : null;
+			this.propValue = StringUtils.substringAfter(filter, ":");
+			this.vals = new LinkedHashSet<>(List.of(StringUtils.split(propValue, ",|", 50)));
+			this.matchAll = Strings.CS.contains(propValue, ",");
+		}
+
+		/**
+		 * Parses a property filter.
+		 * @param filter the filter
+		 * @return a filter or null if the filter is blank and matches everything
+		 */
+		static PropertyFilter compile(String filter) {
+			return StringUtils.isBlank(filter) ? null : new PropertyFilter(filter);
 		}
-		if (webhook.getPropertyFilter().contains(":")) {
+
+		/**
+		 * Matches the filter against a payload - an object, a list of objects or a map.
+		 * @param payload the payload
+		 * @return true if matches
+		 */
+		@SuppressWarnings("unchecked")
+		boolean matches(Object payload) {
+			if (propName == null) {
+				return false;
+			}
 			if (payload instanceof ParaObject) {
-				return matchesPropFilter(webhook, (ParaObject) payload);
+				return matchesObject(payload);
 			} else if (payload instanceof List) {
 				List<?> list = (List) payload;
-				return !list.isEmpty() && list.stream().anyMatch((pobj) -> matchesPropFilter(webhook, pobj));
+				return !list.isEmpty() && list.stream().anyMatch(this::matchesObject);
 			} else if (payload instanceof Map) {
 				Map<?, ?> props = (Map) payload;
-				return !props.isEmpty() && matchesProp(webhook, (Map<String, Object>) props);
+				return !props.isEmpty() && matchesProps((Map<String, Object>) props);
 			}
+			return false;
 		}
-		return false;
-	}
 
-	/**
-	 * Matches a property filter against a Para object.
-	 * @param webhook the webhook
-	 * @param paraObject the object
-	 * @return true if matches
-	 */
-	@SuppressWarnings("unchecked")
-	private static boolean matchesPropFilter(Webhook webhook, Object paraObject) {
-		if (paraObject instanceof ParaObject) {
-			Map<String, Object> props = ParaObjectUtils.getAnnotatedFields((ParaObject) paraObject, null, false);
-			return matchesProp(webhook, props);
-		} else if (paraObject instanceof Map) {
-			return matchesProp(webhook, (Map<String, Object>) paraObject);
+		@SuppressWarnings("unchecked")
+		private boolean matchesObject(Object paraObject) {
+			if (paraObject instanceof ParaObject) {
+				return matchesProps(ParaObjectUtils.getAnnotatedFields((ParaObject) paraObject, null, false));
+			} else if (paraObject instanceof Map) {
+				return matchesProps((Map<String, Object>) paraObject);
+			}
+			return false;
 		}
-		return false;
-	}
 
-	/**
-	 * Matches a property filter against a map of properties.
-	 * @param webhook the webhook
-	 * @param props the properties
-	 * @return true if matches
-	 */
-	private static boolean matchesProp(Webhook webhook, Map<String, Object> props) {
-		String propName = StringUtils.substringBefore(webhook.getPropertyFilter(), ":");
-		String propValue = StringUtils.substringAfter(webhook.getPropertyFilter(), ":");
-		Set<String> vals = new LinkedHashSet<>(List.of(StringUtils.split(propValue, ",|", 50)));
-		boolean matchAll = Strings.CS.contains(propValue, ",");
-		if (props.containsKey(propName)) {
-			Object v = props.get(propName);
-			if ("-".equals(propValue) && (v == null || StringUtils.isBlank(v.toString())
-					|| (v instanceof Collection && ((Collection) v).isEmpty()))) {
-				return true;
-			}
-			if (v instanceof Collection) {
-				if (matchAll) {
-					try {
-						return ((Collection) v).containsAll(vals);
-					} catch (Exception e) {
-						return false;
-					}
-				} else {
-					for (String val : vals) {
-						if (((Collection) v).contains(val)) {
-							return true;
-						}
-					}
+		private boolean matchesProps(Map<String, Object> props) {
+			if (props.containsKey(propName)) {
+				Object v = props.get(propName);
+				if ("-".equals(propValue) && (v == null || StringUtils.isBlank(v.toString())
+						|| (v instanceof Collection && ((Collection) v).isEmpty()))) {
+					return true;
 				}
-
-			} else {
-				if (vals.size() > 1 && !matchAll) {
-					for (String val : vals) {
-						if (v != null && v.equals(val)) {
-							return true;
+				if (v instanceof Collection) {
+					if (matchAll) {
+						try {
+							return ((Collection) v).containsAll(vals);
+						} catch (Exception e) {
+							return false;
+						}
+					} else {
+						for (String val : vals) {
+							if (((Collection) v).contains(val)) {
+								return true;
+							}
 						}
 					}
 				} else {
-					return v != null && v.equals(propValue);
+					if (vals.size() > 1 && !matchAll) {
+						for (String val : vals) {
+							if (v != null && v.equals(val)) {
+								return true;
+							}
+						}
+					} else {
+						return v != null && v.equals(propValue);
+					}
 				}
 			}
+			return false;
 		}
-		return false;
 	}
 
 	/**
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.core;
+
+import com.erudika.para.core.utils.Para;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aggregates the events for webhooks with an aggregation window or a max number of events. Events of the same
+ * type for the same webhook are collected and sent as a single signed payload, with all objects in its
+ * {@code items} array, when the window closes or when the max number of events is reached, whichever comes first.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class WebhookBatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(WebhookBatcher.class);
+	private static final WebhookBatcher INSTANCE = new WebhookBatcher();
+	private static final long DEFAULT_WINDOW_MILLIS = 1000;
+
+	private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+	private WebhookBatcher() {
+		// send whatever is pending on shutdown
+		Para.addDestroyListener(this::flushAll);
+	}
+
+	/**
+	 * Returns the singleton instance.
+	 * @return an instance of this class
+	 */
+	static WebhookBatcher getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Adds the objects of an event to the pending payload of a webhook.
+	 * @param webhook the webhook
+	 * @param event Para.DAO method name or custom event name
+	 * @param payload an object or a list of objects
+	 */
+	void add(Webhook webhook, String event, Object payload) {
+		String key = webhook.getAppid() + "/" + webhook.getId() + "/" + event;
+		int maxEvents = Math.max(1, Para.getConfig().webhooksMaxBatchEvents());
+		if (webhook.getBatchMaxEvents() > 0) {
+			maxEvents = Math.min(maxEvents, webhook.getBatchMaxEvents());
+		}
+		List<?> items = payload instanceof List<?> list ? list : Collections.singletonList(payload);
+		List<List<Object>> ready = new ArrayList<>();
+		Batch scheduled = null;
+		synchronized (batches) {
+			int i = 0;
+			while (i < items.size()) {
+				Batch batch = batches.get(key);
+				if (batch == null) {
+					batch = new Batch(webhook, event);
+					batches.put(key, batch);
+					scheduled = batch;
+				}
+				batch.webhook = webhook; // latest version
+				// long lists are split, so that a batch never has more than the max number of events
+				int count = Math.max(0, Math.min(items.size() - i, maxEvents - batch.items.size()));
+				batch.items.addAll(items.subList(i, i + count));
+				i += count;
+				if (batch.items.size() >= maxEvents) {
+					batches.remove(key);
+					ready.add(batch.items);
+					if (scheduled == batch) {
+						scheduled = null;
+					}
+				}
+			}
+		}
+		for (List<Object> batchItems : ready) {
+			send(webhook, event, batchItems);
+		}
+		if (scheduled != null) {
+			Batch batch = scheduled;
+			// batches limited only by count are still sent after a while, if no more events arrive
+			long window = webhook.getBatchWindowMillis() > 0 ? webhook.getBatchWindowMillis() : DEFAULT_WINDOW_MILLIS;
+			Para.getScheduledExecutorService().schedule(() -> flush(key, batch), window, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void flush(String key, Batch batch) {
+		boolean removed;
+		synchronized (batches) {
+			// the batch may have been sent already, when it reached the max number of events
+			removed = batches.remove(key, batch);
+		}
+		if (removed) {
+			send(batch.webhook, batch.event, batch.items);
+		}
+	}
+
+	private void flushAll() {
+		for (Map.Entry<String, Batch> entry : new ArrayList<>(batches.entrySet())) {
+			flush(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private void send(Webhook webhook, String event, List<Object> items) {
+		if (items.isEmpty()) {
+			return;
+		}
+		try {
+			Para.getQueue().push(webhook.buildPayloadAsJSON(event, items));
+			logger.debug("Sent {} aggregated '{}' events for webhook {}.", items.size(), event, webhook.getId());
+		} catch (Exception e) {
+			logger.error("Failed to send aggregated events for webhook {}: {}", webhook.getId(), e.getMessage());
+		}
+	}
+
+	private static final class Batch {
+		private final String event;
+		private final List<Object> items = new ArrayList<>();
+		private Webhook webhook;
+
+		Batch(Webhook webhook, String event) {
+			this.webhook = webhook;
+			this.event = event;
+		}
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.core;
+
+import com.erudika.para.core.utils.Config;
+import com.erudika.para.core.utils.Pager;
+import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.Utils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory registry of the active webhooks of each app, indexed by event and type filter, so that
+ * matching the subscribers of an event doesn't require a search query on every write. The webhooks of an app
+ * are loaded from the search index on first use and are then kept up to date as webhooks are created, updated
+ * and deleted. Property filters are parsed once, when a webhook is added to the registry. The registry of each
+ * app is reloaded periodically, in case webhooks were modified on a different node.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public final class WebhookRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(WebhookRegistry.class);
+	private static final WebhookRegistry INSTANCE = new WebhookRegistry();
+	private static final Set<String> DELETE_OPS = Set.of("delete", "deleteAll");
+	private static final String CUSTOM_EVENTS = "customEvents";
+	private static final String ANY_TYPE = "*";
+
+	private final Map<String, AppHooks> apps = new ConcurrentHashMap<>();
+
+	private WebhookRegistry() { }
+
+	/**
+	 * Returns the singleton instance.
+	 * @return an instance of this class
+	 */
+	public static WebhookRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the active webhooks of an app which are subscribed to an event and whose type and property filters
+	 * match the payload.
+	 * @param appid the app identifier
+	 * @param eventName event name like "create", "delete" or "customEvents"
+	 * @param eventValue event value - for custom events this is the name of the custom event
+	 * @param payload the payload
+	 * @return a list of webhooks, empty if none match
+	 */
+	public List<Webhook> getSubscribers(String appid, String eventName, Object eventValue, Object payload) {
+		if (StringUtils.isBlank(appid)) {
+			return Collections.emptyList();
+		}
+		AppHooks hooks = getHooks(appid);
+		if (hooks.index.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Map<String, List<Subscription>> byType = hooks.index.get(eventKey(eventName, eventValue));
+		if (byType == null) {
+			return Collections.emptyList();
+		}
+		List<Webhook> webhooks = new ArrayList<>();
+		addMatching(byType.get(ANY_TYPE), payload, webhooks);
+		String type = getType(payload);
+		if (type != null) {
+			addMatching(byType.get(type.toLowerCase()), payload, webhooks);
+		}
+		return webhooks;
+	}
+
+	/**
+	 * Returns true if the webhooks of an app have been loaded and there are none.
+	 * Used to skip the processing of events for apps without webhooks.
+	 * @param appid the app identifier
+	 * @return true if the app is known to have no active webhooks
+	 */
+	public boolean isEmpty(String appid) {
+		AppHooks hooks = appid == null ? null : apps.get(appid);
+		return hooks != null && !isExpired(hooks) && hooks.index.isEmpty();
+	}
+
+	/**
+	 * Updates the registry after webhooks were written or deleted.
+	 * @param appid the app identifier
+	 * @param methodName the name of the DAO method, e.g. "create" or "deleteAll"
+	 * @param objects a webhook or a list of webhooks
+	 */
+	public void update(String appid, String methodName, Object objects) {
+		if (StringUtils.isBlank(appid) || objects == null || !apps.containsKey(appid)) {
+			return; // not loaded yet
+		}
+		List<?> list = objects instanceof List<?> l ? l : List.of(objects);
+		boolean delete = DELETE_OPS.contains(methodName);
+		synchronized (apps) {
+			AppHooks hooks = apps.get(appid);
+			if (hooks == null) {
+				return;
+			}
+			Map<String, Webhook> byId = new LinkedHashMap<>(hooks.byId);
+			for (Object obj : list) {
+				if (!(obj instanceof Sysprop sp) || sp.getId() == null ||
+						!Utils.type(Webhook.class).equals(sp.getType())) {
+					continue;
+				}
+				if (delete) {
+					byId.remove(sp.getId());
+				} else if (obj instanceof Webhook webhook && !StringUtils.isBlank(webhook.getTargetUrl())) {
+					if (isActive(appid, webhook)) {
+						byId.put(webhook.getId(), webhook);
+					} else {
+						byId.remove(webhook.getId());
+					}
+				} else {
+					// partial or untyped object - reload on next use
+					clear(appid);
+					return;
+				}
+			}
+			apps.put(appid, new AppHooks(byId, hooks.loadedAt));
+		}
+	}
+
+	/**
+	 * Removes the webhooks of an app from memory. They are loaded again on next use.
+	 * @param appid the app identifier
+	 */
+	public void clear(String appid) {
+		if (appid != null) {
+			apps.remove(appid);
+		}
+	}
+
+	private AppHooks getHooks(String appid) {
+		AppHooks hooks = apps.get(appid);
+		if (hooks != null && isExpired(hooks)) {
+			apps.remove(appid, hooks);
+		}
+		return apps.computeIfAbsent(appid, this::load);
+	}
+
+	private boolean isExpired(AppHooks hooks) {
+		long refresh = TimeUnit.SECONDS.toMillis(Para.getConfig().webhooksRegistryRefreshIntervalSec());
+		return refresh > 0 && hooks.loadedAt + refresh < System.currentTimeMillis();
+	}
+
+	private AppHooks load(String appid) {
+		Map<String, Webhook> byId = new LinkedHashMap<>();
+		Map<String, Object> terms = new HashMap<>();
+		terms.put(Config._APPID, appid);
+		terms.put("active", true);
+		Pager pager = new Pager(1, "_docid", false, Para.getConfig().maxItemsPerPage());
+		List<Webhook> webhooks;
+		do {
+			webhooks = Para.getSearch().findTerms(appid, Utils.type(Webhook.class), terms, true, pager);
+			for (Webhook webhook : webhooks) {
+				if (isActive(appid, webhook)) {
+					byId.put(webhook.getId(), webhook);
+				}
+			}
+			if (StringUtils.isBlank(pager.getLastKey())) {
+				pager.setPage(pager.getPage() + 1);
+			}
+		} while (!webhooks.isEmpty() && webhooks.size() >= pager.getLimit());
+		logger.debug("Loaded {} webhooks for app '{}' into memory.", byId.size(), appid);
+		return new AppHooks(byId, System.currentTimeMillis());
+	}
+
+	private static boolean isActive(String appid, Webhook webhook) {
+		return Boolean.TRUE.equals(webhook.getActive()) && appid.equals(webhook.getAppid());
+	}
+
+	private static void addMatching(List<Subscription> subs, Object payload, List<Webhook> webhooks) {
+		if (subs != null) {
+			for (Subscription sub : subs) {
+				if (sub.filter() == null || sub.filter().matches(payload)) {
+					webhooks.add(sub.webhook());
+				}
+			}
+		}
+	}
+
+	private static String eventKey(String eventName, Object eventValue) {
+		return CUSTOM_EVENTS.equals(eventName) ? CUSTOM_EVENTS + ":" + eventValue : eventName;
+	}
+
+	private static String getType(Object payload) {
+		if (payload instanceof ParaObject) {
+			return ((ParaObject) payload).getType();
+		} else if (payload instanceof List<?> list && !list.isEmpty() && list.get(0) instanceof ParaObject) {
+			return ((ParaObject) list.get(0)).getType();
+		}
+		return null;
+	}
+
+	private static List<String> getEventKeys(Webhook webhook) {
+		List<String> keys = new ArrayList<>();
+		addIf(keys, "create", webhook.getCreate());
+		addIf(keys, "update", webhook.getUpdate());
+		addIf(keys, "delete", webhook.getDelete());
+		addIf(keys, "createAll", webhook.getCreateAll());
+		addIf(keys, "updateAll", webhook.getUpdateAll());
+		addIf(keys, "deleteAll", webhook.getDeleteAll());
+		if (webhook.getCustomEvents() != null) {
+			for (String customEvent : webhook.getCustomEvents()) {
+				keys.add(eventKey(CUSTOM_EVENTS, customEvent));
+			}
+		}
+		return keys;
+	}
+
+	private static void addIf(List<String> keys, String event, Boolean enabled) {
+		if (Boolean.TRUE.equals(enabled)) {
+			keys.add(event);
+		}
+	}
+
+	private record Subscription(Webhook webhook, Webhook.PropertyFilter filter) { }
+
+	/**
+	 * An immutable snapshot of the webhooks of an app, indexed by event and then by type filter.
+	 */
+	private static final class AppHooks {
+		private final Map<String, Webhook> byId;
+		private final Map<String, Map<String, List<Subscription>>> index;
+		private final long loadedAt;
+
+		AppHooks(Map<String, Webhook> byId, long loadedAt) {
+			this.byId = Collections.unmodifiableMap(byId);
+			this.loadedAt = loadedAt;
+			Map<String, Map<String, List<Subscription>>> idx = new HashMap<>();
+			for (Webhook webhook : byId.values()) {
+				String typeFilter = webhook.getTypeFilter();
+				String type = StringUtils.isBlank(typeFilter) || App.ALLOW_ALL.equals(typeFilter) ?
+						ANY_TYPE : typeFilter.toLowerCase();
+				Subscription sub = new Subscription(webhook, Webhook.PropertyFilter.compile(webhook.getPropertyFilter()));
+				for (String event : getEventKeys(webhook)) {
+					idx.computeIfAbsent(event, k -> new HashMap<>()).computeIfAbsent(type, k -> new ArrayList<>()).add(sub);
+				}
+			}
+			this.index = idx;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.core.listeners;
+
+import java.lang.reflect.Method;
+
+/**
+ * Listens for search queries executed through {@link com.erudika.para.core.search.Search}.
+ * Register with {@link com.erudika.para.core.utils.Para#addSearchQueryListener(IOListener)}.
+ * Plain {@link IOListener}s registered there only receive the pre/post hooks.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public interface SearchQueryListener extends IOListener {
+
+	@Override
+	default void onPreInvoke(Method method, Object[] args) { }
+
+	@Override
+	default void onPostInvoke(Method method, Object[] args, Object result) { }
+
+	/**
+	 * Called after a search query has completed.
+	 * @param appid the app identifier
+	 * @param method the {@code Search} method which was invoked, its name is the query type
+	 * @param args the list of arguments supplied to the {@code Search} method called
+	 * @param hits the total number of hits, if known, or the number of results returned
+	 * @param tookNanos the query latency in nanoseconds
+	 */
+	void onQueryCompleted(String appid, Method method, Object[] args, long hits, long tookNanos);
+
+}
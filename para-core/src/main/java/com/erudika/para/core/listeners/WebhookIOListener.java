@@ -20,10 +20,15 @@ package com.erudika.para.core.listeners;
 import com.erudika.para.core.ParaObject;
 import com.erudika.para.core.Sysprop;
 import com.erudika.para.core.Webhook;
+import com.erudika.para.core.WebhookRegistry;
+import com.erudika.para.core.queue.QueueFullException;
+import com.erudika.para.core.queue.RetryScheduler;
 import com.erudika.para.core.utils.Para;
 import com.erudika.para.core.utils.Utils;
 import java.lang.reflect.Method;
 import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Listens for IO events and forwards them to the registered webhooks, via a queue.
@@ -31,6 +36,8 @@ import java.util.List;
  */
 public class WebhookIOListener implements IOListener {
 
+	private static final Logger logger = LoggerFactory.getLogger(WebhookIOListener.class);
+
 	/**
 	 * No-args constructor.
 	 */
@@ -46,15 +53,33 @@ public class WebhookIOListener implements IOListener {
 	public void onPostInvoke(Method method, Object[] args, Object result) {
 		if (method != null && !method.getName().startsWith("read")) {
 			Object paraObjects = getObjectsFromArguments(args);
-			// don't process webhooks for operations on webhook objects.
-			if (paraObjects == null || paraObjects instanceof Webhook || (paraObjects instanceof Sysprop &&
-					Utils.type(Webhook.class).equals(((Sysprop) paraObjects).getType()))) {
+			if (paraObjects == null) {
+				return;
+			}
+			String appid = args.length > 0 && args[0] instanceof String ? (String) args[0] :
+					Para.getConfig().getRootAppIdentifier();
+			Object first = paraObjects instanceof List<?> list ? list.get(0) : paraObjects;
+			// keep the registry of webhook subscriptions up to date
+			if (first instanceof Sysprop sp && Utils.type(Webhook.class).equals(sp.getType())) {
+				WebhookRegistry.getInstance().update(appid, method.getName(), paraObjects);
+			}
+			// don't process webhooks for operations on webhook objects or on failed deliveries
+			if (first instanceof Webhook || (first instanceof Sysprop sp &&
+					(Utils.type(Webhook.class).equals(sp.getType()) || RetryScheduler.RETRY_TYPE.equals(sp.getType()) ||
+					RetryScheduler.DEAD_LETTER_TYPE.equals(sp.getType())))) {
 				return;
 			}
+			// apps without webhooks don't need to go through the executor
+			if (WebhookRegistry.getInstance().isEmpty(appid)) {
+				return;
+			}
+			// events are queued in the background, so a full queue can't fail the write - rejected events are dropped
 			Para.asyncExecute(() -> {
-				String appid = args.length > 0 && args[0] instanceof String ? (String) args[0] :
-						Para.getConfig().getRootAppIdentifier();
-				Webhook.sendEventPayloadToQueue(appid, method.getName(), true, paraObjects);
+				try {
+					Webhook.sendEventPayloadToQueue(appid, method.getName(), true, paraObjects);
+				} catch (QueueFullException e) {
+					logger.warn("Webhook events for '{}' in app '{}' were dropped: {}", method.getName(), appid, e.getMessage());
+				}
 			});
 		}
 	}
@@ -18,12 +18,16 @@
 package com.erudika.para.core.metrics;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.codahale.metrics.Timer;
 import com.erudika.para.core.App;
 import com.erudika.para.core.rest.CustomResourceHandler;
 import java.io.Closeable;
+import java.util.function.Supplier;
 
 /**
  * Helper methods for working with performance metrics.
@@ -88,6 +92,53 @@ public final class Metrics {
 		return getCounter(App.isRoot(appid) ? SYSTEM_METRICS_NAME : appid, className, names);
 	}
 
+	/**
+	 * Creates a new histogram for a particular class and method for a specific application.
+	 *
+	 * @param appid the application that invoked the request
+	 * @param clazz the Class to be measured
+	 * @param names one or more unique names to identify the histogram - usually a method name
+	 * @return a histogram
+	 */
+	public static Histogram histogram(String appid, Class<?> clazz, String... names) {
+		String className = getClassName(clazz);
+		String registryName = App.isRoot(appid) ? SYSTEM_METRICS_NAME : appid;
+		return SharedMetricRegistries.getOrCreate(registryName).histogram(MetricRegistry.name(className, names));
+	}
+
+	/**
+	 * Creates a new meter for a particular class and method for a specific application.
+	 * Meters measure the rate of events, e.g. messages per second.
+	 *
+	 * @param appid the application that invoked the request
+	 * @param clazz the Class to be measured
+	 * @param names one or more unique names to identify the meter
+	 * @return a meter
+	 */
+	public static Meter meter(String appid, Class<?> clazz, String... names) {
+		String className = getClassName(clazz);
+		String registryName = App.isRoot(appid) ? SYSTEM_METRICS_NAME : appid;
+		return SharedMetricRegistries.getOrCreate(registryName).meter(MetricRegistry.name(className, names));
+	}
+
+	/**
+	 * Registers a gauge for a particular class and method for a specific application.
+	 * If a gauge with the same name already exists, it is returned instead.
+	 *
+	 * @param <T> the type of value
+	 * @param appid the application that owns the gauge
+	 * @param clazz the Class to be measured
+	 * @param value supplies the current value of the gauge
+	 * @param names one or more unique names to identify the gauge
+	 * @return a gauge
+	 */
+	public static <T> Gauge<T> gauge(String appid, Class<?> clazz, Supplier<T> value, String... names) {
+		String className = getClassName(clazz);
+		String registryName = App.isRoot(appid) ? SYSTEM_METRICS_NAME : appid;
+		Gauge<T> gauge = value::get;
+		return SharedMetricRegistries.getOrCreate(registryName).gauge(MetricRegistry.name(className, names), () -> gauge);
+	}
+
 	private static Timer getTimer(String registryName, String className, String... names) {
 		return SharedMetricRegistries.getOrCreate(registryName).timer(MetricRegistry.name(className, names));
 	}
@@ -17,6 +17,11 @@
  */
 package com.erudika.para.core.queue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+
 /**
  * The core queue interface. Pushes messages to a queue and pulls them for processing.
  * @author Alex Bogdanovski [alex@erudika.com]
@@ -29,6 +34,40 @@ public interface Queue {
 	 */
 	String pull();
 
+	/**
+	 * Pulls up to {@code maxMessages} messages from a queue, waiting up to {@code maxWaitMillis}
+	 * for the first message to arrive. Returns as soon as at least one message is available.
+	 * The default implementation calls {@link #pull()} with an increasing delay between empty pulls,
+	 * queues which support blocking reads should override it.
+	 * @param maxMessages max number of messages to return
+	 * @param maxWaitMillis max time to wait for messages, in milliseconds
+	 * @return a list of messages, empty if none arrived within the time limit or the thread was interrupted
+	 */
+	default List<String> pullBatch(int maxMessages, long maxWaitMillis) {
+		List<String> msgs = new ArrayList<>();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+		long delay = 1;
+		while (msgs.size() < maxMessages) {
+			String msg = pull();
+			if (!StringUtils.isBlank(msg)) {
+				msgs.add(msg);
+				continue;
+			}
+			long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (!msgs.isEmpty() || remaining <= 0) {
+				break;
+			}
+			try {
+				Thread.sleep(Math.min(delay, remaining));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			delay = Math.min(delay * 2, 100);
+		}
+		return msgs;
+	}
+
 	/**
 	 * Pushes a message to a queue.
 	 * @param task the message
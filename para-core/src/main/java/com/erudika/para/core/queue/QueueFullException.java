@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.core.queue;
+
+/**
+ * Thrown when a message can't be added to a queue because the queue is full.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class QueueFullException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Default constructor.
+	 * @param message the error message
+	 */
+	public QueueFullException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.core.queue;
+
+import com.erudika.para.core.App;
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.Sysprop;
+import com.erudika.para.core.Webhook;
+import com.erudika.para.core.utils.Config;
+import com.erudika.para.core.utils.Pager;
+import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.ParaObjectUtils;
+import com.erudika.para.core.utils.Utils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retries failed webhook deliveries and index operations with exponential backoff and jitter.
+ * Pending retries are kept in a time-ordered delay queue and are also stored in each app as objects of type
+ * {@value #RETRY_TYPE}, so they survive restarts. Objects which were missing from the database during an
+ * {@code index_all_op} are tracked per app, in a single retry task for each app. When all attempts fail, the
+ * retry task is moved to the dead-letter store of the app - objects of type {@value #DEAD_LETTER_TYPE} - where
+ * it can be inspected and replayed through the API.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public final class RetryScheduler {
+
+	/**
+	 * The type of pending retry task objects.
+	 */
+	public static final String RETRY_TYPE = "retrytask";
+	/**
+	 * The type of dead letter objects.
+	 */
+	public static final String DEAD_LETTER_TYPE = "deadletter";
+
+	private static final Logger logger = LoggerFactory.getLogger(RetryScheduler.class);
+	private static final RetryScheduler INSTANCE = new RetryScheduler();
+	private static final String KIND_WEBHOOK = "webhook";
+	private static final String KIND_INDEX = "index";
+	private static final String KIND_MESSAGE = "message";
+
+	private final DelayQueue<Task> queue = new DelayQueue<>();
+	private final Map<String, Task> pendingIndexTasks = new ConcurrentHashMap<>();
+	private Thread worker;
+	private boolean destroyListenerAdded;
+
+	private RetryScheduler() { }
+
+	/**
+	 * Returns the singleton instance.
+	 * @return an instance of this class
+	 */
+	public static RetryScheduler getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Schedules another delivery attempt for a webhook payload which failed to be delivered.
+	 * @param appid the app identifier
+	 * @param message the webhook payload message
+	 */
+	public void retryWebhook(String appid, Map<String, Object> message) {
+		if (StringUtils.isBlank(appid) || message == null) {
+			return;
+		}
+		Sysprop record = newRecord(appid, KIND_WEBHOOK);
+		record.addProperty("message", message);
+		schedule(new Task(record), true);
+	}
+
+	/**
+	 * Schedules indexing of objects which were not found in the database. The ids are added to
+	 * the pending ids of the app, which are retried together.
+	 * @param appid the app identifier
+	 * @param ids object ids
+	 */
+	public void retryIndexing(String appid, Collection<String> ids) {
+		if (StringUtils.isBlank(appid) || ids == null || ids.isEmpty()) {
+			return;
+		}
+		synchronized (pendingIndexTasks) {
+			Task task = pendingIndexTasks.get(appid);
+			if (task == null) {
+				task = new Task(newRecord(appid, KIND_INDEX));
+				task.getIds().addAll(ids);
+				pendingIndexTasks.put(appid, task);
+				try {
+					schedule(task, true);
+				} catch (RuntimeException e) {
+					// otherwise the ids of this app would be added to a task which never runs
+					pendingIndexTasks.remove(appid, task);
+					throw e;
+				}
+			} else {
+				task.getIds().addAll(ids);
+				persist(task);
+			}
+		}
+		logger.debug("Some objects are missing from local database while performing 'index_all_op': {}", ids);
+	}
+
+	/**
+	 * Returns the ids of objects in an app which are waiting to be indexed.
+	 * @param appid the app identifier
+	 * @return a set of ids
+	 */
+	public Set<String> getPendingIds(String appid) {
+		Task task = pendingIndexTasks.get(appid);
+		return task == null ? Set.of() : Set.copyOf(task.getIds());
+	}
+
+	/**
+	 * Moves a queue message, which could not be processed after the maximum number of attempts,
+	 * to the dead-letter store, from where it can be replayed.
+	 * @param appid the app identifier, the root app if blank
+	 * @param message the message, as pulled from the queue
+	 * @param error the reason why processing failed
+	 */
+	public void deadLetter(String appid, String message, String error) {
+		if (StringUtils.isBlank(message)) {
+			return;
+		}
+		String app = StringUtils.isBlank(appid) ? Para.getConfig().getRootAppIdentifier() : appid;
+		Sysprop deadLetter = new Sysprop(Utils.getNewId());
+		deadLetter.setAppid(app);
+		deadLetter.setType(DEAD_LETTER_TYPE);
+		deadLetter.setName(KIND_MESSAGE);
+		deadLetter.addProperty("kind", KIND_MESSAGE);
+		deadLetter.addProperty("message", message);
+		deadLetter.addProperty("error", error);
+		Para.getDAO().create(app, deadLetter);
+		logger.warn("Message from queue for app '{}' failed to be processed and was moved to the dead-letter store "
+				+ "as {}: {}", app, deadLetter.getId(), error);
+	}
+
+	/**
+	 * Returns the dead letters of an app - retry tasks which failed after the maximum number of attempts.
+	 * @param appid the app identifier
+	 * @param pager a pager
+	 * @return a list of dead letters
+	 */
+	public List<Sysprop> getDeadLetters(String appid, Pager... pager) {
+		return Para.getSearch().findQuery(appid, DEAD_LETTER_TYPE, "*", pager);
+	}
+
+	/**
+	 * Sends a dead letter back to the queue, to be processed again by the river, and removes it from the store.
+	 * The message is rebuilt from trusted data - webhook payloads are recreated from a webhook in the same app
+	 * and indexing operations and other queue messages are always sent to the given app.
+	 * @param appid the app identifier
+	 * @param id the id of a dead letter
+	 * @return true if the dead letter was found and requeued
+	 */
+	public boolean replay(String appid, String id) {
+		if (StringUtils.isBlank(appid) || StringUtils.isBlank(id)) {
+			return false;
+		}
+		ParaObject obj = Para.getDAO().read(appid, id);
+		if (!(obj instanceof Sysprop deadLetter) || !DEAD_LETTER_TYPE.equals(deadLetter.getType()) ||
+				!appid.equals(deadLetter.getAppid())) {
+			return false;
+		}
+		String json;
+		if (KIND_INDEX.equals(deadLetter.getProperty("kind"))) {
+			Map<String, Object> payload = new HashMap<>();
+			payload.put(Config._ID, "index_all_op");
+			payload.put(Config._APPID, appid);
+			payload.put(Config._TYPE, "indexpayload");
+			Object ids = deadLetter.getProperty("ids");
+			payload.put("payload", ids instanceof Collection<?> c ? c.stream().filter(i -> i != null).
+					map(String::valueOf).distinct().collect(Collectors.toList()) : List.of());
+			json = toJSON(payload);
+		} else if (KIND_MESSAGE.equals(deadLetter.getProperty("kind"))) {
+			json = toJSON(rebuildQueueMessage(appid, deadLetter.getProperty("message")));
+		} else {
+			json = toJSON(rebuildWebhookMessage(appid, deadLetter.getProperty("message")));
+		}
+		if (StringUtils.isBlank(json)) {
+			return false;
+		}
+		Para.getQueue().push(json);
+		Para.getDAO().delete(appid, deadLetter);
+		logger.info("Dead letter {} in app '{}' was sent back to the queue.", id, appid);
+		return true;
+	}
+
+	/**
+	 * Loads the pending retry tasks of all apps, e.g. after a restart.
+	 */
+	public void recover() {
+		Para.asyncExecute(() -> {
+			String rootAppid = Para.getConfig().getRootAppIdentifier();
+			recoverApp(rootAppid);
+			Pager pager = new Pager(1, "_docid", false, Para.getConfig().maxItemsPerPage());
+			List<App> apps;
+			do {
+				apps = Para.getSearch().findQuery(rootAppid, Utils.type(App.class), "*", pager);
+				apps.stream().map(App::getAppIdentifier).filter(a -> !rootAppid.equals(a)).forEach(this::recoverApp);
+				nextPage(pager);
+			} while (!apps.isEmpty() && apps.size() >= pager.getLimit());
+		});
+	}
+
+	private void recoverApp(String appid) {
+		Pager pager = new Pager(1, "_docid", false, Para.getConfig().maxItemsPerPage());
+		List<Sysprop> records;
+		do {
+			records = Para.getSearch().findQuery(appid, RETRY_TYPE, "*", pager);
+			for (Sysprop record : records) {
+				if (!RETRY_TYPE.equals(record.getType())) {
+					continue;
+				}
+				// stored tasks are not trusted - they always belong to the app they were found in
+				record.setAppid(appid);
+				if (!KIND_INDEX.equals(record.getProperty("kind"))) {
+					record.addProperty("kind", KIND_WEBHOOK);
+					record.addProperty("message", rebuildWebhookMessage(appid, record.getProperty("message")));
+				}
+				Task task = new Task(record);
+				if (KIND_INDEX.equals(record.getProperty("kind"))) {
+					synchronized (pendingIndexTasks) {
+						if (pendingIndexTasks.putIfAbsent(appid, task) != null) {
+							continue;
+						}
+					}
+				}
+				schedule(task, false);
+			}
+			nextPage(pager);
+		} while (!records.isEmpty() && records.size() >= pager.getLimit());
+		if (!records.isEmpty() || pager.getCount() > 0) {
+			logger.info("Loaded {} pending retry tasks for app '{}'.", pager.getCount(), appid);
+		}
+	}
+
+	private static void nextPage(Pager pager) {
+		if (StringUtils.isBlank(pager.getLastKey())) {
+			pager.setPage(pager.getPage() + 1);
+		}
+	}
+
+	/**
+	 * Returns the delay before the next attempt, which grows exponentially with each attempt, starting at
+	 * {@code para.river.retry_base_delay_ms}, up to {@code para.river.retry_max_delay_sec}.
+	 * @param attempt the number of failed attempts so far
+	 * @return a delay in milliseconds, with jitter
+	 */
+	public static long getBackoffDelayMillis(int attempt) {
+		long base = Math.max(1, Para.getConfig().riverRetryBaseDelayMillis());
+		long max = TimeUnit.SECONDS.toMillis(Math.max(1, Para.getConfig().riverRetryMaxDelaySec()));
+		long delay = Math.min(max, base << Math.min(Math.max(0, attempt), 30));
+		// "equal jitter" - half of the delay is fixed and the other half is random
+		return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+	}
+
+	private void schedule(Task task, boolean persist) {
+		task.dueAt = System.currentTimeMillis() + getBackoffDelayMillis(task.getAttempts());
+		// the task is queued first, so that it's retried even if it can't be saved
+		queue.add(task);
+		startWorker();
+		if (persist) {
+			persist(task);
+		}
+	}
+
+	private synchronized void startWorker() {
+		if (worker == null || !worker.isAlive()) {
+			worker = Thread.ofVirtual().name("para-retry-scheduler").start(() -> {
+				try {
+					while (!Thread.currentThread().isInterrupted()) {
+						Task task = queue.take();
+						Para.asyncExecute(() -> execute(task));
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			if (!destroyListenerAdded) {
+				destroyListenerAdded = true;
+				Para.addDestroyListener(this::stopWorker);
+			}
+		}
+	}
+
+	private synchronized void stopWorker() {
+		if (worker != null) {
+			worker.interrupt();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void execute(Task task) {
+		task.record.addProperty("attempts", task.getAttempts() + 1);
+		try {
+			if (KIND_INDEX.equals(task.record.getProperty("kind"))) {
+				retryIndexing(task);
+			} else {
+				Map<String, Object> message = (Map<String, Object>) task.record.getProperty("message");
+				String webhookId = message == null ? null : (String) message.get(Config._ID);
+				if (message == null || !Para.getConfig().webhooksEnabled() || StringUtils.isBlank(webhookId)) {
+					complete(task);
+					return;
+				}
+				int started = WebhookDispatcher.getInstance().deliver(task.record.getAppid(), webhookId, message, 1,
+						() -> failed(task, "Webhook delivery failed."), () -> complete(task));
+				if (started == 0) {
+					failed(task, "Webhook delivery could not be started.");
+				}
+			}
+		} catch (Exception e) {
+			failed(task, e.getMessage());
+		}
+	}
+
+	private void retryIndexing(Task task) {
+		String appid = task.record.getAppid();
+		List<String> ids;
+		synchronized (pendingIndexTasks) {
+			ids = new ArrayList<>(task.getIds());
+		}
+		Map<String, ParaObject> found = Para.getDAO().readAll(appid, ids, true);
+		List<ParaObject> objects = found.values().stream().filter(v -> v != null).collect(Collectors.toList());
+		if (!objects.isEmpty()) {
+			Para.getSearch().indexAll(appid, objects);
+		}
+		synchronized (pendingIndexTasks) {
+			objects.forEach(o -> task.getIds().remove(o.getId()));
+			if (task.getIds().isEmpty()) {
+				pendingIndexTasks.remove(appid);
+				complete(task);
+				return;
+			}
+		}
+		failed(task, "Objects not found in database.");
+	}
+
+	private void failed(Task task, String error) {
+		task.record.addProperty("error", error);
+		if (task.getAttempts() >= getMaxAttempts(task)) {
+			String appid = task.record.getAppid();
+			Sysprop deadLetter = new Sysprop(task.record.getId());
+			deadLetter.setAppid(appid);
+			deadLetter.setType(DEAD_LETTER_TYPE);
+			deadLetter.setProperties(task.record.getProperties());
+			// ids added to a pending indexing task meanwhile are either in the dead letter or in a new task
+			synchronized (pendingIndexTasks) {
+				try {
+					Para.getDAO().create(appid, deadLetter);
+				} catch (Exception e) {
+					// the task is kept and moved to the dead-letter store on its next turn
+					logger.error("Failed to move retry task {} in app '{}' to the dead-letter store: {}",
+							task.record.getId(), appid, e.getMessage());
+					schedule(task, false);
+					return;
+				}
+				pendingIndexTasks.remove(appid, task);
+			}
+			if (KIND_INDEX.equals(task.record.getProperty("kind"))) {
+				logger.warn("Indexing operation 'index_all_op' failed for objects {} as they "
+						+ "were not found in the database for app '{}'. This may cause the index "
+						+ "to become out of sync or corrupted.", task.getIds(), appid);
+			}
+			logger.info("Retry task {} in app '{}' failed after {} attempts and was moved to the dead-letter store.",
+					task.record.getId(), appid, task.getAttempts());
+		} else {
+			schedule(task, true);
+		}
+	}
+
+	private void complete(Task task) {
+		try {
+			Para.getDAO().delete(task.record.getAppid(), task.record);
+		} catch (Exception e) {
+			logger.warn("Failed to delete completed retry task {} in app '{}': {}", task.record.getId(),
+					task.record.getAppid(), e.getMessage());
+		}
+	}
+
+	private void persist(Task task) {
+		task.record.setTimestamp(System.currentTimeMillis());
+		try {
+			Para.getDAO().create(task.record.getAppid(), task.record);
+		} catch (Exception e) {
+			// the task is still retried, it just won't be resumed after a restart
+			logger.warn("Failed to save retry task {} in app '{}': {}", task.record.getId(),
+					task.record.getAppid(), e.getMessage());
+		}
+	}
+
+	private int getMaxAttempts(Task task) {
+		return KIND_INDEX.equals(task.record.getProperty("kind")) ? Para.getConfig().riverMaxIndexingRetries() :
+				Para.getConfig().webhooksMaxDeliveryRetries();
+	}
+
+	private static Sysprop newRecord(String appid, String kind) {
+		Sysprop record = new Sysprop(Utils.getNewId());
+		record.setAppid(appid);
+		record.setType(RETRY_TYPE);
+		record.setName(kind);
+		record.addProperty("kind", kind);
+		record.addProperty("attempts", 0);
+		return record;
+	}
+
+	/**
+	 * Recreates a webhook payload message from the webhook it was built for. Only the event and the items of
+	 * the stored message are reused, everything else - the target URL, the app and the signature - comes from
+	 * the webhook object, which must exist in the given app.
+	 * @return a new message or null if the message is not a valid webhook payload for that app
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> rebuildWebhookMessage(String appid, Object message) {
+		if (!(message instanceof Map) || !"webhookpayload".equals(((Map<String, Object>) message).get(Config._TYPE))) {
+			return null;
+		}
+		Map<String, Object> msg = (Map<String, Object>) message;
+		if (!(msg.get(Config._ID) instanceof String webhookId) || !(msg.get("payload") instanceof String payload)) {
+			return null;
+		}
+		ParaObject obj = Para.getDAO().read(appid, webhookId);
+		if (!(obj instanceof Webhook webhook) || !appid.equals(webhook.getAppid())) {
+			return null;
+		}
+		try {
+			Map<String, Object> payloadObject = ParaObjectUtils.getJsonReader(Map.class).readValue(payload);
+			Object event = payloadObject.get("event");
+			String json = webhook.buildPayloadAsJSON(event instanceof String ? (String) event : null,
+					payloadObject.get("items"));
+			return StringUtils.isBlank(json) ? null : ParaObjectUtils.getJsonReader(Map.class).readValue(json);
+		} catch (Exception e) {
+			logger.warn("Invalid webhook payload for webhook {} in app '{}': {}", webhookId, appid, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Parses a dead queue message, which is always sent back to the app it was stored in.
+	 * @return the message or null if it's not valid
+	 */
+	private static Map<String, Object> rebuildQueueMessage(String appid, Object message) {
+		if (!(message instanceof String json)) {
+			return null;
+		}
+		try {
+			Map<String, Object> msg = ParaObjectUtils.getJsonReader(Map.class).readValue(json);
+			msg.put(Config._APPID, appid);
+			return msg;
+		} catch (Exception e) {
+			logger.warn("Invalid dead letter message in app '{}': {}", appid, e.getMessage());
+			return null;
+		}
+	}
+
+	private static String toJSON(Map<String, Object> message) {
+		if (message == null) {
+			return null;
+		}
+		try {
+			return ParaObjectUtils.getJsonWriterNoIdent().writeValueAsString(message);
+		} catch (Exception e) {
+			logger.error("Failed to serialize dead letter: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	private static final class Task implements Delayed {
+		private final Sysprop record;
+		private long dueAt;
+
+		Task(Sysprop record) {
+			this.record = record;
+		}
+
+		int getAttempts() {
+			return NumberUtils.toInt(String.valueOf(record.getProperty("attempts")), 0);
+		}
+
+		@SuppressWarnings("unchecked")
+		Set<String> getIds() {
+			Object ids = record.getProperty("ids");
+			if (!(ids instanceof LinkedHashSet)) {
+				Set<String> set = new LinkedHashSet<>();
+				if (ids instanceof Collection) {
+					set.addAll((Collection<String>) ids);
+				}
+				record.addProperty("ids", set);
+				return set;
+			}
+			return (Set<String>) ids;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed o) {
+			return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
+		}
+	}
+}
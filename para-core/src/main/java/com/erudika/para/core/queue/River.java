@@ -20,36 +20,25 @@ package com.erudika.para.core.queue;
 import com.erudika.para.core.App;
 import com.erudika.para.core.ParaObject;
 import com.erudika.para.core.Sysprop;
-import com.erudika.para.core.Webhook;
 import com.erudika.para.core.annotations.Locked;
 import com.erudika.para.core.utils.Config;
 import com.erudika.para.core.utils.Para;
 import com.erudika.para.core.utils.ParaObjectUtils;
-import com.erudika.para.core.utils.Utils;
 import com.fasterxml.jackson.databind.ObjectReader;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
 import org.apache.commons.lang3.math.NumberUtils;
-import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.config.RequestConfig;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
-import org.apache.hc.core5.http.HttpHeaders;
-import org.apache.hc.core5.http.HttpRequest;
-import org.apache.hc.core5.http.HttpResponse;
-import org.apache.hc.core5.http.io.entity.StringEntity;
-import org.apache.hc.core5.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,8 +50,9 @@ import org.slf4j.LoggerFactory;
 public abstract class River implements Runnable {
 
 	private static final Logger logger = LoggerFactory.getLogger(River.class);
-	private static final CloseableHttpClient HTTP;
-	private static ConcurrentHashMap<String, Integer> pendingIds;
+
+	// failed attempts at processing each message, until it's processed or moved to the dead-letter store
+	private final Map<String, Integer> attempts = new HashMap<>();
 
 	/**
 	 * Protected constructor for subclasses.
@@ -71,16 +61,6 @@ public abstract class River implements Runnable {
 		// default constructor
 	}
 
-	static {
-		int timeout = 10;
-		HTTP = HttpClientBuilder.create().
-				setConnectionReuseStrategy((HttpRequest hr, HttpResponse hr1, HttpContext hc) -> false).
-				setDefaultRequestConfig(RequestConfig.custom().
-						setConnectionRequestTimeout(timeout, TimeUnit.SECONDS).
-						build()).
-				build();
-	}
-
 	/**
 	 * Returns a list of messages pulled from queue.
 	 * @return a list of messages pulled from queue
@@ -94,41 +74,77 @@ public abstract class River implements Runnable {
 		List<ParaObject> createList = new LinkedList<>();
 		List<ParaObject> updateList = new LinkedList<>();
 		List<ParaObject> deleteList = new LinkedList<>();
+		Map<String, Map<String, Map<String, Object>>> updates = new LinkedHashMap<>();
 		ObjectReader jreader = ParaObjectUtils.getJsonReader(Map.class);
 		int idleCount = 0;
+		int failures = 0;
 
 		try {
 			while (!Thread.interrupted()) {
 				logger.debug("Waiting {}s for messages...", Para.getConfig().queuePollingIntervalSec());
+				if (!Para.isHealthy()) {
+					// messages are left in the queue until Para is healthy again, checking once in a while
+					int wait = Math.max(1, Para.getConfig().queuePollingWaitSec());
+					logger.debug("Para is not healthy, waiting {}s before pulling messages...", wait);
+					Thread.sleep(wait * 1000L);
+					continue;
+				}
 				int processedHooks = 0;
 				List<String> msgs = Collections.emptyList();
-				if (Para.isHealthy()) {
-					try {
-						msgs = pullMessages();
-						logger.debug("Pulled {} messages from queue.", msgs.size());
-
-						for (final String msg : msgs) {
-							logger.debug("Message from queue: {}", msg);
-							if (Strings.CS.contains(msg, Config._APPID) && Strings.CS.contains(msg, Config._TYPE)) {
-								processedHooks += parseAndCategorizeMessage(jreader.readValue(msg),
-										createList, updateList, deleteList);
-							}
+				try {
+					msgs = pullMessages();
+					logger.debug("Pulled {} messages from queue.", msgs.size());
+				} catch (Exception e) {
+					logger.error("Failed to pull messages from queue:", e);
+				}
+				for (final String msg : msgs) {
+					logger.debug("Message from queue: {}", msg);
+					Map<String, Object> parsed = parse(jreader, msg);
+					if (parsed != null) {
+						try {
+							processedHooks += parseAndCategorizeMessage(parsed, createList, updates, deleteList);
+						} catch (Exception e) {
+							// only the bad message is skipped, the rest of the batch is still processed
+							logger.error("Skipping invalid message from queue: {}", e.getMessage());
 						}
-					} catch (Exception e) {
-						logger.error("Batch processing operation failed:", e);
 					}
 				}
 
-				if (!createList.isEmpty() || !updateList.isEmpty() || !deleteList.isEmpty() || processedHooks > 0) {
-					logger.debug("River summary: {} created, {} updated, {} deleted, {} webhooks delivered.",
-							createList.size(), updateList.size(), deleteList.size(), processedHooks);
-					persistChanges(createList, updateList, deleteList);
+				if (!createList.isEmpty() || !updates.isEmpty() || !deleteList.isEmpty() || processedHooks > 0) {
+					try {
+						readUpdatedObjects(updates, updateList);
+						logger.debug("River summary: {} created, {} updated, {} deleted, {} webhooks delivered.",
+								createList.size(), updateList.size(), deleteList.size(), processedHooks);
+						persistChanges(createList, updateList, deleteList);
+						commitMessages();
+						clearAttempts(msgs);
+						failures = 0;
+					} catch (Exception e) {
+						logger.error("Failed to persist changes from queue, rolling back {} messages:", msgs.size(), e);
+						createList.clear();
+						updateList.clear();
+						deleteList.clear();
+						updates.clear();
+						if (countAttempt(msgs) && persistEachMessage(jreader, msgs)) {
+							commitMessages();
+							clearAttempts(msgs);
+							failures = 0;
+						} else {
+							rollbackMessages();
+							// back off exponentially while the database is failing, instead of retrying at a fixed rate
+							long delay = RetryScheduler.getBackoffDelayMillis(failures++);
+							logger.debug("Retrying in {}ms...", delay);
+							Thread.sleep(delay);
+						}
+					}
 					idleCount = 0;
-				} else if (msgs.isEmpty()) {
+				} else if (!msgs.isEmpty()) {
+					commitMessages();
+				} else {
 					idleCount++;
 					int sleep = Para.getConfig().queuePollingWaitSec();
 					// no tasks in queue => throttle down pull requests
-					if (sleep > 0 && idleCount >= 3) {
+					if (sleep > 0 && idleCount >= 3 && !isPullBlocking()) {
 						logger.debug("Queue is empty. Sleeping for {}s...", sleep);
 						Thread.sleep(sleep * 1000L);
 					}
@@ -139,8 +155,108 @@ public abstract class River implements Runnable {
 		}
 	}
 
+	/**
+	 * Returns true if {@link #pullMessages()} waits for new messages to arrive. In that case the river
+	 * doesn't sleep between pulls when the queue is empty.
+	 * @return false by default
+	 */
+	protected boolean isPullBlocking() {
+		return false;
+	}
+
+	/**
+	 * Called after the messages from the last call to {@link #pullMessages()} have been processed
+	 * and all changes were persisted successfully. Durable queues should acknowledge these messages here.
+	 */
+	protected void commitMessages() {
+		// noop
+	}
+
+	/**
+	 * Called when the changes from the last call to {@link #pullMessages()} could not be persisted.
+	 * Durable queues should make these messages available for delivery again. By default the messages
+	 * are not delivered again.
+	 */
+	protected void rollbackMessages() {
+		logger.warn("Messages from queue were dropped because they could not be delivered again.");
+	}
+
+	private Map<String, Object> parse(ObjectReader jreader, String msg) {
+		if (!Strings.CS.contains(msg, Config._APPID) || !Strings.CS.contains(msg, Config._TYPE)) {
+			return null;
+		}
+		try {
+			return jreader.readValue(msg);
+		} catch (Exception e) {
+			logger.error("Skipping invalid message from queue: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Counts a failed attempt at processing each of the messages.
+	 * @return true if any of the messages has reached the maximum number of attempts
+	 */
+	private boolean countAttempt(List<String> msgs) {
+		int maxAttempts = Math.max(1, Para.getConfig().riverMaxDeliveryAttempts());
+		boolean exhausted = false;
+		// messages which are not delivered again, e.g. because they were dropped, are no longer tracked
+		attempts.keySet().retainAll(new HashSet<>(msgs));
+		for (String msg : msgs) {
+			if (attempts.merge(msg, 1, Integer::sum) >= maxAttempts) {
+				exhausted = true;
+			}
+		}
+		return exhausted;
+	}
+
+	private void clearAttempts(List<String> msgs) {
+		if (!attempts.isEmpty()) {
+			msgs.forEach(attempts::remove);
+		}
+	}
+
+	/**
+	 * Persists the changes from each message separately, after the whole batch failed too many times, and moves
+	 * the messages which still fail to the dead-letter store. Webhooks and indexing operations are skipped, as
+	 * they were processed already.
+	 * @return false if a message could not be moved to the dead-letter store, so the batch has to be rolled back
+	 */
+	private boolean persistEachMessage(ObjectReader jreader, List<String> msgs) {
+		logger.warn("Writing {} messages from queue one by one, after too many failed attempts.", msgs.size());
+		List<ParaObject> createList = new LinkedList<>();
+		List<ParaObject> updateList = new LinkedList<>();
+		List<ParaObject> deleteList = new LinkedList<>();
+		Map<String, Map<String, Map<String, Object>>> updates = new LinkedHashMap<>();
+		for (String msg : msgs) {
+			Map<String, Object> parsed = parse(jreader, msg);
+			if (parsed == null || "webhookpayload".equals(parsed.get(Config._TYPE)) ||
+					"indexpayload".equals(parsed.get(Config._TYPE))) {
+				continue;
+			}
+			try {
+				parseAndCategorizeMessage(parsed, createList, updates, deleteList);
+				readUpdatedObjects(updates, updateList);
+				persistChanges(createList, updateList, deleteList);
+			} catch (Exception e) {
+				createList.clear();
+				updateList.clear();
+				deleteList.clear();
+				updates.clear();
+				try {
+					RetryScheduler.getInstance().deadLetter(parsed.get(Config._APPID) instanceof String appid ?
+							appid : null, msg, e.getMessage());
+				} catch (Exception ex) {
+					logger.error("Failed to move message from queue to the dead-letter store:", ex);
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	private int parseAndCategorizeMessage(Map<String, Object> parsed, List<ParaObject> createList,
-			List<ParaObject> updateList, List<ParaObject> deleteList) {
+			Map<String, Map<String, Map<String, Object>>> updates, List<ParaObject> deleteList) {
 		String id = parsed.containsKey(Config._ID) ? (String) parsed.get(Config._ID) : null;
 		String type = (String) parsed.get(Config._TYPE);
 		String appid = (String) parsed.get(Config._APPID);
@@ -166,8 +282,9 @@ public abstract class River implements Runnable {
 						createList.add(obj);
 					}
 				} else {
-					updateList.add(ParaObjectUtils.setAnnotatedFields(Para.getDAO().
-							read(appid, id), parsed, Locked.class));
+					// multiple updates to the same object are merged in the order they arrived
+					updates.computeIfAbsent(appid, k -> new LinkedHashMap<>()).
+							computeIfAbsent(id, k -> new LinkedHashMap<>()).putAll(parsed);
 				}
 			}
 		}
@@ -186,47 +303,17 @@ public abstract class River implements Runnable {
 			return 0;
 		}
 		try {
-			boolean urlEncoded = (boolean) parsed.get("urlEncoded");
-			String targetUrl = StringUtils.trimToEmpty((String) parsed.get("targetUrl"));
-			String payload = (String) parsed.get("payload");
-			Integer repeatDelivery = Math.abs(NumberUtils.toInt(parsed.get("repeatedDeliveryAttempts") + "", 1));
-			HttpPost postToTarget = new HttpPost(targetUrl);
-			postToTarget.addHeader("User-Agent", "Para Webhook Dispacher " + Para.getVersion());
-			postToTarget.setHeader(HttpHeaders.CONTENT_TYPE, urlEncoded ?
-					"application/x-www-form-urlencoded" : "application/json");
-			postToTarget.setHeader("X-Webhook-Signature", (String) parsed.get("signature"));
-			postToTarget.setHeader("X-Para-Event", (String) parsed.get("event"));
-			if (urlEncoded) {
-				postToTarget.setEntity(new StringEntity("payload=".concat(Utils.urlEncode(payload)),
-						Charset.forName(Para.getConfig().defaultEncoding())));
-			} else {
-				postToTarget.setEntity(new StringEntity(payload, Charset.forName(Para.getConfig().defaultEncoding())));
-			}
-			if (repeatDelivery > 100) {
-				repeatDelivery = 100;
-			}
-			IntStream.range(0, Math.max(1, repeatDelivery)).parallel().forEach(r -> {
-				String status = "";
-				try {
-					status = HTTP.execute(postToTarget, (resp1) -> {
-						if (resp1 != null && Math.abs(resp1.getCode() - 200) > 10) {
-							updateFailureCount(appid, id);
-							logger.info("Webhook {} delivery failed! {} responded with code {} {} instead of 2xx.", id,
-									targetUrl, resp1.getCode(), resp1.getReasonPhrase());
-							return resp1.getReasonPhrase();
-						} else {
-							logger.debug("Webhook {} delivered to {} successfully.", id, targetUrl);
-						}
-						return "OK";
-					});
-				} catch (Exception e) {
-					updateFailureCount(appid, id);
-					logger.info("Webhook {} not delivered! {} isn't responding. {}", id, targetUrl, status);
+			int repeatDelivery = Math.min(100, Math.abs(NumberUtils.toInt(parsed.get("repeatedDeliveryAttempts") + "", 1)));
+			AtomicBoolean retryScheduled = new AtomicBoolean();
+			int started = WebhookDispatcher.getInstance().deliver(appid, id, parsed, Math.max(1, repeatDelivery), () -> {
+				if (retryScheduled.compareAndSet(false, true)) {
+					RetryScheduler.getInstance().retryWebhook(appid, parsed);
 				}
-			});
-			return 1;
+			}, () -> { });
+			return started > 0 ? 1 : 0;
 		} catch (Exception e) {
-			updateFailureCount(appid, id);
+			WebhookDispatcher.updateFailureCount(appid, id);
+			RetryScheduler.getInstance().retryWebhook(appid, parsed);
 			logger.error("Webhook payload was not delivered:", e);
 		}
 		return 0;
@@ -276,6 +363,25 @@ public abstract class River implements Runnable {
 		return 0;
 	}
 
+	/**
+	 * Reads all objects which are about to be updated with one {@code readAll()} call per app,
+	 * then applies the merged changes to each object.
+	 * @param updates a map of appid to object id to merged fields
+	 * @param updateList the list of objects to update
+	 */
+	private void readUpdatedObjects(Map<String, Map<String, Map<String, Object>>> updates, List<ParaObject> updateList) {
+		for (Map.Entry<String, Map<String, Map<String, Object>>> app : updates.entrySet()) {
+			Map<String, ParaObject> existing = Para.getDAO().readAll(app.getKey(), new ArrayList<>(app.getValue().keySet()), true);
+			for (Map.Entry<String, Map<String, Object>> update : app.getValue().entrySet()) {
+				ParaObject obj = ParaObjectUtils.setAnnotatedFields(existing.get(update.getKey()), update.getValue(), Locked.class);
+				if (obj != null) {
+					updateList.add(obj);
+				}
+			}
+		}
+		updates.clear();
+	}
+
 	private void persistChanges(List<ParaObject> createList, List<ParaObject> updateList, List<ParaObject> deleteList) {
 		if (!createList.isEmpty()) {
 			Para.getDAO().createAll(createList);
@@ -299,42 +405,8 @@ public abstract class River implements Runnable {
 		Para.getSearch().indexAll(appid, objs.values().stream().filter(v -> v != null).collect(Collectors.toList()));
 
 		if (objs.containsValue(null)) {
-			if (pendingIds == null) {
-				pendingIds = new ConcurrentHashMap<>();
-			}
-			objs.entrySet().stream().filter(entry -> (entry.getValue() == null)).forEachOrdered(entry -> {
-				pendingIds.putIfAbsent(entry.getKey(), 1);
-			});
-			logger.debug("Some objects are missing from local database while performing 'index_all_op': {}", pendingIds);
-			Para.asyncExecute(() -> {
-				try {
-					for (int i = 0; i < Para.getConfig().riverMaxIndexingRetries(); i++) {
-						Thread.sleep(1000L * (i + 1));
-						Map<String, ParaObject> pending = Para.getDAO().readAll(appid,
-								new ArrayList<>(pendingIds.keySet()), true);
-						int pendingCount = pendingIds.size();
-						pending.entrySet().stream().filter(entry -> (entry.getValue() != null)).forEachOrdered(entry -> {
-							pendingIds.remove(entry.getKey());
-						});
-						if (pendingCount != pendingIds.size()) {
-							Para.getSearch().indexAll(appid, pending.values().stream().collect(Collectors.toList()));
-						}
-						if (pendingIds.isEmpty()) {
-							break;
-						}
-					}
-				} catch (InterruptedException ex) {
-					logger.info("Retry indexing operation interrupted: {}", ex.getMessage());
-					Thread.currentThread().interrupt();
-				} finally {
-					if (!pendingIds.isEmpty()) {
-						logger.warn("Indexing operation 'index_all_op' failed for objects {} as they "
-								+ "were not found in the database for app '{}'. This may cause the index "
-								+ "to become out of sync or corrupted.", pendingIds, appid);
-						pendingIds.clear();
-					}
-				}
-			});
+			RetryScheduler.getInstance().retryIndexing(appid, objs.entrySet().stream().
+					filter(entry -> entry.getValue() == null).map(Map.Entry::getKey).collect(Collectors.toList()));
 		}
 	}
 
@@ -349,25 +421,4 @@ public abstract class River implements Runnable {
 		}).collect(Collectors.toList());
 	}
 
-	private void updateFailureCount(String appid, String id) {
-		// count failed delivieries and disable that webhook object after X failed attempts
-		String countId = "failed_webhook_count" + Para.getConfig().separator() + id;
-		Integer count = Para.getCache().get(appid, countId);
-		if (count == null) {
-			count = 0;
-		}
-		if (count >= (Para.getConfig().maxFailedWebhookAttempts() - 1)) {
-			Webhook hook = Para.getDAO().read(appid, id);
-			if (hook != null) {
-				hook.setActive(false);
-				hook.setTooManyFailures(true);
-				Para.getDAO().update(appid, hook);
-				Para.getCache().remove(appid, countId);
-				logger.info("Webhook {} was disabled - a maximum of {} failed deliveries was reached.",
-						id, Para.getConfig().maxFailedWebhookAttempts());
-			}
-		} else {
-			Para.getCache().put(appid, countId, ++count);
-		}
-	}
 }
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.core.queue;
+
+import com.erudika.para.core.Webhook;
+import com.erudika.para.core.metrics.Metrics;
+import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.Utils;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers webhook payloads asynchronously, using a pooled HTTP client which keeps connections alive
+ * and limits the number of connections per target host. The number of deliveries in flight is bounded -
+ * when the limit is reached, the calling thread waits until a delivery completes. Latency, successful and
+ * failed deliveries are recorded for each target host. Target URLs are set by users, so only the first
+ * {@value #MAX_TRACKED_HOSTS} hosts get their own metrics and the rest are recorded together, as "other".
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class WebhookDispatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(WebhookDispatcher.class);
+	private static final WebhookDispatcher INSTANCE = new WebhookDispatcher();
+	private static final int MAX_TRACKED_HOSTS = 50;
+
+	private final CloseableHttpAsyncClient client;
+	private final Semaphore inFlight;
+	private final Set<String> trackedHosts = ConcurrentHashMap.newKeySet();
+
+	private WebhookDispatcher() {
+		int timeout = Para.getConfig().webhooksTimeoutSec();
+		int maxInFlight = Math.max(1, Para.getConfig().webhooksMaxInFlight());
+		this.inFlight = new Semaphore(maxInFlight);
+		this.client = HttpAsyncClients.custom().
+				setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create().
+						setMaxConnPerRoute(Math.max(1, Para.getConfig().webhooksMaxConnectionsPerHost())).
+						setMaxConnTotal(maxInFlight).
+						setDefaultConnectionConfig(ConnectionConfig.custom().
+								setConnectTimeout(timeout, TimeUnit.SECONDS).
+								setSocketTimeout(timeout, TimeUnit.SECONDS).
+								build()).
+						build()).
+				setDefaultRequestConfig(RequestConfig.custom().
+						setConnectionRequestTimeout(timeout, TimeUnit.SECONDS).
+						setResponseTimeout(timeout, TimeUnit.SECONDS).
+						build()).
+				evictIdleConnections(TimeValue.ofMinutes(1)).
+				build();
+		this.client.start();
+		Para.addDestroyListener(() -> client.close(CloseMode.GRACEFUL));
+	}
+
+	/**
+	 * Returns the singleton instance.
+	 * @return an instance of this class
+	 */
+	static WebhookDispatcher getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Sends a webhook payload to its target one or more times, without waiting for the responses.
+	 * Each failed delivery is counted and the webhook is disabled after too many failures.
+	 * @param appid the app identifier
+	 * @param webhookId the webhook id
+	 * @param parsed the webhook payload message, with target URL, signature and payload
+	 * @param deliveries number of times the payload is sent
+	 * @param onFailure called for each failed delivery
+	 * @param onSuccess called for each successful delivery
+	 * @return the number of deliveries started
+	 */
+	int deliver(String appid, String webhookId, Map<String, Object> parsed, int deliveries, Runnable onFailure,
+			Runnable onSuccess) {
+		boolean urlEncoded = Boolean.TRUE.equals(parsed.get("urlEncoded"));
+		String targetUrl = StringUtils.trimToEmpty((String) parsed.get("targetUrl"));
+		String payload = (String) parsed.get("payload");
+		Charset charset = Charset.forName(Para.getConfig().defaultEncoding());
+		String body = urlEncoded ? "payload=".concat(Utils.urlEncode(payload)) : payload;
+		ContentType contentType = (urlEncoded ? ContentType.APPLICATION_FORM_URLENCODED :
+				ContentType.APPLICATION_JSON).withCharset(charset);
+		return deliver(appid, webhookId, targetUrl, () -> SimpleRequestBuilder.post(targetUrl).
+				setHeader(HttpHeaders.USER_AGENT, "Para Webhook Dispacher " + Para.getVersion()).
+				setHeader("X-Webhook-Signature", (String) parsed.get("signature")).
+				setHeader("X-Para-Event", (String) parsed.get("event")).
+				setBody(body, contentType).
+				build(), deliveries, () -> {
+					updateFailureCount(appid, webhookId);
+					onFailure.run();
+				}, onSuccess);
+	}
+
+	private int deliver(String appid, String webhookId, String targetUrl, Supplier<SimpleHttpRequest> request,
+			int deliveries, Runnable onFailure, Runnable onSuccess) {
+		String host = getMetricsHost(targetUrl);
+		int started = 0;
+		for (int i = 0; i < deliveries; i++) {
+			try {
+				inFlight.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			long start = System.nanoTime();
+			try {
+				client.execute(request.get(), new FutureCallback<SimpleHttpResponse>() {
+					public void completed(SimpleHttpResponse resp) {
+						done(appid, host, start);
+						if (Math.abs(resp.getCode() - 200) > 10) {
+							recordFailure(appid, host, onFailure);
+							logger.info("Webhook {} delivery failed! {} responded with code {} {} instead of 2xx.",
+									webhookId, targetUrl, resp.getCode(), resp.getReasonPhrase());
+						} else {
+							Metrics.counter(appid, Webhook.class, "delivery", host, "success").inc();
+							Para.asyncExecute(onSuccess);
+							logger.debug("Webhook {} delivered to {} successfully.", webhookId, targetUrl);
+						}
+					}
+
+					public void failed(Exception ex) {
+						done(appid, host, start);
+						recordFailure(appid, host, onFailure);
+						logger.info("Webhook {} not delivered! {} isn't responding. {}", webhookId, targetUrl, ex.getMessage());
+					}
+
+					public void cancelled() {
+						done(appid, host, start);
+					}
+				});
+				started++;
+			} catch (Exception e) {
+				inFlight.release();
+				recordFailure(appid, host, onFailure);
+				logger.error("Webhook {} was not delivered to {}: {}", webhookId, targetUrl, e.getMessage());
+			}
+		}
+		return started;
+	}
+
+	private void done(String appid, String host, long start) {
+		inFlight.release();
+		Metrics.histogram(appid, Webhook.class, "delivery", host, "latency").
+				update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	private void recordFailure(String appid, String host, Runnable onFailure) {
+		Metrics.counter(appid, Webhook.class, "delivery", host, "failure").inc();
+		// don't block the I/O threads of the client
+		Para.asyncExecute(onFailure);
+	}
+
+	/**
+	 * Counts failed deliveries and disables the webhook after too many failed attempts.
+	 * @param appid the app identifier
+	 * @param id the webhook id
+	 */
+	static void updateFailureCount(String appid, String id) {
+		String countId = "failed_webhook_count" + Para.getConfig().separator() + id;
+		Integer count = Para.getCache().get(appid, countId);
+		if (count == null) {
+			count = 0;
+		}
+		if (count >= (Para.getConfig().maxFailedWebhookAttempts() - 1)) {
+			Webhook hook = Para.getDAO().read(appid, id);
+			if (hook != null) {
+				hook.setActive(false);
+				hook.setTooManyFailures(true);
+				Para.getDAO().update(appid, hook);
+				Para.getCache().remove(appid, countId);
+				logger.info("Webhook {} was disabled - a maximum of {} failed deliveries was reached.",
+						id, Para.getConfig().maxFailedWebhookAttempts());
+			}
+		} else {
+			Para.getCache().put(appid, countId, ++count);
+		}
+	}
+
+	/**
+	 * Returns the host name used in metric names, which is "other" when too many hosts are tracked already,
+	 * so that the number of metrics doesn't grow with the number of target URLs.
+	 */
+	private String getMetricsHost(String targetUrl) {
+		String host = getHost(targetUrl);
+		if (trackedHosts.contains(host)) {
+			return host;
+		}
+		synchronized (trackedHosts) {
+			return trackedHosts.size() < MAX_TRACKED_HOSTS && trackedHosts.add(host) ? host : "other";
+		}
+	}
+
+	private static String getHost(String targetUrl) {
+		try {
+			// dots would be interpreted as separators in metric names
+			return StringUtils.defaultIfBlank(URI.create(targetUrl).getHost(), "unknown").replace('.', '_');
+		} catch (IllegalArgumentException e) {
+			return "unknown";
+		}
+	}
+}
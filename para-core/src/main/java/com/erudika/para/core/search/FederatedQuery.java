@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.core.search;
+
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.utils.Pager;
+import com.erudika.para.core.utils.Para;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes a query on multiple apps in parallel and merges the results into a single page.
+ * Each app is queried for the first {@code page * limit} results (but no more than {@code max_pages} pages of
+ * {@code max_items_per_page} results), on its own virtual thread, then the sorted lists are merged with a k-way
+ * merge on the sort field of the pager. Apps for which the query fails are reported to the caller.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class FederatedQuery {
+
+	private static final Logger logger = LoggerFactory.getLogger(FederatedQuery.class);
+
+	private FederatedQuery() { }
+
+	static <P extends ParaObject> List<P> execute(Search search, List<String> appids, String type, String query,
+			Collection<String> failedAppids, Pager... pager) {
+		Pager global = (pager != null && pager.length > 0 && pager[0] != null) ? pager[0] : new Pager();
+		List<String> apps = appids == null ? Collections.emptyList() :
+				appids.stream().filter(StringUtils::isNotBlank).distinct().toList();
+		if (apps.isEmpty()) {
+			return Collections.emptyList();
+		}
+		long page = Math.max(1, global.getPage());
+		// the window grows with the page number, so it's capped to the deepest page which can be requested
+		long maxWindow = (long) Math.max(1, Para.getConfig().maxPages()) * Math.max(1, Para.getConfig().maxItemsPerPage());
+		int window = (int) Math.min(Integer.MAX_VALUE, Math.min(maxWindow, page * global.getLimit()));
+		List<Pager> pagers = new ArrayList<>(apps.size());
+		List<Future<List<P>>> futures = new ArrayList<>(apps.size());
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (String appid : apps) {
+				Pager p = new Pager(1, global.getSortby(), global.isDesc(), window);
+				p.setSelect(global.getSelect());
+				pagers.add(p);
+				futures.add(executor.submit(() -> search.<P>findQuery(appid, type, query, p)));
+			}
+		}
+		List<List<P>> results = new ArrayList<>(apps.size());
+		long total = 0;
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				results.add(futures.get(i).get());
+				total += pagers.get(i).getCount();
+			} catch (ExecutionException e) {
+				logger.warn("Federated search failed for app '{}': {}", apps.get(i), e.getCause().getMessage());
+				if (failedAppids != null) {
+					failedAppids.add(apps.get(i));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		List<P> merged = merge(results, global.getSortby(), global.isDesc(), window);
+		global.setCount(total);
+		global.setLastKey(null);
+		int from = (int) Math.min(merged.size(), (page - 1) * global.getLimit());
+		return new ArrayList<>(merged.subList(from, merged.size()));
+	}
+
+	/**
+	 * Merges a number of sorted lists into one, using a priority queue holding the head of each list.
+	 * Items without a value for the sort field are ordered by their rank in the original list.
+	 * @param <P> type of object
+	 * @param lists lists of objects, each sorted by the sort field
+	 * @param sortby the sort field
+	 * @param desc sort order
+	 * @param max max number of objects to return
+	 * @return a merged and sorted list
+	 */
+	static <P extends ParaObject> List<P> merge(List<List<P>> lists, String sortby, boolean desc, int max) {
+		List<Object[]> values = new ArrayList<>(lists.size());
+		for (List<P> list : lists) {
+			Object[] vals = new Object[list.size()];
+			for (int i = 0; i < vals.length; i++) {
+				vals[i] = getSortValue(list.get(i), sortby);
+			}
+			values.add(vals);
+		}
+		Comparator<int[]> byValue = (a, b) -> compareValues(values.get(a[0])[a[1]], values.get(b[0])[b[1]], desc);
+		PriorityQueue<int[]> heads = new PriorityQueue<>(byValue.thenComparingInt(h -> h[1]).thenComparingInt(h -> h[0]));
+		for (int i = 0; i < lists.size(); i++) {
+			if (!lists.get(i).isEmpty()) {
+				heads.add(new int[] {i, 0});
+			}
+		}
+		List<P> merged = new ArrayList<>(Math.min(max, lists.stream().mapToInt(List::size).sum()));
+		while (!heads.isEmpty() && merged.size() < max) {
+			int[] head = heads.poll();
+			List<P> list = lists.get(head[0]);
+			merged.add(list.get(head[1]));
+			if (head[1] + 1 < list.size()) {
+				heads.add(new int[] {head[0], head[1] + 1});
+			}
+		}
+		return merged;
+	}
+
+	private static Object getSortValue(ParaObject obj, String sortby) {
+		if (obj == null || StringUtils.isBlank(sortby) || sortby.startsWith("_")) {
+			return null;
+		}
+		try {
+			return PropertyUtils.getProperty(obj, sortby);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static int compareValues(Object a, Object b, boolean desc) {
+		if (a == null || b == null) {
+			return (a == null) == (b == null) ? 0 : (a == null ? 1 : -1); // nulls last
+		}
+		int c;
+		if (a instanceof Number && b instanceof Number) {
+			c = Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+		} else if (a instanceof Comparable && a.getClass().equals(b.getClass())) {
+			c = ((Comparable<Object>) a).compareTo(b);
+		} else {
+			c = a.toString().compareTo(b.toString());
+		}
+		return desc ? -c : c;
+	}
+}
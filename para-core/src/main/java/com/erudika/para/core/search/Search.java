@@ -21,6 +21,8 @@ import com.erudika.para.core.App;
 import com.erudika.para.core.ParaObject;
 import com.erudika.para.core.persistence.DAO;
 import com.erudika.para.core.utils.Pager;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -238,6 +240,39 @@ public interface Search {
 	 */
 	<P extends ParaObject> List<P> findNestedQuery(String appid, String type, String field, String query, Pager... pager);
 
+	/**
+	 * Searches for objects in multiple apps at once (federated search). The query is executed on each app
+	 * in parallel and the results are merged by the sort field of the pager, which is applied globally,
+	 * i.e. page 2 contains the second page of the combined results. The total count is the sum of the hits
+	 * in each app. Callers must check that they are allowed to access each app before calling this.
+	 * @param <P> type of the object
+	 * @param appids a list of app identifiers to search in
+	 * @param type the type of object to search for. See {@link com.erudika.para.core.ParaObject#getType()}
+	 * @param query the query string
+	 * @param pager a {@link com.erudika.para.core.utils.Pager}
+	 * @return a list of objects found
+	 */
+	default <P extends ParaObject> List<P> findQueryFederated(List<String> appids, String type, String query, Pager... pager) {
+		return findQueryFederated(appids, type, query, new ArrayList<>(), pager);
+	}
+
+	/**
+	 * Searches for objects in multiple apps at once (federated search), like
+	 * {@link #findQueryFederated(java.util.List, java.lang.String, java.lang.String, com.erudika.para.core.utils.Pager...)},
+	 * and collects the apps for which the query failed, whose results are missing.
+	 * @param <P> type of the object
+	 * @param appids a list of app identifiers to search in
+	 * @param type the type of object to search for. See {@link com.erudika.para.core.ParaObject#getType()}
+	 * @param query the query string
+	 * @param failedAppids a collection to which the identifiers of the apps which failed are added
+	 * @param pager a {@link com.erudika.para.core.utils.Pager}
+	 * @return a list of objects found
+	 */
+	default <P extends ParaObject> List<P> findQueryFederated(List<String> appids, String type, String query,
+			Collection<String> failedAppids, Pager... pager) {
+		return FederatedQuery.execute(this, appids, type, query, failedAppids, pager);
+	}
+
 	/**
 	 * Searches for objects that have similar property values to a given text. A "find like this" query.
 	 * @param <P> type of the object
@@ -452,6 +487,29 @@ public interface Search {
 	 */
 	default void deleteIndex(App app) { }
 
+	/**
+	 * Returns true if this implementation supports keyset ("search after") pagination.
+	 * Implementations which return true must continue right after the item identified by
+	 * {@link Pager#getLastSortValue()} and {@link Pager#getLastKey()} (the id, used as a tie-breaker)
+	 * when these are set, instead of skipping over {@code (page - 1) * limit} results.
+	 * When false, cursors fall back to the page number encoded in them.
+	 * @return false by default
+	 */
+	default boolean isKeysetPaginationSupported() {
+		return false;
+	}
+
+	/**
+	 * Returns true if this implementation takes {@link Pager#getCountMode()} into account. Implementations which
+	 * return true should skip counting the total number of results when the count mode is
+	 * {@link Pager.CountMode#NONE} and may stop counting at a threshold, setting a lower bound as the count, when
+	 * it's {@link Pager.CountMode#APPROX}. When false, all results are counted exactly.
+	 * @return false by default
+	 */
+	default boolean isCountModeSupported() {
+		return false;
+	}
+
 	/**
 	 * Search class name.
 	 *
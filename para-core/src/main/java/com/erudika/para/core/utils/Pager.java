@@ -17,9 +17,14 @@
  */
 package com.erudika.para.core.utils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 
 /**
  * This class stores pagination data. It limits the results for queries in the {@link com.erudika.para.core.persistence.DAO}
@@ -35,7 +40,10 @@ public class Pager {
 	private int limit;
 	private String name;
 	private String lastKey;
+	private String lastSortValue;
+	private String cursor;
 	private List<String> select;
+	private CountMode countMode;
 
 	/**
 	 * No-args constructor.
@@ -92,6 +100,77 @@ public class Pager {
 		this.lastKey = lastKey;
 	}
 
+	/**
+	 * Returns the value of the sort field for the last item on the last page. Used for keyset pagination.
+	 * @return the last sort value to continue from
+	 */
+	public String getLastSortValue() {
+		return lastSortValue;
+	}
+
+	/**
+	 * Sets the value of the sort field for the last item on the last page. Used for keyset pagination.
+	 * @param lastSortValue last sort value
+	 */
+	public void setLastSortValue(String lastSortValue) {
+		this.lastSortValue = lastSortValue;
+	}
+
+	/**
+	 * Returns the opaque cursor pointing to the next page of results, as returned by the API.
+	 * @return the cursor or null if there are no more results
+	 */
+	public String getCursor() {
+		return cursor;
+	}
+
+	/**
+	 * Sets the opaque cursor pointing to the next page of results.
+	 * @param cursor a cursor returned by the API
+	 */
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+
+	/**
+	 * Decodes a cursor and positions this pager right after the item it points to.
+	 * Sets the page number, the last sort value and the last key (id) encoded in the cursor.
+	 * @param cursor a cursor created with {@link #encodeCursor(long, java.lang.String, java.lang.String)}
+	 * @return true if the cursor is valid and was applied
+	 */
+	public boolean applyCursor(String cursor) {
+		if (StringUtils.isBlank(cursor)) {
+			return false;
+		}
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+			if (parts.length == 3 && NumberUtils.isDigits(parts[0]) && !StringUtils.isBlank(parts[2])) {
+				this.page = NumberUtils.toLong(parts[0], 1);
+				this.lastSortValue = StringUtils.isEmpty(parts[1]) ? null : Utils.urlDecode(parts[1]);
+				this.lastKey = Utils.urlDecode(parts[2]);
+				this.cursor = cursor;
+				return true;
+			}
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		return false;
+	}
+
+	/**
+	 * Creates an opaque cursor which points to the item after the last item on the current page.
+	 * The cursor contains the sort value and the id of the last item, plus the number of the next page,
+	 * which is used as a fallback when the search backend doesn't support keyset pagination.
+	 * @param nextPage the number of the next page
+	 * @param sortValue the value of the sort field for the last item on the current page
+	 * @param id the id of the last item on the current page
+	 * @return a URL-safe cursor string
+	 */
+	public static String encodeCursor(long nextPage, String sortValue, String id) {
+		String raw = Math.abs(nextPage) + ":" + (sortValue == null ? "" : Utils.urlEncode(sortValue)) + ":" + Utils.urlEncode(id);
+		return Utils.base64encURL(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
 	/**
 	 * Name of this pager object (optional). Used to distinguish between multiple pagers.
 	 * @return the name
@@ -191,7 +270,10 @@ public class Pager {
 	}
 
 	/**
-	 * Selects the field names to be returned.
+	 * Selects the field names to be returned. {@link com.erudika.para.core.persistence.DAO} and
+	 * {@link com.erudika.para.core.search.Search} implementations may read only these fields, plus the
+	 * core fields needed for permission checks and paging ({@code id, type, appid, creatorid, parentid}
+	 * and the sort field), and skip the rest.
 	 * @return a set of field names
 	 */
 	public List<String> getSelect() {
@@ -206,9 +288,73 @@ public class Pager {
 		this.select = select;
 	}
 
+	/**
+	 * How the total number of results should be counted. {@link com.erudika.para.core.search.Search} implementations
+	 * may skip counting with {@link CountMode#NONE}, in which case {@link #getCount()} is not set, or stop counting
+	 * early with {@link CountMode#APPROX}, in which case the count is a lower bound.
+	 * @return the count mode, {@link CountMode#EXACT} by default
+	 */
+	public CountMode getCountMode() {
+		return Optional.ofNullable(countMode).orElse(CountMode.EXACT);
+	}
+
+	/**
+	 * Sets how the total number of results should be counted.
+	 * @param countMode the count mode
+	 */
+	public void setCountMode(CountMode countMode) {
+		this.countMode = countMode;
+	}
+
+	/**
+	 * Checks if the total number of results should be counted.
+	 * @return false if the count mode is {@link CountMode#NONE}
+	 */
+	public boolean isCountRequired() {
+		return getCountMode() != CountMode.NONE;
+	}
+
 	@Override
 	public String toString() {
 		return "Pager{" + "page=" + page + ", count=" + count + ", sortby=" + sortby + ", desc=" + desc +
-				", limit=" + limit + ", name=" + name + ", lastKey=" + lastKey + '}';
+				", limit=" + limit + ", name=" + name + ", lastKey=" + lastKey + ", lastSortValue=" + lastSortValue + '}';
+	}
+
+	/**
+	 * The ways of counting the total number of results.
+	 */
+	public enum CountMode {
+
+		/**
+		 * Don't count the results.
+		 */
+		NONE,
+		/**
+		 * Count the results approximately, e.g. up to a certain threshold.
+		 */
+		APPROX,
+		/**
+		 * Count all results exactly.
+		 */
+		EXACT;
+
+		/**
+		 * Constructs the enum from a string value.
+		 * @param value "none", "approx" or "exact", case-insensitive
+		 * @return an enum instance or null if the value is not recognized
+		 */
+		public static CountMode fromString(String value) {
+			for (CountMode mode : values()) {
+				if (mode.name().equalsIgnoreCase(StringUtils.trimToEmpty(value))) {
+					return mode;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return name().toLowerCase(Locale.ROOT);
+		}
 	}
 }
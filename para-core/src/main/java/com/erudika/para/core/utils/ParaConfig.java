@@ -181,7 +181,7 @@ public class ParaConfig extends Config {
 			value = "LocalQueue",
 			category = "Core",
 			tags = {"requires restart"},
-			description = "Selects the `Queue` implementation at runtime. Can be one of `LocalQueue`, `AWSQueue`.")
+			description = "Selects the `Queue` implementation at runtime. Can be one of `LocalQueue`, `FileQueue`, `AWSQueue`.")
 	public String queuePlugin() {
 		return getConfigParam("q", "LocalQueue");
 	}
@@ -229,6 +229,51 @@ public class ParaConfig extends Config {
 		return getConfigBoolean("search_enabled", true);
 	}
 
+	/**
+	 * Enable/disable serving id lookups from the DAO (cache, then database) instead of the search index.
+	 * @return true if the DAO is authoritative for id lookups
+	 */
+	@Documented(position = 111,
+			identifier = "search_ids_from_dao",
+			value = "false",
+			type = Boolean.class,
+			category = "Core",
+			description = "Enable/disable serving `findById()` and `findByIds()` from the DAO (cache, then database) "
+					+ "instead of the search index. Only ids missing from the DAO are looked up in the index.")
+	public boolean isDAOAuthoritativeForIds() {
+		return getConfigBoolean("search_ids_from_dao", false);
+	}
+
+	/**
+	 * Enable/disable autocompleting tags from an in-memory index instead of querying the search backend.
+	 * @return true if the in-memory tag index is enabled
+	 */
+	@Documented(position = 112,
+			identifier = "tags_index_enabled",
+			value = "false",
+			type = Boolean.class,
+			category = "Core",
+			description = "Enable/disable serving `findTags()` from an in-memory prefix tree of tag names, ordered by "
+					+ "tag count, instead of querying the search backend.")
+	public boolean tagsIndexEnabled() {
+		return getConfigBoolean("tags_index_enabled", false);
+	}
+
+	/**
+	 * The interval, in seconds, at which the in-memory tag index of each app is reloaded from the search index.
+	 * @return the refresh interval in seconds
+	 */
+	@Documented(position = 113,
+			identifier = "tags_index_refresh_sec",
+			value = "3600",
+			type = Integer.class,
+			category = "Core",
+			description = "The interval, in seconds, at which the in-memory tag index of each app is reloaded from "
+					+ "the search index. Picks up changes made on other nodes. Set to `0` to disable.")
+	public int tagsIndexRefreshIntervalSec() {
+		return getConfigInt("tags_index_refresh_sec", 3600);
+	}
+
 	/**
 	 * Enable/disable object caching. Enabled in `production` mode by default.
 	 * @return true if cache is enabled
@@ -257,6 +302,97 @@ public class ParaConfig extends Config {
 		return Boolean.parseBoolean(getConfigParam("webhooks_enabled", "false"));
 	}
 
+	/**
+	 * The maximum number of open connections to each webhook target host. Connections are kept alive and reused.
+	 * @return the max connections per host
+	 */
+	@Documented(position = 131,
+			identifier = "webhooks.max_connections_per_host",
+			value = "10",
+			type = Integer.class,
+			category = "Core",
+			description = "The maximum number of open connections to each webhook target host. "
+					+ "Connections are kept alive and reused.")
+	public int webhooksMaxConnectionsPerHost() {
+		return getConfigInt("webhooks.max_connections_per_host", 10);
+	}
+
+	/**
+	 * The maximum number of webhook deliveries in progress at any time. When this limit is reached,
+	 * the river waits for a delivery to complete before sending the next one.
+	 * @return the max deliveries in flight
+	 */
+	@Documented(position = 132,
+			identifier = "webhooks.max_in_flight",
+			value = "200",
+			type = Integer.class,
+			category = "Core",
+			description = "The maximum number of webhook deliveries in progress at any time. When this limit is reached, "
+					+ "the river waits for a delivery to complete before sending the next one.")
+	public int webhooksMaxInFlight() {
+		return getConfigInt("webhooks.max_in_flight", 200);
+	}
+
+	/**
+	 * The connect and response timeout for webhook deliveries, in seconds.
+	 * @return the timeout in seconds
+	 */
+	@Documented(position = 133,
+			identifier = "webhooks.timeout_sec",
+			value = "10",
+			type = Integer.class,
+			category = "Core",
+			description = "The connect and response timeout for webhook deliveries, in seconds.")
+	public int webhooksTimeoutSec() {
+		return getConfigInt("webhooks.timeout_sec", 10);
+	}
+
+	/**
+	 * The maximum number of times a failed webhook delivery is retried, before it is moved to the dead-letter store.
+	 * @return the max delivery retries
+	 */
+	@Documented(position = 134,
+			identifier = "webhooks.max_delivery_retries",
+			value = "5",
+			type = Integer.class,
+			category = "Core",
+			description = "The maximum number of times a failed webhook delivery is retried, before it is moved to "
+					+ "the dead-letter store.")
+	public int webhooksMaxDeliveryRetries() {
+		return getConfigInt("webhooks.max_delivery_retries", 5);
+	}
+
+	/**
+	 * The interval, in seconds, at which the in-memory webhook registry of each app is reloaded from the search index.
+	 * @return the refresh interval in seconds
+	 */
+	@Documented(position = 135,
+			identifier = "webhooks.registry_refresh_sec",
+			value = "60",
+			type = Integer.class,
+			category = "Core",
+			description = "The interval, in seconds, at which the in-memory registry of webhook subscriptions for each "
+					+ "app is reloaded from the search index. Picks up webhooks modified on other nodes. "
+					+ "Set to `0` to disable.")
+	public int webhooksRegistryRefreshIntervalSec() {
+		return getConfigInt("webhooks.registry_refresh_sec", 60);
+	}
+
+	/**
+	 * The maximum number of events aggregated in a single webhook payload, for webhooks with an aggregation window.
+	 * @return the max events per aggregated payload
+	 */
+	@Documented(position = 136,
+			identifier = "webhooks.max_batch_events",
+			value = "1000",
+			type = Integer.class,
+			category = "Core",
+			description = "The maximum number of events aggregated in a single webhook payload. Applies to webhooks "
+					+ "with `batchWindowMillis` or `batchMaxEvents` set and limits the memory used by pending events.")
+	public int webhooksMaxBatchEvents() {
+		return getConfigInt("webhooks.max_batch_events", 1000);
+	}
+
 	/**
 	 * Enable/disable the Para RESTful API.
 	 * @return true if API is enabled
@@ -271,6 +407,111 @@ public class ParaConfig extends Config {
 		return Boolean.parseBoolean(getConfigParam("api_enabled", "true"));
 	}
 
+	/**
+	 * Enable/disable the change feed, which records all writes and deletes for each app.
+	 * @return true if the change feed is enabled
+	 */
+	@Documented(position = 142,
+			identifier = "changes_feed_enabled",
+			value = "false",
+			type = Boolean.class,
+			category = "Core",
+			description = "Enable/disable the change feed. All writes and deletes are recorded in order, with "
+					+ "a sequence number, and streamed to clients as Server-Sent Events from `/v1/_changes`. "
+					+ "The feed is kept on each node and only has the changes made through it, so in a cluster, "
+					+ "clients must always be routed to the same node (sticky routing). Cursors from other nodes, "
+					+ "which have a different `para.worker_id`, are rejected.")
+	public boolean changesFeedEnabled() {
+		return getConfigBoolean("changes_feed_enabled", false);
+	}
+
+	/**
+	 * The maximum number of changes kept in memory for each app.
+	 * @return the size of the change buffer
+	 */
+	@Documented(position = 143,
+			identifier = "changes_feed.buffer_size",
+			value = "10000",
+			type = Integer.class,
+			category = "Core",
+			description = "The maximum number of changes kept for each app. Clients which fall further behind than "
+					+ "this have to resync.")
+	public int changesFeedBufferSize() {
+		return getConfigInt("changes_feed.buffer_size", 10000);
+	}
+
+	/**
+	 * Enable/disable persisting the change feed to disk, so that it survives restarts.
+	 * @return true if changes are written to disk
+	 */
+	@Documented(position = 144,
+			identifier = "changes_feed.persist",
+			value = "false",
+			type = Boolean.class,
+			category = "Core",
+			description = "Enable/disable writing the change feed of each app to disk, in `para.changes_feed.dir`, "
+					+ "so that sequence numbers and recent changes survive restarts.")
+	public boolean changesFeedPersist() {
+		return getConfigBoolean("changes_feed.persist", false);
+	}
+
+	/**
+	 * The folder where the change feed of each app is stored.
+	 * @return a directory path
+	 */
+	@Documented(position = 145,
+			identifier = "changes_feed.dir",
+			value = "changes",
+			category = "Core",
+			description = "The folder where the change feed of each app is stored, if `para.changes_feed.persist` is enabled.")
+	public String changesFeedDir() {
+		return getConfigParam("changes_feed.dir", "changes");
+	}
+
+	/**
+	 * The maximum duration of a change feed connection, in seconds.
+	 * @return the stream timeout in seconds
+	 */
+	@Documented(position = 146,
+			identifier = "changes_feed.stream_timeout_sec",
+			value = "300",
+			type = Integer.class,
+			category = "Core",
+			description = "The maximum duration of a `/v1/_changes` connection, in seconds. Clients reconnect "
+					+ "and resume from the last received sequence number.")
+	public int changesFeedStreamTimeoutSec() {
+		return getConfigInt("changes_feed.stream_timeout_sec", 300);
+	}
+
+	/**
+	 * The maximum number of open change feed connections, for all apps.
+	 * @return max number of streams
+	 */
+	@Documented(position = 147,
+			identifier = "changes_feed.max_streams",
+			value = "1000",
+			type = Integer.class,
+			category = "Core",
+			description = "The maximum number of open `/v1/_changes` connections, for all apps. New connections "
+					+ "are refused with status 429 when the limit is reached.")
+	public int changesFeedMaxStreams() {
+		return getConfigInt("changes_feed.max_streams", 1000);
+	}
+
+	/**
+	 * The maximum number of open change feed connections for each app.
+	 * @return max number of streams per app
+	 */
+	@Documented(position = 148,
+			identifier = "changes_feed.max_streams_per_app",
+			value = "10",
+			type = Integer.class,
+			category = "Core",
+			description = "The maximum number of open `/v1/_changes` connections for each app.")
+	public int changesFeedMaxStreamsPerApp() {
+		return getConfigInt("changes_feed.max_streams_per_app", 10);
+	}
+
 	/**
 	 * The name of the Para cluster. Used by some of the plugins to isolate deployments.
 	 * @return the cluster name
@@ -444,6 +685,51 @@ public class ParaConfig extends Config {
 		return getConfigInt("max_entity_size_bytes", 1024 * 1024);
 	}
 
+	/**
+	 * The number of objects written to the database at once, while reading a batch request.
+	 * @return the batch chunk size
+	 */
+	@Documented(position = 251,
+			identifier = "batch_chunk_size",
+			value = "100",
+			type = Integer.class,
+			category = "Core",
+			description = "The number of objects written to the database at once, while a batch create or update "
+					+ "request is being read. Only one chunk of objects is kept in memory while parsing the request.")
+	public int batchChunkSize() {
+		return getConfigInt("batch_chunk_size", 100);
+	}
+
+	/**
+	 * The maximum number of operations in a single multi-request.
+	 * @return the max number of operations
+	 */
+	@Documented(position = 252,
+			identifier = "multi_max_operations",
+			value = "50",
+			type = Integer.class,
+			category = "Core",
+			description = "The maximum number of operations in a single request to `/v1/_multi`.")
+	public int multiMaxOperations() {
+		return getConfigInt("multi_max_operations", 50);
+	}
+
+	/**
+	 * The maximum number of linked objects to embed for each {@code links:type} value of the {@code expand} parameter.
+	 * @return the max number of linked objects
+	 */
+	@Documented(position = 253,
+			identifier = "expand_max_links",
+			value = "500",
+			type = Integer.class,
+			category = "Core",
+			description = "The maximum number of linked objects embedded in a response for each `links:type` "
+					+ "value of the `expand` parameter, for all items in the page. When there are more links, the "
+					+ "expansion is listed in `expandedTruncated`.")
+	public int expandMaxLinks() {
+		return getConfigInt("expand_max_links", 500);
+	}
+
 	/**
 	 * The health check interval, in seconds.
 	 * @return the health check interval
@@ -1198,6 +1484,23 @@ public class ParaConfig extends Config {
 		return getConfigInt("river.max_indexing_retries", 5);
 	}
 
+	/**
+	 * The maximum number of times a message from the queue is processed again after its changes failed to be
+	 * written to the database, before it's moved to the dead-letter store.
+	 * @return the max delivery attempts
+	 */
+	@Documented(position = 751,
+			identifier = "river.max_delivery_attempts",
+			value = "5",
+			type = Integer.class,
+			category = "River & Queue",
+			description = "The maximum number of attempts at writing the changes from a queue message to the database. "
+					+ "After that, the messages of the failing batch are written one by one and those which still fail "
+					+ "are moved to the dead-letter store, so that one bad message doesn't block the queue.")
+	public int riverMaxDeliveryAttempts() {
+		return getConfigInt("river.max_delivery_attempts", 5);
+	}
+
 	/**
 	 * The time interval between the sending of each batch of index synchronization messages to
 	 * the queue, in seconds.
@@ -1214,6 +1517,141 @@ public class ParaConfig extends Config {
 		return getConfigInt("indexing_sync_interval_sec", 10);
 	}
 
+	/**
+	 * The folder where {@code FileQueue} stores its journal, one subfolder per queue.
+	 * @return the queue folder
+	 */
+	@Documented(position = 761,
+			identifier = "queue.file_dir",
+			value = "queue",
+			category = "River & Queue",
+			description = "The folder where `FileQueue` stores its journal, one subfolder per queue.")
+	public String fileQueueDir() {
+		return getConfigParam("queue.file_dir", "queue");
+	}
+
+	/**
+	 * The maximum size of each journal segment file of {@code FileQueue}, in megabytes.
+	 * @return the segment size in MB
+	 */
+	@Documented(position = 762,
+			identifier = "queue.file_segment_size_mb",
+			value = "64",
+			type = Integer.class,
+			category = "River & Queue",
+			description = "The maximum size of each journal segment file of `FileQueue`, in megabytes.")
+	public int fileQueueSegmentSizeMb() {
+		return getConfigInt("queue.file_segment_size_mb", 64);
+	}
+
+	/**
+	 * The number of fully consumed journal segments which {@code FileQueue} keeps on disk.
+	 * @return the number of retained segments
+	 */
+	@Documented(position = 763,
+			identifier = "queue.file_retained_segments",
+			value = "0",
+			type = Integer.class,
+			category = "River & Queue",
+			description = "The number of fully consumed journal segments which `FileQueue` keeps on disk. "
+					+ "Older segments are deleted.")
+	public int fileQueueRetainedSegments() {
+		return getConfigInt("queue.file_retained_segments", 0);
+	}
+
+	/**
+	 * The number of river workers which process messages from the local queue in parallel.
+	 * Messages are partitioned by app, so the messages of each app are processed in order.
+	 * @return the number of river workers
+	 */
+	@Documented(position = 764,
+			identifier = "queue.river_workers",
+			value = "1",
+			type = Integer.class,
+			category = "River & Queue",
+			description = "The number of river workers which process messages from the local queue in parallel. "
+					+ "Messages are partitioned by app, so the messages of each app are processed in order.")
+	public int riverWorkers() {
+		return getConfigInt("queue.river_workers", 1);
+	}
+
+	/**
+	 * The delay before the first retry of a failed webhook delivery or indexing operation, in milliseconds.
+	 * The delay doubles with each attempt.
+	 * @return the base retry delay
+	 */
+	@Documented(position = 765,
+			identifier = "river.retry_base_delay_ms",
+			value = "1000",
+			type = Integer.class,
+			category = "River & Queue",
+			description = "The delay before the first retry of a failed webhook delivery or indexing operation, "
+					+ "in milliseconds. The delay doubles with each attempt.")
+	public int riverRetryBaseDelayMillis() {
+		return getConfigInt("river.retry_base_delay_ms", 1000);
+	}
+
+	/**
+	 * The maximum delay between retries of a failed webhook delivery or indexing operation, in seconds.
+	 * @return the max retry delay
+	 */
+	@Documented(position = 766,
+			identifier = "river.retry_max_delay_sec",
+			value = "300",
+			type = Integer.class,
+			category = "River & Queue",
+			description = "The maximum delay between retries of a failed webhook delivery or indexing operation, in seconds.")
+	public int riverRetryMaxDelaySec() {
+		return getConfigInt("river.retry_max_delay_sec", 300);
+	}
+
+	/**
+	 * The maximum number of messages held in memory by the local queue.
+	 * @return the local queue capacity
+	 */
+	@Documented(position = 767,
+			identifier = "queue.local_capacity",
+			value = "100000",
+			type = Integer.class,
+			category = "River & Queue",
+			description = "The maximum number of messages held in memory by `LocalQueue`. When the queue is full, "
+					+ "new messages are handled according to `para.queue.overflow_policy`. Set to `0` for no limit.")
+	public int localQueueCapacity() {
+		return getConfigInt("queue.local_capacity", 100000);
+	}
+
+	/**
+	 * What to do with new messages when the local queue is full - block, reject or spill.
+	 * @return the overflow policy
+	 */
+	@Documented(position = 768,
+			identifier = "queue.overflow_policy",
+			value = "block",
+			category = "River & Queue",
+			description = "What to do with new messages when `LocalQueue` is full: `block` waits for free space "
+					+ "for up to `para.queue.overflow_timeout_ms` and then rejects the message (only on request "
+					+ "threads, messages pushed from background tasks are rejected right away), `reject` fails "
+					+ "immediately with an error and `spill` writes the overflow to disk, in `para.queue.file_dir`. "
+					+ "Webhook events for object writes are queued in the background and are dropped when rejected.")
+	public String queueOverflowPolicy() {
+		return getConfigParam("queue.overflow_policy", "block");
+	}
+
+	/**
+	 * The maximum time to wait for free space in the local queue, in milliseconds.
+	 * @return the overflow timeout
+	 */
+	@Documented(position = 769,
+			identifier = "queue.overflow_timeout_ms",
+			value = "5000",
+			type = Integer.class,
+			category = "River & Queue",
+			description = "The maximum time a request thread waits for free space in a full `LocalQueue`, "
+					+ "in milliseconds, when the overflow policy is `block`.")
+	public int queueOverflowTimeoutMillis() {
+		return getConfigInt("queue.overflow_timeout_ms", 5000);
+	}
+
 	/* **************************************************************************************************************
 	 * Metrics                                                                                              Metrics *
 	 ****************************************************************************************************************/
@@ -1326,6 +1764,21 @@ public class ParaConfig extends Config {
 		return getConfigBoolean("metrics.jmx_enabled", false);
 	}
 
+	/**
+	 * Search queries which take longer than this, in milliseconds, are logged. Set to `0` to disable.
+	 * @return the slow query threshold in milliseconds
+	 */
+	@Documented(position = 841,
+			identifier = "metrics.slow_query_threshold_ms",
+			value = "1000",
+			type = Integer.class,
+			category = "Metrics",
+			description = "Search queries which take longer than this, in milliseconds, are logged along with their "
+					+ "normalized shape. Set to `0` to disable.")
+	public int slowQueryThresholdMillis() {
+		return getConfigInt("metrics.slow_query_threshold_ms", 1000);
+	}
+
 
 	/* **************************************************************************************************************
 	 * LDAP Authentication                                                                      LDAP Authentication *
@@ -1533,6 +1986,52 @@ public class ParaConfig extends Config {
 		return getConfigBoolean("user_agent_id_enabled", true);
 	}
 
+	/**
+	 * The max number of GET responses cached by Para client, with their ETags, for conditional requests.
+	 * @return the size of the ETag cache
+	 */
+	@Documented(position = 961,
+			identifier = "client.etag_cache_size",
+			value = "0",
+			type = Integer.class,
+			category = "Para Client",
+			description = "The max number of GET responses cached by Para client, with their ETags. Cached responses "
+					+ "are revalidated with `If-None-Match` and reused when the server responds with 304 (Not Modified). "
+					+ "Disabled by default (0), as the cached responses are kept in memory.")
+	public int clientEtagCacheSize() {
+		return getConfigInt("client.etag_cache_size", 0);
+	}
+
+	/**
+	 * The max total size of the GET responses cached by Para client, in megabytes.
+	 * @return the size of the ETag cache in MB
+	 */
+	@Documented(position = 962,
+			identifier = "client.etag_cache_max_mb",
+			value = "16",
+			type = Integer.class,
+			category = "Para Client",
+			description = "The max total size of the response bodies in the ETag cache of Para client, in megabytes. "
+					+ "The least recently used responses are removed first.")
+	public int clientEtagCacheMaxMb() {
+		return getConfigInt("client.etag_cache_max_mb", 16);
+	}
+
+	/**
+	 * The max size of a GET response cached by Para client, in kilobytes.
+	 * @return the max size of a cached response in KB
+	 */
+	@Documented(position = 963,
+			identifier = "client.etag_cache_max_body_kb",
+			value = "256",
+			type = Integer.class,
+			category = "Para Client",
+			description = "The max size of a response body kept in the ETag cache of Para client, in kilobytes. "
+					+ "Larger responses are not cached and are read without being buffered.")
+	public int clientEtagCacheMaxBodyKb() {
+		return getConfigInt("client.etag_cache_max_body_kb", 256);
+	}
+
 	/**
 	 * Returns the value of the app setting, read from from app.settings or from the config file if app is root.
 	 * @param app the app in which to look for these keys
@@ -2646,6 +3145,21 @@ public class ParaConfig extends Config {
 		return getConfigInt("max_page_limit", 256);
 	}
 
+	/**
+	 * The maximum number of apps which can be searched with a single federated search request.
+	 * @return the maximum number of apps
+	 */
+	@Documented(position = 1745,
+			identifier = "federated_search_max_apps",
+			value = "10",
+			type = Integer.class,
+			category = "Miscellaneous",
+			description = "The maximum number of apps which can be listed in the `appids` parameter of a single "
+					+ "federated search request.")
+	public int federatedSearchMaxApps() {
+		return getConfigInt("federated_search_max_apps", 10);
+	}
+
 	/**
 	 * Enable/disable the Para access log.
 	 * @return true if access log is enabled
@@ -2701,6 +3215,65 @@ public class ParaConfig extends Config {
 		return getConfigInt("import_batch_size", 100);
 	}
 
+	/**
+	 * The number of threads writing objects to the database in parallel, when restoring data from backup.
+	 * @return the number of import writers
+	 */
+	@Documented(position = 1781,
+			identifier = "import_writers",
+			value = "4",
+			type = Integer.class,
+			category = "Miscellaneous",
+			description = "The number of threads writing objects to the database in parallel, when restoring data "
+					+ "from backup. Each writer works on one batch of `para.import_batch_size` objects at a time.")
+	public int importWriters() {
+		return getConfigInt("import_writers", 4);
+	}
+
+	/**
+	 * The number of objects in each part (JSON file) of a backup ZIP file, when exporting data.
+	 * @return the number of objects per part
+	 */
+	@Documented(position = 1782,
+			identifier = "export_objects_per_part",
+			value = "1000",
+			type = Integer.class,
+			category = "Miscellaneous",
+			description = "The number of objects in each part (JSON file) of a backup ZIP file, when exporting data.")
+	public int exportObjectsPerPart() {
+		return getConfigInt("export_objects_per_part", 1000);
+	}
+
+	/**
+	 * The compression level of backup ZIP files, from 0 (no compression) to 9 (best compression).
+	 * @return the compression level
+	 */
+	@Documented(position = 1783,
+			identifier = "export_compression_level",
+			value = "-1",
+			type = Integer.class,
+			category = "Miscellaneous",
+			description = "The compression level of backup ZIP files, from 0 (no compression) to 9 (best compression). "
+					+ "The default value of -1 uses the default compression level.")
+	public int exportCompressionLevel() {
+		return getConfigInt("export_compression_level", -1);
+	}
+
+	/**
+	 * The number of threads serializing backup parts in parallel, when exporting data.
+	 * @return the number of export threads
+	 */
+	@Documented(position = 1784,
+			identifier = "export_threads",
+			value = "4",
+			type = Integer.class,
+			category = "Miscellaneous",
+			description = "The number of threads serializing backup parts in parallel, when exporting data. "
+					+ "Pages of objects are read ahead of the serializers, up to twice this number of parts.")
+	public int exportThreads() {
+		return getConfigInt("export_threads", 4);
+	}
+
 	/**
 	 * Enable/disable the GZIP filter for compressing API response entities.
 	 * @return true if GZIP is enabled
@@ -37,6 +37,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
@@ -63,6 +65,15 @@ import org.slf4j.LoggerFactory;
 @SuppressWarnings("unchecked")
 public final class ParaObjectUtils {
 
+	/**
+	 * The media type of the Jackson Smile binary format.
+	 */
+	public static final String SMILE_MEDIA_TYPE = "application/x-jackson-smile";
+	/**
+	 * The media type of the CBOR binary format.
+	 */
+	public static final String CBOR_MEDIA_TYPE = "application/cbor";
+
 	private static final Logger logger = LoggerFactory.getLogger(ParaObjectUtils.class);
 	// maps plural to singular type definitions
 	// maps lowercase simple names to class objects
@@ -130,6 +141,47 @@ public final class ParaObjectUtils {
 		return JSON_MAPPER.writer().without(SerializationFeature.INDENT_OUTPUT);
 	}
 
+	/**
+	 * A Jackson {@code ObjectMapper} for the Smile binary format, configured like {@link #getJsonMapper()}.
+	 *
+	 * @return Smile object mapper
+	 */
+	public static ObjectMapper getSmileMapper() {
+		return BinaryMappers.SMILE_MAPPER;
+	}
+
+	/**
+	 * A Jackson {@code ObjectMapper} for the CBOR binary format, configured like {@link #getJsonMapper()}.
+	 *
+	 * @return CBOR object mapper
+	 */
+	public static ObjectMapper getCborMapper() {
+		return BinaryMappers.CBOR_MAPPER;
+	}
+
+	/**
+	 * Returns the object mapper for a given media type - Smile, CBOR or JSON (the default).
+	 *
+	 * @param mediaType a media type, e.g. the value of a {@code Content-Type} header
+	 * @return an object mapper
+	 */
+	public static ObjectMapper getMapperForMediaType(String mediaType) {
+		if (Strings.CI.startsWith(mediaType, SMILE_MEDIA_TYPE)) {
+			return getSmileMapper();
+		} else if (Strings.CI.startsWith(mediaType, CBOR_MEDIA_TYPE)) {
+			return getCborMapper();
+		}
+		return JSON_MAPPER;
+	}
+
+	/**
+	 * Binary mappers, created only when they're used.
+	 */
+	private static final class BinaryMappers {
+		private static final ObjectMapper SMILE_MAPPER = JSON_MAPPER.copyWith(new SmileFactory());
+		private static final ObjectMapper CBOR_MAPPER = JSON_MAPPER.copyWith(new CBORFactory());
+	}
+
 	/////////////////////////////////////////////
 	//	     OBJECT MAPPING & CLASS UTILS
 	/////////////////////////////////////////////
@@ -18,6 +18,7 @@
 package com.erudika.para.server;
 
 import com.erudika.para.core.listeners.WebhookIOListener;
+import com.erudika.para.core.queue.RetryScheduler;
 import com.erudika.para.core.rest.CustomResourceHandler;
 import com.erudika.para.core.utils.Config;
 import com.erudika.para.core.utils.Para;
@@ -48,6 +49,9 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.RequestMapping;
 
 /**
@@ -141,6 +145,7 @@ public class ParaServer implements Ordered {
 		// additionally, the polling feature is used for implementing a webhooks worker node
 		if ((Para.getConfig().queuePollingEnabled() || Para.getConfig().webhooksEnabled())) {
 			Para.getQueue().startPolling();
+			RetryScheduler.getInstance().recover();
 		}
 
 		Para.getCustomResourceHandlers().forEach(crh -> {
@@ -173,6 +178,25 @@ public class ParaServer implements Ordered {
 		return ParaObjectUtils.getJsonMapper();
 	}
 
+	/**
+	 * Adds support for the Smile binary format to the API, in requests with
+	 * {@code Accept: application/x-jackson-smile}.
+	 * @return a Smile message converter, using {@link ParaObjectUtils#getSmileMapper()}
+	 */
+	@Bean
+	public HttpMessageConverter<Object> smileHttpMessageConverter() {
+		return new MappingJackson2SmileHttpMessageConverter(ParaObjectUtils.getSmileMapper());
+	}
+
+	/**
+	 * Adds support for the CBOR binary format to the API, in requests with {@code Accept: application/cbor}.
+	 * @return a CBOR message converter, using {@link ParaObjectUtils#getCborMapper()}
+	 */
+	@Bean
+	public HttpMessageConverter<Object> cborHttpMessageConverter() {
+		return new MappingJackson2CborHttpMessageConverter(ParaObjectUtils.getCborMapper());
+	}
+
 	/**
 	 * Registers custom error pages.
 	 * @return Error page registry bean
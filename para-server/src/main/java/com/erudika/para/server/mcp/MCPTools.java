@@ -9,6 +9,7 @@ import com.erudika.para.core.utils.Pager;
 import com.erudika.para.core.utils.Para;
 import com.erudika.para.core.utils.ParaObjectUtils;
 import com.erudika.para.core.utils.Utils;
+import com.erudika.para.server.rest.RestUtils;
 import static com.erudika.para.server.mcp.MCPUtils.requireRootApp;
 import static com.erudika.para.server.mcp.MCPUtils.requireWritePermission;
 import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
@@ -180,6 +181,7 @@ public class MCPTools {
 	 * @param type object type to search
 	 * @param limit maximum number of results to return
 	 * @param page page number for pagination
+	 * @param count how to count the total number of results - none, approx or exact
 	 * @return the tool result containing search results
 	 */
 	@McpTool(name = "search",
@@ -196,7 +198,9 @@ public class MCPTools {
 			@McpToolParam(description = "Search query string (Lucene syntax, use '*' for all).", required = true) String query,
 			@McpToolParam(description = "Object type to search (optional, searches all types if not specified).") String type,
 			@McpToolParam(description = "Maximum number of results to return (default 10, max 1000).") Integer limit,
-			@McpToolParam(description = "Page number for pagination (default 1).") Integer page) {
+			@McpToolParam(description = "Page number for pagination (default 1).") Integer page,
+			@McpToolParam(description = "How to count the total number of results: 'none' (fastest, no totalHits), "
+					+ "'approx' or 'exact' (default).") String count) {
 		try {
 			App app = utils.authApp();
 			query = StringUtils.isBlank(query) ? "*" : query;
@@ -210,6 +214,13 @@ public class MCPTools {
 			if (page != null) {
 				pager.setPage(Math.max(page, 1));
 			}
+			if (!StringUtils.isBlank(count)) {
+				Pager.CountMode countMode = Pager.CountMode.fromString(count);
+				if (countMode == null) {
+					throw new MCPException(MCPException.ErrorType.INVALID_INPUT, "Invalid count mode: " + count);
+				}
+				pager.setCountMode(countMode);
+			}
 
 			logger.debug("[MCP] Search by app={} query='{}' type={} limit={} page={}",
 					app.getAppIdentifier(), query, type, pager.getLimit(), pager.getPage());
@@ -217,7 +228,10 @@ public class MCPTools {
 			List<ParaObject> results = Para.getSearch().findQuery(app.getAppIdentifier(), type, query, pager);
 			Map<String, Object> response = new LinkedHashMap<>();
 			response.put("items", results);
-			response.put("totalHits", pager.getCount());
+			if (pager.isCountRequired()) {
+				response.put("totalHits", pager.getCount());
+				response.put("totalHitsRelation", RestUtils.getTotalHitsRelation(pager));
+			}
 			response.put("page", pager.getPage());
 			response.put("limit", pager.getLimit());
 
@@ -258,6 +272,7 @@ public class MCPTools {
 			terms.put(Config._EMAIL, email);
 			terms.put(Config._APPID, app.getAppIdentifier());
 			Pager p = new Pager(1);
+			p.setCountMode(Pager.CountMode.NONE);
 			List<User> results = Para.getSearch().findTerms(app.getAppIdentifier(), Utils.type(User.class), terms, true, p);
 			if (results.isEmpty()) {
 				throw new MCPException(MCPException.ErrorType.NOT_FOUND, "User not found with email: " + email);
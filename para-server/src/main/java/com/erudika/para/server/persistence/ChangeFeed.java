@@ -0,0 +1,441 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.persistence;
+
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.listeners.IOListener;
+import com.erudika.para.core.utils.Config;
+import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.ParaObjectUtils;
+import com.erudika.para.core.utils.Utils;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Strings;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An ordered feed of all changes made to the objects of each app. Every write and delete which goes through
+ * {@link ManagedDAO} is recorded with a monotonically increasing sequence number, in a bounded ring buffer for
+ * each app, optionally persisted to disk. Changes are written to disk in the background, in batches, so writes to
+ * the database don't wait for disk I/O. Clients read the changes after a given sequence number and wait for new
+ * ones, which is how the {@code /v1/_changes} endpoint streams them.
+ * <p>
+ * The feed is kept on each node and only has the changes made through that node. In a cluster, clients of the feed
+ * must always be routed to the same node (sticky routing), otherwise they miss the writes made on other nodes.
+ * Cursors contain the node's {@code para.worker_id}, so that a cursor from another node, whose sequence numbers
+ * are unrelated, is rejected instead of silently skipping or repeating changes.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public final class ChangeFeed implements IOListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+	private static final ChangeFeed INSTANCE = new ChangeFeed();
+	private static final Set<String> WRITE_OPS = Set.of("create", "overwrite", "update", "createAll", "updateAll");
+	private static final Set<String> DELETE_OPS = Set.of("delete", "deleteAll");
+	private static final long FLUSH_DELAY_MILLIS = 200;
+
+	private final Map<String, ChangeLog> logs = new ConcurrentHashMap<>();
+	private final Map<String, AtomicInteger> streams = new ConcurrentHashMap<>();
+	private final AtomicInteger openStreams = new AtomicInteger();
+
+	private ChangeFeed() {
+		Para.addDestroyListener(() -> logs.values().forEach(ChangeLog::close));
+	}
+
+	/**
+	 * Returns the singleton instance.
+	 * @return an instance of this class
+	 */
+	public static ChangeFeed getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * A recorded change - its sequence number and the change as JSON.
+	 * @param seq the sequence number
+	 * @param json the change object, with sequence number, operation, id, type, timestamp and the object itself
+	 */
+	public record Change(long seq, String json) { }
+
+	/**
+	 * Returns the changes made after a given sequence number, waiting for new changes if there are none.
+	 * @param appid the app identifier
+	 * @param afterSeq the sequence number of the last change seen by the client, 0 to start from the oldest change
+	 * @param max max number of changes to return
+	 * @param maxWaitMillis max time to wait for new changes, in milliseconds
+	 * @return a list of changes, empty if none arrived in time, or null if the changes following {@code afterSeq}
+	 * are no longer available and the client has to resync
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public List<Change> read(String appid, long afterSeq, int max, long maxWaitMillis) throws InterruptedException {
+		return getLog(appid).read(afterSeq, max, maxWaitMillis);
+	}
+
+	/**
+	 * Returns the identifier of this node, which is part of every cursor of the feed.
+	 * @return the worker id of this node
+	 */
+	public String getNodeId() {
+		return StringUtils.trimToEmpty(Para.getConfig().workerId());
+	}
+
+	/**
+	 * Returns the cursor for a change, which clients use to resume the feed after it.
+	 * @param seq a sequence number
+	 * @return a cursor in the form {@code node:seq}
+	 */
+	public String toCursor(long seq) {
+		return getNodeId() + ":" + seq;
+	}
+
+	/**
+	 * Returns the sequence number in a cursor created by {@link #toCursor(long)}. A plain sequence number,
+	 * like {@code 0} for all changes, is also accepted.
+	 * @param cursor a cursor
+	 * @param defaultSeq the sequence number to return if the cursor is blank
+	 * @return the sequence number or -1 if the cursor is not valid or is from another node
+	 */
+	public long parseCursor(String cursor, long defaultSeq) {
+		if (StringUtils.isBlank(cursor)) {
+			return defaultSeq;
+		}
+		String seq = cursor.trim();
+		int node = seq.lastIndexOf(':');
+		if (node >= 0) {
+			if (!getNodeId().equals(seq.substring(0, node))) {
+				return -1;
+			}
+			seq = seq.substring(node + 1);
+		}
+		return NumberUtils.isDigits(seq) ? NumberUtils.toLong(seq, -1) : -1;
+	}
+
+	/**
+	 * Returns the sequence number of the latest change of an app.
+	 * @param appid the app identifier
+	 * @return the last sequence number, 0 if there are no changes
+	 */
+	public long getLastSeq(String appid) {
+		return getLog(appid).lastSeq();
+	}
+
+	/**
+	 * Reserves a stream for a client of an app, if the maximum number of open streams, for the app and in total,
+	 * has not been reached. Each reserved stream must be released with {@link #releaseStream(java.lang.String)}.
+	 * @param appid the app identifier
+	 * @return true if the stream can be opened
+	 */
+	public boolean acquireStream(String appid) {
+		int maxStreams = Math.max(1, Para.getConfig().changesFeedMaxStreams());
+		int maxStreamsPerApp = Math.max(1, Para.getConfig().changesFeedMaxStreamsPerApp());
+		if (openStreams.incrementAndGet() > maxStreams) {
+			openStreams.decrementAndGet();
+			return false;
+		}
+		AtomicInteger appStreams = streams.computeIfAbsent(StringUtils.trimToEmpty(appid), k -> new AtomicInteger());
+		if (appStreams.incrementAndGet() > maxStreamsPerApp) {
+			appStreams.decrementAndGet();
+			openStreams.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Releases a stream reserved with {@link #acquireStream(java.lang.String)}.
+	 * @param appid the app identifier
+	 */
+	public void releaseStream(String appid) {
+		AtomicInteger appStreams = streams.get(StringUtils.trimToEmpty(appid));
+		if (appStreams != null) {
+			appStreams.decrementAndGet();
+			openStreams.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Records a change.
+	 * @param appid the app identifier
+	 * @param op the operation - "create", "overwrite", "update" or "delete"
+	 * @param obj the object which was changed
+	 * @return the sequence number of the change
+	 */
+	public long record(String appid, String op, ParaObject obj) {
+		return getLog(appid).append(op, obj);
+	}
+
+	@Override
+	public void onPreInvoke(Method method, Object[] args) {
+		// noop
+	}
+
+	@Override
+	public void onPostInvoke(Method method, Object[] args, Object result) {
+		if (method == null || args == null || args.length < 2 || !(args[0] instanceof String) || args[1] == null) {
+			return;
+		}
+		String opName = method.getName();
+		boolean isDelete = DELETE_OPS.contains(opName);
+		if (!isDelete && !WRITE_OPS.contains(opName)) {
+			return;
+		}
+		String op = Strings.CS.removeEnd(opName, "All");
+		List<?> objects = args[1] instanceof List<?> list ? list : List.of(args[1]);
+		for (Object obj : objects) {
+			// skip failed writes, e.g. on version mismatch
+			if (obj instanceof ParaObject pobj && pobj.getId() != null && (isDelete || pobj.getVersion() >= 0)) {
+				record((String) args[0], op, pobj);
+			}
+		}
+	}
+
+	private ChangeLog getLog(String appid) {
+		return logs.computeIfAbsent(StringUtils.trimToEmpty(appid), ChangeLog::new);
+	}
+
+	/**
+	 * The changes of a single app, in a ring buffer.
+	 */
+	private static final class ChangeLog {
+		private final String appid;
+		private final Change[] ring;
+		private final Path file;
+		private final List<Change> unwritten = new ArrayList<>();
+		private final Object io = new Object();
+		private BufferedWriter writer;
+		private long nextSeq = 1;
+		private long firstSeq = 1;
+		private int linesWritten;
+		private boolean flushScheduled;
+
+		ChangeLog(String appid) {
+			this.appid = appid;
+			this.ring = new Change[Math.max(1, Para.getConfig().changesFeedBufferSize())];
+			this.file = Para.getConfig().changesFeedPersist() ?
+					Paths.get(Para.getConfig().changesFeedDir(), Utils.urlEncode(appid) + ".jsonl") : null;
+			if (file != null) {
+				load();
+			}
+		}
+
+		synchronized long append(String op, ParaObject obj) {
+			long seq = nextSeq++;
+			Map<String, Object> change = new LinkedHashMap<>(8);
+			change.put("seq", seq);
+			change.put("op", op);
+			change.put(Config._ID, obj.getId());
+			change.put(Config._TYPE, obj.getType());
+			change.put(Config._TIMESTAMP, System.currentTimeMillis());
+			if (!"delete".equals(op)) {
+				change.put("object", obj);
+			}
+			try {
+				Change c = new Change(seq, ParaObjectUtils.getJsonWriterNoIdent().writeValueAsString(change));
+				ring[(int) (seq % ring.length)] = c;
+				if (file != null) {
+					unwritten.add(c);
+					if (!flushScheduled) {
+						flushScheduled = scheduleFlush();
+					}
+				}
+			} catch (IOException e) {
+				logger.error("Failed to record change {} of object {} in app '{}': {}",
+						seq, obj.getId(), appid, e.getMessage());
+			}
+			notifyAll();
+			return seq;
+		}
+
+		synchronized List<Change> read(long afterSeq, int max, long maxWaitMillis) throws InterruptedException {
+			if (afterSeq > lastSeq() || (afterSeq > 0 && afterSeq + 1 < oldestSeq())) {
+				return null; // the client is ahead (e.g. after a restart) or too far behind
+			}
+			long deadline = System.currentTimeMillis() + Math.max(0, maxWaitMillis);
+			long remaining = maxWaitMillis;
+			while (lastSeq() <= afterSeq && remaining > 0) {
+				wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+			long from = Math.max(afterSeq + 1, oldestSeq());
+			if (from > lastSeq()) {
+				return Collections.emptyList();
+			}
+			List<Change> changes = new ArrayList<>((int) Math.min(max, lastSeq() - from + 1));
+			for (long seq = from; seq <= lastSeq() && changes.size() < max; seq++) {
+				Change c = ring[(int) (seq % ring.length)];
+				if (c != null && c.seq() == seq) {
+					changes.add(c);
+				}
+			}
+			return changes;
+		}
+
+		synchronized long lastSeq() {
+			return nextSeq - 1;
+		}
+
+		private long oldestSeq() {
+			return Math.max(firstSeq, nextSeq - ring.length);
+		}
+
+		private boolean scheduleFlush() {
+			try {
+				Para.getScheduledExecutorService().schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+				return true;
+			} catch (RejectedExecutionException e) {
+				// shutting down - pending changes are written on close
+				return false;
+			}
+		}
+
+		/**
+		 * Writes the pending changes to disk, outside of the lock held by writers.
+		 */
+		private void flush() {
+			synchronized (io) {
+				// taken while holding the I/O lock, so that batches are written in order
+				List<Change> batch;
+				synchronized (this) {
+					batch = new ArrayList<>(unwritten);
+					unwritten.clear();
+					flushScheduled = false;
+				}
+				if (batch.isEmpty()) {
+					return;
+				}
+				try {
+					if (writer == null) {
+						Files.createDirectories(file.getParent());
+						writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+								StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+					}
+					for (Change c : batch) {
+						writer.write(c.json());
+						writer.newLine();
+					}
+					writer.flush();
+					linesWritten += batch.size();
+					// keep the file roughly the size of the ring buffer
+					if (linesWritten >= ring.length * 2) {
+						compact(batch.get(batch.size() - 1).seq());
+					}
+				} catch (IOException e) {
+					logger.error("Failed to write {} changes of app '{}' to {}: {}", batch.size(), appid, file, e.getMessage());
+				}
+			}
+		}
+
+		private void compact(long lastWrittenSeq) throws IOException {
+			writer.close();
+			writer = null;
+			List<Change> live = new ArrayList<>();
+			synchronized (this) {
+				// changes after the last written one are still pending and will be appended by the next flush
+				for (long seq = oldestSeq(); seq <= lastWrittenSeq; seq++) {
+					Change c = ring[(int) (seq % ring.length)];
+					if (c != null && c.seq() == seq) {
+						live.add(c);
+					}
+				}
+			}
+			Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+			try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				for (Change c : live) {
+					w.write(c.json());
+					w.newLine();
+				}
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			linesWritten = live.size();
+		}
+
+		private void load() {
+			if (!Files.exists(file)) {
+				return;
+			}
+			try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+				lines.filter(StringUtils::isNotBlank).forEach(line -> {
+					long seq = readSeq(line);
+					if (seq > 0) {
+						if (linesWritten == 0) {
+							firstSeq = seq;
+						}
+						ring[(int) (seq % ring.length)] = new Change(seq, line);
+						nextSeq = Math.max(nextSeq, seq + 1);
+						linesWritten++;
+					}
+				});
+				logger.info("Loaded change feed of app '{}' from {}, last sequence number is {}.", appid, file, lastSeq());
+			} catch (IOException e) {
+				logger.error("Failed to load change feed of app '{}' from {}: {}", appid, file, e.getMessage());
+			}
+		}
+
+		private static long readSeq(String json) {
+			try (JsonParser jp = ParaObjectUtils.getJsonMapper().getFactory().createParser(json)) {
+				if (jp.nextToken() == JsonToken.START_OBJECT && jp.nextToken() == JsonToken.FIELD_NAME &&
+						"seq".equals(jp.currentName()) && jp.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+					return jp.getLongValue();
+				}
+			} catch (IOException e) {
+				logger.warn("Skipping invalid change record: {}", e.getMessage());
+			}
+			return 0;
+		}
+
+		void close() {
+			if (file == null) {
+				return;
+			}
+			flush();
+			synchronized (io) {
+				if (writer != null) {
+					try {
+						writer.close();
+					} catch (IOException e) {
+						logger.warn("Failed to close change feed of app '{}': {}", appid, e.getMessage());
+					}
+					writer = null;
+				}
+			}
+		}
+	}
+}
@@ -60,6 +60,9 @@ public class PersistenceModule {
 			}
 		}
 		CoreUtils.getInstance().setDao(new ManagedDAO(dao));
+		if (Para.getConfig().changesFeedEnabled()) {
+			Para.addIOListener(ChangeFeed.getInstance());
+		}
 		return Para.getDAO();
 	}
 
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.queue;
+
+import com.erudika.para.core.queue.Queue;
+import com.erudika.para.core.utils.Para;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A durable local queue, backed by an append-only journal on disk. Messages survive restarts and
+ * are acknowledged by the river only after they have been persisted, so delivery is at-least-once.
+ * Messages which were pulled but not acknowledged are delivered again after a failure or a restart.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class FileQueue implements Queue {
+
+	private static final Logger logger = LoggerFactory.getLogger(FileQueue.class);
+
+	private String name;
+	private QueueJournal journal;
+
+	/**
+	 * Default constructor.
+	 */
+	public FileQueue() {
+		this(Para.getConfig().defaultQueueName());
+	}
+
+	/**
+	 * Creates a new queue with a given name, stored in its own folder inside {@code para.queue.file_dir}.
+	 * @param name name
+	 */
+	public FileQueue(String name) {
+		this(name, Paths.get(Para.getConfig().fileQueueDir(), name));
+	}
+
+	/**
+	 * Creates a new queue stored in a given folder.
+	 * @param name name
+	 * @param dir the folder where the journal is stored
+	 */
+	public FileQueue(String name, Path dir) {
+		this.name = name;
+		long segmentSize = Math.min(Integer.MAX_VALUE, Para.getConfig().fileQueueSegmentSizeMb() * 1024L * 1024L);
+		try {
+			this.journal = new QueueJournal(dir, segmentSize, Para.getConfig().fileQueueRetainedSegments());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to open queue journal in " + dir, e);
+		}
+		Para.addDestroyListener(this::close);
+	}
+
+	@Override
+	public String pull() {
+		List<String> msgs = journal.read(1);
+		return msgs.isEmpty() ? "" : msgs.get(0);
+	}
+
+	@Override
+	public List<String> pullBatch(int maxMessages, long maxWaitMillis) {
+		try {
+			return journal.read(maxMessages, maxWaitMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Collections.emptyList();
+		}
+	}
+
+	@Override
+	public void push(String task) {
+		if (!StringUtils.isBlank(task)) {
+			try {
+				journal.append(task);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to write message to queue " + name, e);
+			}
+		}
+	}
+
+	/**
+	 * Acknowledges all messages pulled so far. They will not be delivered again.
+	 */
+	public void commit() {
+		try {
+			journal.commit();
+		} catch (IOException e) {
+			logger.error("Failed to commit offset of queue {}: {}", name, e.getMessage());
+		}
+	}
+
+	/**
+	 * Acknowledges the messages pulled up to a given position. Messages pulled after it will be delivered again
+	 * after a rollback or a restart.
+	 * @param position a position returned by {@link #position()}
+	 */
+	public void commit(long position) {
+		try {
+			journal.commit(position);
+		} catch (IOException e) {
+			logger.error("Failed to commit offset of queue {}: {}", name, e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the position of the queue right after the last pulled message.
+	 * @return a position which can be passed to {@link #commit(long)}
+	 */
+	public long position() {
+		return journal.position();
+	}
+
+	/**
+	 * Returns all messages pulled since the last commit back to the queue, to be delivered again.
+	 */
+	public void rollback() {
+		journal.rollback();
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public void startPolling() {
+		LocalQueue.startPollingForMessages(this);
+	}
+
+	@Override
+	public void stopPolling() {
+		LocalQueue.stopPollingForMessages();
+	}
+
+	private void close() {
+		try {
+			journal.close();
+		} catch (IOException e) {
+			logger.warn("Failed to close queue journal {}: {}", name, e.getMessage());
+		}
+	}
+}
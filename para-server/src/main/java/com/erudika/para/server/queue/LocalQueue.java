@@ -17,21 +17,32 @@
  */
 package com.erudika.para.server.queue;
 
+import com.codahale.metrics.Meter;
 import com.erudika.para.core.listeners.DestroyListener;
+import com.erudika.para.core.metrics.Metrics;
 import com.erudika.para.core.queue.MockQueue;
 import com.erudika.para.core.queue.Queue;
+import com.erudika.para.core.queue.QueueFullException;
 import com.erudika.para.core.queue.River;
 import com.erudika.para.core.utils.Para;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
- * Local queue impl.
+ * Local queue impl. The queue is bounded - when it's full, new messages either wait for free space,
+ * are rejected with a {@link QueueFullException} or are spilled to disk and read back when there's room,
+ * depending on {@code para.queue.overflow_policy}. Only threads serving a request wait for free space,
+ * messages pushed from any other thread are rejected right away.
  * @author Alex Bogdanovski [alex@erudika.com]
  */
 public class LocalQueue implements Queue {
@@ -42,7 +53,12 @@ public class LocalQueue implements Queue {
 	private static final int MAX_MESSAGES = 10;  //max in bulk
 	private static final int POLLING_INTERVAL = Para.getConfig().queuePollingIntervalSec();
 
-	private ConcurrentLinkedQueue<String> q = new ConcurrentLinkedQueue<>();
+	private final LinkedBlockingQueue<String> q;
+	private final String overflowPolicy;
+	private final long overflowTimeout;
+	private final Meter enqueued;
+	private final Meter dequeued;
+	private QueueJournal spill;
 	private String name;
 
 	/**
@@ -58,18 +74,130 @@ public class LocalQueue implements Queue {
 	 */
 	public LocalQueue(String name) {
 		this.name = name;
+		int capacity = Para.getConfig().localQueueCapacity();
+		this.q = capacity > 0 ? new LinkedBlockingQueue<>(capacity) : new LinkedBlockingQueue<>();
+		this.overflowPolicy = StringUtils.trimToEmpty(Para.getConfig().queueOverflowPolicy()).toLowerCase();
+		this.overflowTimeout = Math.max(0, Para.getConfig().queueOverflowTimeoutMillis());
+		if ("spill".equals(overflowPolicy)) {
+			// opened eagerly so that messages spilled before a restart are delivered
+			this.spill = openSpill();
+		}
+		String rootAppid = Para.getConfig().getRootAppIdentifier();
+		this.enqueued = Metrics.meter(rootAppid, Queue.class, name, "enqueued");
+		this.dequeued = Metrics.meter(rootAppid, Queue.class, name, "dequeued");
+		Metrics.gauge(rootAppid, Queue.class, q::size, name, "depth");
+		Metrics.gauge(rootAppid, Queue.class, enqueued::getOneMinuteRate, name, "enqueue_rate");
+		Metrics.gauge(rootAppid, Queue.class, dequeued::getOneMinuteRate, name, "dequeue_rate");
+		if (spill != null) {
+			Metrics.gauge(rootAppid, Queue.class, spill::pendingBytes, name, "spilled_bytes");
+		}
 	}
 
 	@Override
 	public String pull() {
 		String s = q.poll();
+		if (s == null && hasSpilled()) {
+			List<String> spilled = readSpilled(1);
+			s = spilled.isEmpty() ? null : spilled.get(0);
+		}
+		if (s != null) {
+			dequeued.mark();
+		}
 		return StringUtils.isBlank(s) ? "" : s;
 	}
 
+	@Override
+	public List<String> pullBatch(int maxMessages, long maxWaitMillis) {
+		List<String> msgs = new ArrayList<>(Math.min(maxMessages, MAX_MESSAGES));
+		try {
+			// spilled messages are newer than the ones in memory, so they're read only after memory is drained
+			String first = hasSpilled() ? q.poll() : q.poll(Math.max(0, maxWaitMillis), TimeUnit.MILLISECONDS);
+			if (first != null) {
+				msgs.add(first);
+				q.drainTo(msgs, maxMessages - 1);
+			}
+			if (msgs.size() < maxMessages && hasSpilled()) {
+				msgs.addAll(readSpilled(maxMessages - msgs.size()));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		dequeued.mark(msgs.size());
+		return msgs;
+	}
+
 	@Override
 	public void push(String task) {
-		if (!StringUtils.isBlank(task)) {
-			q.add(task);
+		if (StringUtils.isBlank(task)) {
+			return;
+		}
+		// once spilling has started, messages go to disk until it's drained, to keep them in order
+		if (!hasSpilled() && q.offer(task)) {
+			enqueued.mark();
+			return;
+		}
+		switch (overflowPolicy) {
+			case "spill":
+				try {
+					spill.append(task);
+				} catch (IOException e) {
+					throw new UncheckedIOException("Failed to spill message from queue " + name + " to disk", e);
+				}
+				break;
+			case "reject":
+				throw rejected();
+			default:
+				// only request threads wait, background tasks (e.g. webhooks) must not tie up the shared executor
+				if (RequestContextHolder.getRequestAttributes() == null) {
+					throw rejected();
+				}
+				try {
+					if (!q.offer(task, overflowTimeout, TimeUnit.MILLISECONDS)) {
+						throw rejected();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw rejected();
+				}
+		}
+		enqueued.mark();
+	}
+
+	private QueueFullException rejected() {
+		Metrics.counter(Para.getConfig().getRootAppIdentifier(), Queue.class, name, "rejected").inc();
+		return new QueueFullException("Queue '" + name + "' is full (" + q.size() + " messages). Try again later.");
+	}
+
+	private boolean hasSpilled() {
+		return spill != null && spill.pendingBytes() > 0;
+	}
+
+	private List<String> readSpilled(int max) {
+		List<String> msgs = spill.read(max);
+		try {
+			// the in-memory queue is not durable anyway, so spilled messages are acknowledged as soon as they're read
+			spill.commit();
+		} catch (IOException e) {
+			logger.error("Failed to commit spilled messages of queue {}: {}", name, e.getMessage());
+		}
+		return msgs;
+	}
+
+	private QueueJournal openSpill() {
+		long segmentSize = Math.min(Integer.MAX_VALUE, Para.getConfig().fileQueueSegmentSizeMb() * 1024L * 1024L);
+		try {
+			QueueJournal journal = new QueueJournal(Paths.get(Para.getConfig().fileQueueDir(), name + "-overflow"),
+					segmentSize, 0);
+			Para.addDestroyListener(() -> {
+				try {
+					journal.close();
+				} catch (IOException e) {
+					logger.warn("Failed to close overflow journal of queue {}: {}", name, e.getMessage());
+				}
+			});
+			return journal;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to open overflow journal of queue " + name, e);
 		}
 	}
 
@@ -93,6 +221,29 @@ public class LocalQueue implements Queue {
 		stopPollingForMessages();
 	}
 
+	/**
+	 * Pushes messages which could not be processed back to a queue which can't roll back, like the in-memory
+	 * queue. The messages are added to the end of the queue, so they may be processed out of order.
+	 * @param queue a queue
+	 * @param msgs the messages to deliver again
+	 */
+	static void requeue(Queue queue, List<String> msgs) {
+		int dropped = 0;
+		for (String msg : msgs) {
+			try {
+				queue.push(msg);
+			} catch (RuntimeException e) {
+				dropped++;
+			}
+		}
+		if (dropped > 0) {
+			logger.warn("{} of {} messages could not be sent back to queue {} and were dropped.",
+					dropped, msgs.size(), queue.getName());
+		} else if (!msgs.isEmpty()) {
+			logger.info("{} messages were sent back to queue {} and will be delivered again.", msgs.size(), queue.getName());
+		}
+	}
+
 	/**
 	 * Starts polling for messages from SQS in a separate thread.
 	 * @param queue a queue instance
@@ -100,19 +251,39 @@ public class LocalQueue implements Queue {
 	static void startPollingForMessages(Queue queue) {
 		if (pollingTask == null) {
 			logger.info("Starting local river (polling interval: {}s)", POLLING_INTERVAL);
-			pollingTask = Para.getExecutorService().submit(new River() {
-				public List<String> pullMessages() {
-					String msg;
-					ArrayList<String> msgs = new ArrayList<String>(MAX_MESSAGES);
-					do {
-						msg = queue.pull();
-						if (!StringUtils.isBlank(msg)) {
-							msgs.add(msg);
+			int workers = Para.getConfig().riverWorkers();
+			if (workers > 1) {
+				pollingTask = Para.getExecutorService().submit(new PartitionedRiver(queue, workers, MAX_MESSAGES,
+						TimeUnit.SECONDS.toMillis(POLLING_INTERVAL)));
+			} else {
+				pollingTask = Para.getExecutorService().submit(new River() {
+					private List<String> pulled = List.of();
+
+					public List<String> pullMessages() {
+						pulled = queue.pullBatch(MAX_MESSAGES, TimeUnit.SECONDS.toMillis(POLLING_INTERVAL));
+						return pulled;
+					}
+
+					protected boolean isPullBlocking() {
+						return true;
+					}
+
+					protected void commitMessages() {
+						if (queue instanceof FileQueue fq) {
+							fq.commit();
 						}
-					} while (!StringUtils.isBlank(msg) && msgs.size() <= MAX_MESSAGES);
-					return msgs;
-				}
-			});
+					}
+
+					protected void rollbackMessages() {
+						if (queue instanceof FileQueue fq) {
+							fq.rollback();
+						} else {
+							requeue(queue, pulled);
+						}
+						pulled = List.of();
+					}
+				});
+			}
 			Para.addDestroyListener(new DestroyListener() {
 				public void onDestroy() {
 					stopPollingForMessages();
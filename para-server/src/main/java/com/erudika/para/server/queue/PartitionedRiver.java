@@ -0,0 +1,242 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.queue;
+
+import com.erudika.para.core.metrics.Metrics;
+import com.erudika.para.core.queue.Queue;
+import com.erudika.para.core.queue.River;
+import com.erudika.para.core.utils.Config;
+import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.ParaObjectUtils;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Distributes the messages pulled from a queue to a number of river workers, partitioned by app identifier.
+ * All messages for an app go to the same worker, so they are processed in order, while different apps
+ * are processed in parallel and a large payload for one app doesn't hold up the others. Each worker batches
+ * its own DB writes. When a worker fails to persist its messages, it retries them on its own, so the messages
+ * of other partitions are not processed twice, and after {@code para.river.max_delivery_attempts} the messages
+ * which still fail are moved to the dead-letter store. Up to one batch per worker can be in progress at a time,
+ * so a slow partition doesn't stop the others from getting new messages right away, while the rest of the
+ * messages wait in the queue. When the queue is a {@link FileQueue}, it's committed up to the oldest batch
+ * which hasn't been fully processed yet.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class PartitionedRiver implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PartitionedRiver.class);
+
+	private final Queue queue;
+	private final int maxMessages;
+	private final long pollingMillis;
+	private final List<Worker> workers;
+
+	/**
+	 * Default constructor.
+	 * @param queue the queue to pull messages from
+	 * @param partitions number of workers
+	 * @param maxMessages max messages per pull
+	 * @param pollingMillis max time to wait for messages, in milliseconds
+	 */
+	PartitionedRiver(Queue queue, int partitions, int maxMessages, long pollingMillis) {
+		this.queue = queue;
+		this.maxMessages = maxMessages;
+		this.pollingMillis = pollingMillis;
+		this.workers = new ArrayList<>(partitions);
+		for (int i = 0; i < partitions; i++) {
+			workers.add(new Worker(i));
+		}
+	}
+
+	@Override
+	public void run() {
+		logger.info("Starting {} river workers.", workers.size());
+		// workers run on their own threads as they never finish and would otherwise occupy the shared executor
+		List<Thread> threads = new ArrayList<>(workers.size());
+		for (Worker worker : workers) {
+			threads.add(Thread.ofVirtual().name("para-river-" + worker.partition).start(worker));
+		}
+		try {
+			Deque<Batch> inProgress = new ArrayDeque<>();
+			while (!Thread.interrupted()) {
+				if (!acknowledge(inProgress)) {
+					continue;
+				}
+				List<String> msgs = queue.pullBatch(maxMessages, pollingMillis);
+				if (msgs.isEmpty()) {
+					continue;
+				}
+				// every batch is tracked, so that messages are left in the (bounded) queue while the workers are busy
+				Batch batch = new Batch(msgs.size(), queue instanceof FileQueue fq ? fq.position() : -1);
+				long now = System.nanoTime();
+				for (String msg : msgs) {
+					workers.get(partition(getAppid(msg), workers.size())).pending.add(new Message(msg, batch, now));
+				}
+				inProgress.add(batch);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			threads.forEach(Thread::interrupt);
+		}
+	}
+
+	/**
+	 * Removes the finished batches and, when the queue is a {@link FileQueue}, commits it up to the oldest batch
+	 * which is still being processed. When the maximum number of batches is in progress, this waits for the
+	 * oldest one, for up to the polling interval.
+	 * @return true if more messages can be pulled
+	 */
+	private boolean acknowledge(Deque<Batch> inProgress) throws InterruptedException {
+		Batch finished = null;
+		long wait = inProgress.size() >= workers.size() ? pollingMillis : 0;
+		while (!inProgress.isEmpty() && inProgress.peekFirst().latch.await(wait, TimeUnit.MILLISECONDS)) {
+			finished = inProgress.removeFirst();
+			wait = 0;
+		}
+		if (finished != null && queue instanceof FileQueue fq) {
+			fq.commit(finished.position);
+		}
+		if (inProgress.size() >= workers.size()) {
+			logger.debug("Waiting for {} messages to be processed before pulling more messages.",
+					inProgress.stream().mapToLong(b -> b.latch.getCount()).sum());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the partition for an app.
+	 * @param appid an app identifier
+	 * @param partitions number of partitions
+	 * @return a partition number
+	 */
+	static int partition(String appid, int partitions) {
+		return Math.floorMod(appid == null ? 0 : appid.hashCode(), partitions);
+	}
+
+	/**
+	 * Reads the app identifier from a JSON message, without parsing the rest of the message.
+	 * @param msg a message
+	 * @return the app identifier or empty string
+	 */
+	static String getAppid(String msg) {
+		try (JsonParser jp = ParaObjectUtils.getJsonMapper().getFactory().createParser(msg)) {
+			if (jp.nextToken() == JsonToken.START_OBJECT) {
+				while (jp.nextToken() == JsonToken.FIELD_NAME) {
+					String field = jp.currentName();
+					JsonToken value = jp.nextToken();
+					if (Config._APPID.equals(field) && value == JsonToken.VALUE_STRING) {
+						return jp.getText();
+					}
+					jp.skipChildren();
+				}
+			}
+		} catch (IOException e) {
+			logger.debug("Failed to read appid from message: {}", e.getMessage());
+		}
+		return "";
+	}
+
+	private record Message(String body, Batch batch, long dispatchedAt) { }
+
+	private static final class Batch {
+		private final CountDownLatch latch;
+		private final long position;
+
+		Batch(int size, long position) {
+			this.latch = new CountDownLatch(size);
+			this.position = position;
+		}
+	}
+
+	private final class Worker extends River {
+		private final String partition;
+		private final LinkedBlockingDeque<Message> pending = new LinkedBlockingDeque<>();
+		private final List<Message> current = new ArrayList<>(maxMessages);
+
+		Worker(int index) {
+			this.partition = String.valueOf(index);
+			Metrics.gauge(Para.getConfig().getRootAppIdentifier(), River.class, pending::size,
+					"partition", partition, "pending");
+		}
+
+		@Override
+		public List<String> pullMessages() {
+			current.clear();
+			try {
+				Message first = pending.poll(pollingMillis, TimeUnit.MILLISECONDS);
+				if (first != null) {
+					current.add(first);
+					pending.drainTo(current, maxMessages - 1);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			List<String> msgs = new ArrayList<>(current.size());
+			long now = System.nanoTime();
+			for (Message msg : current) {
+				msgs.add(msg.body());
+				Metrics.histogram(Para.getConfig().getRootAppIdentifier(), River.class, "partition", partition, "lag").
+						update(TimeUnit.NANOSECONDS.toMillis(now - msg.dispatchedAt()));
+			}
+			return msgs;
+		}
+
+		@Override
+		protected boolean isPullBlocking() {
+			return true;
+		}
+
+		@Override
+		protected void commitMessages() {
+			complete(false);
+		}
+
+		@Override
+		protected void rollbackMessages() {
+			complete(true);
+		}
+
+		private void complete(boolean failed) {
+			if (failed) {
+				// failed messages go back to the front of this worker's queue and are retried after a delay,
+				// without rolling back the queue, which would deliver the messages of all partitions again
+				for (int i = current.size() - 1; i >= 0; i--) {
+					pending.addFirst(current.get(i));
+				}
+			} else {
+				for (Message msg : current) {
+					msg.batch().latch.countDown();
+				}
+			}
+			current.clear();
+		}
+	}
+}
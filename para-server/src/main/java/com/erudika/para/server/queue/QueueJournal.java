@@ -0,0 +1,318 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.queue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only journal of messages, split into segment files of a fixed maximum size.
+ * Each record is stored as {@code [length][crc32][utf-8 bytes]}. Offsets are global byte positions and
+ * each segment file is named after the offset of its first record. Records are appended through a file channel
+ * and read back through memory-mapped buffers. The consumer offset is persisted in a separate file on each
+ * {@link #commit()} and segments which have been fully consumed are deleted, keeping the last few if configured.
+ * A torn record at the end of the last segment (e.g. after a crash) is truncated when the journal is opened.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class QueueJournal implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(QueueJournal.class);
+	private static final String SEGMENT_EXT = ".log";
+	private static final String OFFSET_FILE = "consumer.offset";
+	private static final int HEADER_SIZE = 8;
+
+	private final Path dir;
+	private final long segmentSize;
+	private final int retainedSegments;
+	private final TreeMap<Long, Segment> segments = new TreeMap<>();
+	private Segment active;
+	private long readOffset;
+	private long committedOffset;
+
+	/**
+	 * Opens or creates a journal in a given directory.
+	 * @param dir the journal directory
+	 * @param segmentSize max size of each segment in bytes
+	 * @param retainedSegments number of fully consumed segments to keep on disk
+	 * @throws IOException if the journal can't be opened
+	 */
+	QueueJournal(Path dir, long segmentSize, int retainedSegments) throws IOException {
+		this.dir = dir;
+		this.segmentSize = Math.max(HEADER_SIZE + 1, segmentSize);
+		this.retainedSegments = Math.max(0, retainedSegments);
+		Files.createDirectories(dir);
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_EXT)).toList()) {
+				String name = file.getFileName().toString();
+				long base = Long.parseLong(name.substring(0, name.length() - SEGMENT_EXT.length()));
+				segments.put(base, new Segment(base, file));
+			}
+		}
+		if (segments.isEmpty()) {
+			active = newSegment(0L);
+		} else {
+			active = segments.lastEntry().getValue();
+			active.open();
+			active.recover();
+		}
+		Path offsetFile = dir.resolve(OFFSET_FILE);
+		committedOffset = Files.exists(offsetFile) ? Long.parseLong(Files.readString(offsetFile).trim()) : 0L;
+		committedOffset = Math.max(segments.firstKey(), Math.min(committedOffset, active.end()));
+		readOffset = committedOffset;
+		logger.debug("Opened queue journal {} with {} segments, consumer offset {}.", dir, segments.size(), committedOffset);
+	}
+
+	/**
+	 * Appends a message to the end of the journal.
+	 * @param message a message
+	 * @throws IOException on write error
+	 */
+	synchronized void append(String message) throws IOException {
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		if (active.size > 0 && active.size + HEADER_SIZE + bytes.length > segmentSize) {
+			active.channel.force(false);
+			active.close();
+			active = newSegment(active.end());
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + bytes.length);
+		buf.putInt(bytes.length).putInt((int) crc.getValue()).put(bytes).flip();
+		while (buf.hasRemaining()) {
+			active.channel.write(buf, active.size + buf.position());
+		}
+		active.size += HEADER_SIZE + bytes.length;
+		notifyAll();
+	}
+
+	/**
+	 * Reads the next messages after the last delivered one. The read position is advanced but
+	 * not committed, so these messages will be delivered again if the journal is reopened before {@link #commit()}.
+	 * @param max max number of messages to read
+	 * @return a list of messages, empty if there are no new messages
+	 */
+	synchronized List<String> read(int max) {
+		List<String> messages = new ArrayList<>(Math.min(max, 64));
+		try {
+			while (messages.size() < max && readOffset < active.end()) {
+				Map.Entry<Long, Segment> entry = segments.floorEntry(readOffset);
+				Segment segment = entry.getValue();
+				if (readOffset >= segment.end()) {
+					Long next = segments.higherKey(segment.base);
+					if (next == null) {
+						break;
+					}
+					readOffset = next;
+					continue;
+				}
+				ByteBuffer buf = segment.map();
+				int pos = (int) (readOffset - segment.base);
+				int len = buf.getInt(pos);
+				byte[] bytes = new byte[len];
+				buf.get(pos + HEADER_SIZE, bytes);
+				messages.add(new String(bytes, StandardCharsets.UTF_8));
+				readOffset += HEADER_SIZE + len;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return messages;
+	}
+
+	/**
+	 * Reads the next messages, waiting for new messages to be appended if there are none.
+	 * @param max max number of messages to read
+	 * @param maxWaitMillis max time to wait, in milliseconds
+	 * @return a list of messages, empty if none arrived within the time limit
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	synchronized List<String> read(int max, long maxWaitMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + Math.max(0, maxWaitMillis);
+		long remaining = maxWaitMillis;
+		while (readOffset >= active.end() && remaining > 0) {
+			wait(remaining);
+			remaining = deadline - System.currentTimeMillis();
+		}
+		return read(max);
+	}
+
+	/**
+	 * Marks all messages read so far as consumed. The consumer offset is written to disk and
+	 * segments which are no longer needed are deleted.
+	 * @throws IOException on write error
+	 */
+	synchronized void commit() throws IOException {
+		commit(readOffset);
+	}
+
+	/**
+	 * Marks the messages up to a given position as consumed, e.g. when the messages read after it
+	 * are still being processed.
+	 * @param offset a position returned by {@link #position()}
+	 * @throws IOException on write error
+	 */
+	synchronized void commit(long offset) throws IOException {
+		if (offset <= committedOffset || offset > readOffset) {
+			return;
+		}
+		active.channel.force(false);
+		Path tmp = dir.resolve(OFFSET_FILE + ".tmp");
+		Files.writeString(tmp, Long.toString(offset));
+		Files.move(tmp, dir.resolve(OFFSET_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		committedOffset = offset;
+		compact();
+	}
+
+	/**
+	 * Returns the read position, which is right after the last message read so far.
+	 * @return an offset
+	 */
+	synchronized long position() {
+		return readOffset;
+	}
+
+	/**
+	 * Rewinds the read position to the last committed offset, so that uncommitted messages are read again.
+	 */
+	synchronized void rollback() {
+		readOffset = committedOffset;
+	}
+
+	/**
+	 * Returns the number of bytes of messages which haven't been committed yet.
+	 * @return the backlog size in bytes
+	 */
+	synchronized long pendingBytes() {
+		return active.end() - committedOffset;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		active.channel.force(false);
+		for (Segment segment : segments.values()) {
+			segment.close();
+		}
+	}
+
+	private void compact() throws IOException {
+		List<Segment> consumed = new ArrayList<>();
+		for (Segment segment : segments.values()) {
+			if (segment == active || segment.end() > committedOffset) {
+				break;
+			}
+			consumed.add(segment);
+		}
+		for (int i = 0; i < consumed.size() - retainedSegments; i++) {
+			Segment segment = consumed.get(i);
+			segment.close();
+			Files.deleteIfExists(segment.file);
+			segments.remove(segment.base);
+			logger.debug("Deleted consumed queue segment {}.", segment.file);
+		}
+	}
+
+	private Segment newSegment(long base) throws IOException {
+		Segment segment = new Segment(base, dir.resolve(String.format("%020d%s", base, SEGMENT_EXT)));
+		segment.open();
+		segments.put(base, segment);
+		return segment;
+	}
+
+	private static final class Segment {
+		private final long base;
+		private final Path file;
+		private FileChannel channel;
+		private long size;
+		private MappedByteBuffer mapped;
+
+		Segment(long base, Path file) throws IOException {
+			this.base = base;
+			this.file = file;
+			this.size = Files.exists(file) ? Files.size(file) : 0L;
+		}
+
+		long end() {
+			return base + size;
+		}
+
+		void open() throws IOException {
+			if (channel == null || !channel.isOpen()) {
+				channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			}
+		}
+
+		MappedByteBuffer map() throws IOException {
+			// the active segment grows, so it's remapped when there's new data past the end of the mapping
+			if (mapped == null || mapped.capacity() < size) {
+				open();
+				mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			return mapped;
+		}
+
+		void recover() throws IOException {
+			ByteBuffer buf = map();
+			int pos = 0;
+			CRC32 crc = new CRC32();
+			while (pos + HEADER_SIZE <= size) {
+				int len = buf.getInt(pos);
+				if (len < 0 || pos + HEADER_SIZE + (long) len > size) {
+					break;
+				}
+				byte[] bytes = new byte[len];
+				buf.get(pos + HEADER_SIZE, bytes);
+				crc.reset();
+				crc.update(bytes);
+				if ((int) crc.getValue() != buf.getInt(pos + 4)) {
+					break;
+				}
+				pos += HEADER_SIZE + len;
+			}
+			if (pos < size) {
+				logger.warn("Truncating queue segment {} at position {} - the last record is incomplete.", file, pos);
+				mapped = null;
+				channel.truncate(pos);
+				size = pos;
+			}
+		}
+
+		void close() throws IOException {
+			mapped = null;
+			if (channel != null) {
+				channel.close();
+			}
+		}
+	}
+}
@@ -48,6 +48,8 @@ public class QueueModule {
 		String selectedQueue = Para.getConfig().queuePlugin();
 		if (StringUtils.isBlank(selectedQueue)) {
 			queue = bindToDefault();
+		} else if (FileQueue.class.getSimpleName().equalsIgnoreCase(selectedQueue)) {
+			queue = new FileQueue();
 		} else {
 			Queue queuePlugin = loadExternalQueue(selectedQueue);
 			if (queuePlugin != null) {
@@ -23,6 +23,7 @@ import com.erudika.para.core.ParaObject;
 import com.erudika.para.core.Sysprop;
 import com.erudika.para.core.User;
 import com.erudika.para.core.metrics.Metrics;
+import com.erudika.para.core.queue.RetryScheduler;
 import com.erudika.para.core.utils.Config;
 import com.erudika.para.core.utils.CoreUtils;
 import com.erudika.para.core.utils.HumanTime;
@@ -37,10 +38,12 @@ import com.erudika.para.core.utils.Utils;
 import com.erudika.para.core.validation.Constraint;
 import com.erudika.para.core.validation.ValidationUtils;
 import com.erudika.para.server.ParaServer;
+import com.erudika.para.server.persistence.ChangeFeed;
 import static com.erudika.para.server.rest.RestUtils.getBatchCreateResponse;
 import static com.erudika.para.server.rest.RestUtils.getBatchDeleteResponse;
 import static com.erudika.para.server.rest.RestUtils.getBatchReadResponse;
 import static com.erudika.para.server.rest.RestUtils.getBatchUpdateResponse;
+import static com.erudika.para.server.rest.RestUtils.getConditionalResponse;
 import static com.erudika.para.server.rest.RestUtils.getCreateResponse;
 import static com.erudika.para.server.rest.RestUtils.getDeleteResponse;
 import static com.erudika.para.server.rest.RestUtils.getEntity;
@@ -48,30 +51,25 @@ import static com.erudika.para.server.rest.RestUtils.getOverwriteResponse;
 import static com.erudika.para.server.rest.RestUtils.getReadResponse;
 import static com.erudika.para.server.rest.RestUtils.getStatusResponse;
 import static com.erudika.para.server.rest.RestUtils.getUpdateResponse;
+import static com.erudika.para.server.rest.RestUtils.getWeakETag;
 import static com.erudika.para.server.rest.RestUtils.queryParam;
 import static com.erudika.para.server.rest.RestUtils.queryParams;
 import com.erudika.para.server.security.SecurityUtils;
 import static com.erudika.para.server.security.SecurityUtils.getPrincipalApp;
 import com.erudika.para.server.utils.HealthUtils;
 import com.erudika.para.server.utils.HttpUtils;
-import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.MapperFeature;
-import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.nimbusds.jwt.SignedJWT;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -81,9 +79,6 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -102,6 +97,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -113,7 +109,8 @@ import org.springframework.web.util.UriComponentsBuilder;
  */
 @RestController
 @ConditionalOnProperty(value = "para.api_enabled", havingValue = "true")
-@RequestMapping(value = ParaServer.API_PATH, produces = MediaType.APPLICATION_JSON_VALUE)
+@RequestMapping(value = ParaServer.API_PATH, produces = {MediaType.APPLICATION_JSON_VALUE,
+		ParaObjectUtils.SMILE_MEDIA_TYPE, ParaObjectUtils.CBOR_MEDIA_TYPE})
 public final class Api1 {
 
 	private static final Logger logger = LoggerFactory.getLogger(Api1.class);
@@ -372,6 +369,63 @@ public final class Api1 {
 		return respondToClient(req, () -> getBatchCreateResponse(app, req.getInputStream()));
 	}
 
+	/**
+	 * Creates, updates and deletes objects in bulk. The request body is in NDJSON format, one operation per line,
+	 * and the results are streamed back, one line per operation.
+	 * @param req the request
+	 * @return a response
+	 * @throws IOException if operation fails
+	 */
+	@PostMapping("/_bulk")
+	public ResponseEntity<?> bulk(HttpServletRequest req) throws IOException {
+		return bulkHandler(getPrincipalApp(), req);
+	}
+
+	/**
+	 * Handles bulk operations on objects.
+	 * @param app the app
+	 * @param req the request
+	 * @return a response
+	 * @throws IOException if operation fails
+	 */
+	public ResponseEntity<?> bulkHandler(App app, HttpServletRequest req) throws IOException {
+		if (app == null) {
+			return getStatusResponse(HttpStatus.NOT_FOUND, "App not found.");
+		}
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).
+				body(new BulkIngest(app, req.getInputStream()));
+	}
+
+	/**
+	 * Executes a list of operations in a single request. Operations can refer to the results of earlier
+	 * operations, e.g. {@code $0.id}, and those which don't depend on each other are executed in parallel.
+	 * @param req the request
+	 * @return a response with the results of all operations, in order
+	 * @throws IOException if operation fails
+	 */
+	@PostMapping("/_multi")
+	public ResponseEntity<?> multi(HttpServletRequest req) throws IOException {
+		return multiHandler(getPrincipalApp(), req);
+	}
+
+	/**
+	 * Handles multi-operation requests.
+	 * @param app the app
+	 * @param req the request
+	 * @return a response
+	 * @throws IOException if operation fails
+	 */
+	public ResponseEntity<?> multiHandler(App app, HttpServletRequest req) throws IOException {
+		if (app == null) {
+			return getStatusResponse(HttpStatus.NOT_FOUND, "App not found.");
+		}
+		ResponseEntity<?> entityRes = getEntity(req.getInputStream(), List.class);
+		if (entityRes.getStatusCode().is2xxSuccessful()) {
+			return new MultiRequest(this, app, req).execute((List<?>) entityRes.getBody());
+		}
+		return entityRes;
+	}
+
 	/**
 	 * Batch reads objects.
 	 * @param req the request
@@ -413,24 +467,11 @@ public final class Api1 {
 	 * @return a response
 	 * @throws IOException if operation fails
 	 */
-	@SuppressWarnings("unchecked")
 	public ResponseEntity<?> batchUpdateHandler(App app, HttpServletRequest req) throws IOException {
 		if (app == null) {
 			return getStatusResponse(HttpStatus.NOT_FOUND, "App not found.");
 		}
-		ResponseEntity<?> entityRes = getEntity(req.getInputStream(), List.class, true);
-		if (entityRes.getStatusCode().is2xxSuccessful()) {
-			List<Map<String, Object>> newProps = (List<Map<String, Object>>) entityRes.getBody();
-			ArrayList<String> ids = new ArrayList<>(newProps.size());
-			for (Map<String, Object> props : newProps) {
-				if (props != null && props.containsKey(Config._ID)) {
-					ids.add((String) props.get(Config._ID));
-				}
-			}
-			return respondToClient(req, () -> getBatchUpdateResponse(app,
-					getDAO().readAll(app.getAppIdentifier(), ids, true), newProps));
-		}
-		return entityRes;
+		return respondToClient(req, () -> getBatchUpdateResponse(app, req.getInputStream()));
 	}
 
 	/**
@@ -520,6 +561,7 @@ public final class Api1 {
 	 * @param req the request
 	 * @return a response
 	 */
+	@SuppressWarnings("unchecked")
 	public ResponseEntity<?> searchHandler(App app, String typeParam, String querytype, HttpServletRequest req) {
 		if (app == null) {
 			return getStatusResponse(HttpStatus.NOT_FOUND, "App not found.");
@@ -529,6 +571,10 @@ public final class Api1 {
 			return getStatusResponse(HttpStatus.BAD_REQUEST, "Invalid query string syntax q=" + query
 					+ " in request " + req.getMethod() + " " + req.getRequestURI());
 		}
+		String cursor = queryParam("cursor", req);
+		if (!StringUtils.isBlank(cursor) && !new Pager().applyCursor(cursor)) {
+			return getStatusResponse(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+		}
 		String type = StringUtils.isBlank(typeParam) ? null : resolveType(app, typeParam);
 		String typeOverride = (StringUtils.isBlank(type)) ? null : type;
 		String queryType = querytype;
@@ -536,7 +582,81 @@ public final class Api1 {
 			queryType = "default";
 		}
 		Map<String, Object> result = RestUtils.buildQueryAndSearch(app, queryType, typeOverride, req);
-		return ResponseEntity.ok(result);
+		return getConditionalResponse(result, getWeakETag((List<ParaObject>) result.get("items"),
+				result.get("totalHits"), result.get("lastKey"), result.get("cursor")));
+	}
+
+	/**
+	 * Searches for objects in multiple apps at once.
+	 * @param req the request
+	 * @return a response
+	 */
+	@GetMapping("/_search")
+	public ResponseEntity<?> federatedSearch(HttpServletRequest req) {
+		return federatedSearchHandler(getPrincipalApp(), req);
+	}
+
+	/**
+	 * Handles federated search requests. The query is executed on all apps given in the {@code appids} parameter,
+	 * in parallel, and the results are merged into a single page. The calling app can always search in itself.
+	 * The root app can search in any app, while other apps can only search in apps which list them in their
+	 * {@code search.federated_appids} setting. Up to {@code para.federated_search_max_apps} apps can be searched
+	 * at once and apps for which the search failed are listed in {@code failedAppids}.
+	 * @param app the app
+	 * @param req the request
+	 * @return a response
+	 */
+	public ResponseEntity<?> federatedSearchHandler(App app, HttpServletRequest req) {
+		if (app == null) {
+			return getStatusResponse(HttpStatus.NOT_FOUND, "App not found.");
+		}
+		String query = queryParam("q", req);
+		if (!StringUtils.isBlank(query) && !getSearch().isValidQueryString(query)) {
+			return getStatusResponse(HttpStatus.BAD_REQUEST, "Invalid query string syntax q=" + query
+					+ " in request " + req.getMethod() + " " + req.getRequestURI());
+		}
+		Set<String> requested = new LinkedHashSet<>();
+		for (String param : queryParams("appids", req)) {
+			for (String appid : StringUtils.split(param, ',')) {
+				if (!StringUtils.isBlank(appid)) {
+					requested.add(appid.trim());
+				}
+			}
+		}
+		if (requested.isEmpty()) {
+			return getStatusResponse(HttpStatus.BAD_REQUEST, "Parameter 'appids' is required.");
+		}
+		int maxApps = Math.max(1, Para.getConfig().federatedSearchMaxApps());
+		if (requested.size() > maxApps) {
+			return getStatusResponse(HttpStatus.BAD_REQUEST, "Too many apps in parameter 'appids' - a federated "
+					+ "search can include up to " + maxApps + " apps.");
+		}
+		List<String> appids = new ArrayList<>(requested.size());
+		List<String> forbidden = new ArrayList<>();
+		for (String appid : requested) {
+			App other = App.id(appid).equals(app.getId()) ? app : getDAO().read(App.id(appid));
+			if (canSearchInApp(app, other)) {
+				appids.add(other.getAppIdentifier());
+			} else {
+				forbidden.add(appid);
+			}
+		}
+		if (!forbidden.isEmpty()) {
+			return getStatusResponse(HttpStatus.FORBIDDEN, "Not allowed to search in apps " + forbidden);
+		}
+		return ResponseEntity.ok(RestUtils.buildFederatedQueryAndSearch(appids, null, req));
+	}
+
+	private boolean canSearchInApp(App app, App other) {
+		if (other == null) {
+			return false;
+		}
+		if (app.isRootApp() || app.getId().equals(other.getId())) {
+			return true;
+		}
+		Object allowed = other.getSetting("search.federated_appids");
+		return allowed != null && Arrays.stream(StringUtils.split(allowed.toString(), ',')).
+				map(String::trim).anyMatch(app.getAppIdentifier().trim()::equals);
 	}
 
 	/**
@@ -1114,6 +1234,173 @@ public final class Api1 {
 		});
 	}
 
+	/**
+	 * Returns the dead letters of an app - webhook deliveries and indexing operations which failed after retrying.
+	 * @param req the request
+	 * @return a response
+	 */
+	@GetMapping("/_deadletters")
+	public ResponseEntity<?> getDeadLetters(HttpServletRequest req) {
+		return getDeadLettersHandler(getPrincipalApp(), req);
+	}
+
+	/**
+	 * Handles the request for listing dead letters.
+	 * @param app the app
+	 * @param req the request
+	 * @return a response
+	 */
+	public ResponseEntity<?> getDeadLettersHandler(App app, HttpServletRequest req) {
+		if (app == null) {
+			return getStatusResponse(HttpStatus.NOT_FOUND, "App not found.");
+		}
+		Pager pager = RestUtils.getPagerFromParams(req);
+		List<Sysprop> items = RetryScheduler.getInstance().getDeadLetters(app.getAppIdentifier(), pager);
+		Map<String, Object> response = new HashMap<>(4);
+		response.put("items", items);
+		response.put("page", pager.getPage());
+		response.put("totalHits", pager.getCount());
+		response.put("totalHitsRelation", RestUtils.getTotalHitsRelation(pager));
+		return ResponseEntity.ok(response);
+	}
+
+	/**
+	 * Sends a dead letter back to the queue, so that it is processed again.
+	 * @param id the dead letter id
+	 * @return a response
+	 */
+	@PostMapping("/_deadletters/{id}")
+	public ResponseEntity<?> replayDeadLetter(@PathVariable String id) {
+		return replayDeadLetterHandler(getPrincipalApp(), id);
+	}
+
+	/**
+	 * Handles the request for replaying a dead letter.
+	 * @param app the app
+	 * @param id the dead letter id
+	 * @return a response
+	 */
+	public ResponseEntity<?> replayDeadLetterHandler(App app, String id) {
+		if (app == null) {
+			return getStatusResponse(HttpStatus.NOT_FOUND, "App not found.");
+		}
+		if (RetryScheduler.getInstance().replay(app.getAppIdentifier(), id)) {
+			return ResponseEntity.ok(Collections.singletonMap("replayed", id));
+		}
+		return getStatusResponse(HttpStatus.NOT_FOUND, "Dead letter not found.");
+	}
+
+	/**
+	 * Deletes a dead letter without processing it.
+	 * @param id the dead letter id
+	 * @return a response
+	 */
+	@DeleteMapping("/_deadletters/{id}")
+	public ResponseEntity<?> deleteDeadLetter(@PathVariable String id) {
+		App app = getPrincipalApp();
+		if (app == null) {
+			return getStatusResponse(HttpStatus.NOT_FOUND, "App not found.");
+		}
+		ParaObject obj = getDAO().read(app.getAppIdentifier(), id);
+		if (obj == null || !RetryScheduler.DEAD_LETTER_TYPE.equals(obj.getType())) {
+			return getStatusResponse(HttpStatus.NOT_FOUND, "Dead letter not found.");
+		}
+		getDAO().delete(app.getAppIdentifier(), obj);
+		return ResponseEntity.ok().build();
+	}
+
+	/**
+	 * Streams the changes made to the objects of an app as Server-Sent Events. Each event has a cursor
+	 * ({@code node:seq}) as its id, so clients can resume from the last change they received, using either
+	 * the {@code Last-Event-ID} header or the {@code since} parameter. Without either, only new changes are streamed
+	 * and {@code since=0} streams all the changes which are still available. The feed has all objects of the app,
+	 * so it's only available to the app itself and to admin users, not to regular users or guests.
+	 * The feed is kept on each node, so clients must be routed to the same node every time and cursors
+	 * from other nodes are rejected.
+	 * @param req the request
+	 * @return an event stream
+	 */
+	@GetMapping(value = "/_changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<?> changes(HttpServletRequest req) {
+		return changesHandler(getPrincipalApp(), req);
+	}
+
+	/**
+	 * Handles the request for streaming the change feed of an app.
+	 * @param app the app
+	 * @param req the request
+	 * @return a response
+	 */
+	public ResponseEntity<?> changesHandler(App app, HttpServletRequest req) {
+		if (app == null) {
+			return getStatusResponse(HttpStatus.NOT_FOUND, "App not found.");
+		}
+		if (!Para.getConfig().changesFeedEnabled()) {
+			return getStatusResponse(HttpStatus.NOT_FOUND, "The change feed is disabled.");
+		}
+		User user = SecurityUtils.getAuthenticatedUser();
+		if ((user != null && !user.isAdmin()) || (user == null && RestUtils.isAnonymousRequest(req))) {
+			return getStatusResponse(HttpStatus.FORBIDDEN, "The change feed requires app credentials.");
+		}
+		String since = StringUtils.defaultIfBlank(req.getHeader("Last-Event-ID"), req.getParameter("since"));
+		long afterSeq = ChangeFeed.getInstance().parseCursor(since, ChangeFeed.getInstance().
+				getLastSeq(app.getAppIdentifier()));
+		if (afterSeq < 0) {
+			// sequence numbers are per node, so a cursor from another node would skip or repeat changes
+			return getStatusResponse(HttpStatus.CONFLICT, "The change feed cursor is not valid on this node. "
+					+ "Resync and reconnect without 'since'.");
+		}
+		long timeout = TimeUnit.SECONDS.toMillis(Math.max(1, Para.getConfig().changesFeedStreamTimeoutSec()));
+		if (!ChangeFeed.getInstance().acquireStream(app.getAppIdentifier())) {
+			return getStatusResponse(HttpStatus.TOO_MANY_REQUESTS, "Too many open change feed streams.");
+		}
+		SseEmitter emitter = new SseEmitter(timeout + TimeUnit.SECONDS.toMillis(5));
+		// each stream waits for changes on its own thread, for up to the stream timeout
+		try {
+			Thread.ofVirtual().name("para-changes-" + app.getAppIdentifier()).
+					start(() -> streamChanges(app.getAppIdentifier(), afterSeq, timeout, emitter));
+		} catch (RuntimeException e) {
+			ChangeFeed.getInstance().releaseStream(app.getAppIdentifier());
+			throw e;
+		}
+		return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+	}
+
+	private void streamChanges(String appid, long afterSeq, long timeout, SseEmitter emitter) {
+		long deadline = System.currentTimeMillis() + timeout;
+		long seq = afterSeq;
+		try {
+			while (System.currentTimeMillis() < deadline) {
+				long wait = Math.min(TimeUnit.SECONDS.toMillis(15), deadline - System.currentTimeMillis());
+				List<ChangeFeed.Change> changes = ChangeFeed.getInstance().read(appid, seq, 100, wait);
+				if (changes == null) {
+					// the client has missed changes which are no longer available and has to resync
+					seq = ChangeFeed.getInstance().getLastSeq(appid);
+					emitter.send(SseEmitter.event().id(ChangeFeed.getInstance().toCursor(seq)).name("reset").
+							data(Collections.singletonMap("seq", seq), MediaType.APPLICATION_JSON));
+				} else if (changes.isEmpty()) {
+					emitter.send(SseEmitter.event().comment("keepalive"));
+				} else {
+					for (ChangeFeed.Change change : changes) {
+						emitter.send(SseEmitter.event().id(ChangeFeed.getInstance().toCursor(change.seq())).name("change").
+								data(change.json(), MediaType.APPLICATION_JSON));
+						seq = change.seq();
+					}
+				}
+			}
+			emitter.complete();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			emitter.complete();
+		} catch (Exception e) {
+			// client disconnected
+			logger.debug("Change feed stream for app '{}' closed: {}", appid, e.getMessage());
+			emitter.completeWithError(e);
+		} finally {
+			ChangeFeed.getInstance().releaseStream(appid);
+		}
+	}
+
 	/**
 	 * Exports the app data as a ZIP file.
 	 * @return a response
@@ -1133,32 +1420,10 @@ public final class Api1 {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
 		String fileName = app.getAppIdentifier().trim() + "_" + Utils.formatDate("YYYYMMdd_HHmmss", Locale.US);
-		StreamingResponseBody stream = os -> {
-			ObjectWriter writer = JsonMapper.builder().disable(MapperFeature.USE_ANNOTATIONS).build().writer()
-					.without(SerializationFeature.INDENT_OUTPUT)
-					.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
-			try (ZipOutputStream zipOut = new ZipOutputStream(os)) {
-				long count = 0;
-				int partNum = 0;
-				Pager pager = new Pager();
-				List<ParaObject> objects;
-				do {
-					objects = getDAO().readPage(app.getAppIdentifier(), pager);
-					ZipEntry zipEntry = new ZipEntry(fileName + "_part" + (++partNum) + ".json");
-					zipOut.putNextEntry(zipEntry);
-					writer.writeValue(zipOut, objects);
-					count += objects.size();
-				} while (!objects.isEmpty());
-				logger.info("Exported {} objects from app '{}'. (pager.count={})",
-						count, app.getId(), pager.getCount());
-			} catch (IOException e) {
-				logger.error("Failed to export data.", e);
-			}
-		};
 		return ResponseEntity.ok()
 				.contentType(MediaType.parseMediaType("application/zip"))
 				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + fileName + ".zip")
-				.body(stream);
+				.body(new BackupExporter(app, fileName));
 	}
 
 	/**
@@ -1182,44 +1447,10 @@ public final class Api1 {
 			return getStatusResponse(HttpStatus.NOT_FOUND, "App not found.");
 		}
 		return respondToClient(req, () -> {
-			ObjectReader reader = ParaObjectUtils.getJsonMapper()
-					.readerFor(new TypeReference<List<Map<String, Object>>>() {
-					});
-			int count = 0;
-			int importBatchSize = Para.getConfig().importBatchSize();
 			String filename = Optional.ofNullable(queryParam("filename", req))
 					.orElse(app.getAppIdentifier().trim() + "_backup.zip");
-			Sysprop s = new Sysprop();
-			s.setType("paraimport");
-			try (InputStream inputStream = req.getInputStream(); ZipInputStream zipIn = new ZipInputStream(inputStream)) {
-				ZipEntry zipEntry;
-				List<ParaObject> toCreate = new LinkedList<>();
-				while ((zipEntry = zipIn.getNextEntry()) != null) {
-					if (zipEntry.getName().endsWith(".json")) {
-						List<Map<String, Object>> objects = reader.readValue(new FilterInputStream(zipIn) {
-							public void close() throws IOException {
-								zipIn.closeEntry();
-							}
-						});
-						objects.forEach(o -> toCreate.add(ParaObjectUtils.setAnnotatedFields(o)));
-						if (toCreate.size() >= importBatchSize) {
-							getDAO().createAll(app.getAppIdentifier(), toCreate);
-							toCreate.clear();
-						}
-						count += objects.size();
-					}
-				}
-				if (!toCreate.isEmpty()) {
-					getDAO().createAll(app.getAppIdentifier(), toCreate);
-				}
-				s.setCreatorid(app.getAppIdentifier());
-				s.setName(filename);
-				s.addProperty("count", count);
-				logger.info("Imported {} objects to app '{}'", count, app.getId());
-				if (count > 0) {
-					getDAO().create(app.getAppIdentifier(), s);
-				}
-				return ResponseEntity.ok(s);
+			try (InputStream inputStream = req.getInputStream()) {
+				return ResponseEntity.ok(new BackupImporter(app, filename).importFrom(inputStream));
 			} catch (Exception e) {
 				logger.error("Failed to import " + filename, e);
 				return getStatusResponse(HttpStatus.BAD_REQUEST, "Import failed - " + e.getMessage());
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.rest;
+
+import com.erudika.para.core.App;
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.utils.Pager;
+import com.erudika.para.core.utils.Para;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Exports all objects of an app as a ZIP file of JSON parts. The export is pipelined - a reader thread fetches
+ * pages ahead and groups them into parts, the parts are serialized in parallel and the serialized parts are
+ * written to the ZIP stream in order, so reading from the database, serialization and compression overlap.
+ * If any part of the export fails, the ZIP file is left unfinished and the response is aborted, so that a partial
+ * export can't be mistaken for a complete backup.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class BackupExporter implements StreamingResponseBody {
+
+	private static final Logger logger = LoggerFactory.getLogger(BackupExporter.class);
+	private static final List<ParaObject> END = Collections.emptyList();
+	private static final ObjectWriter WRITER = JsonMapper.builder().disable(MapperFeature.USE_ANNOTATIONS).build()
+			.writer().without(SerializationFeature.INDENT_OUTPUT);
+
+	private final App app;
+	private final String fileName;
+	private final AtomicBoolean stopped = new AtomicBoolean();
+	private final AtomicReference<Exception> readError = new AtomicReference<>();
+
+	/**
+	 * Default constructor.
+	 * @param app the app to export
+	 * @param fileName the name of the backup file, without extension
+	 */
+	BackupExporter(App app, String fileName) {
+		this.app = app;
+		this.fileName = fileName;
+	}
+
+	@Override
+	public void writeTo(OutputStream os) throws IOException {
+		int threads = Math.max(1, Para.getConfig().exportThreads());
+		int level = Para.getConfig().exportCompressionLevel();
+		BlockingQueue<List<ParaObject>> parts = new ArrayBlockingQueue<>(threads * 2);
+		Pager pager = new Pager();
+		Thread reader = Thread.ofVirtual().name("para-export-" + app.getAppIdentifier()).start(() -> read(pager, parts));
+		ExecutorService serializers = Executors.newFixedThreadPool(threads, Thread.ofVirtual().name("para-export-", 0).factory());
+		long count = 0;
+		ZipOutputStream zipOut = new ZipOutputStream(os);
+		try {
+			zipOut.setLevel(level >= 0 && level <= 9 ? level : Deflater.DEFAULT_COMPRESSION);
+			Deque<Future<byte[]>> pending = new ArrayDeque<>(threads);
+			int partNum = 0;
+			List<ParaObject> part;
+			while ((part = parts.take()) != END) {
+				List<ParaObject> objects = part;
+				pending.add(serializers.submit(() -> WRITER.writeValueAsBytes(objects)));
+				count += objects.size();
+				if (pending.size() >= threads) {
+					writePart(zipOut, ++partNum, pending.poll());
+				}
+			}
+			while (!pending.isEmpty()) {
+				writePart(zipOut, ++partNum, pending.poll());
+			}
+			if (readError.get() != null) {
+				throw new IOException("Failed to read objects from app '" + app.getId() + "'.", readError.get());
+			}
+			// the ZIP file is completed only when all objects were exported
+			zipOut.close();
+			logger.info("Exported {} objects from app '{}'. (pager.count={})", count, app.getId(), pager.getCount());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Export of app '" + app.getId() + "' was interrupted.");
+		} catch (IOException | ExecutionException e) {
+			logger.error("Failed to export data from app '{}', the export was aborted.", app.getId(), e);
+			throw e instanceof IOException ioe ? ioe : new IOException(e.getMessage(), e);
+		} finally {
+			stopped.set(true);
+			serializers.shutdownNow();
+			try {
+				reader.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void read(Pager pager, BlockingQueue<List<ParaObject>> parts) {
+		int objectsPerPart = Math.max(1, Para.getConfig().exportObjectsPerPart());
+		try {
+			List<ParaObject> part = new ArrayList<>(objectsPerPart);
+			List<ParaObject> objects;
+			do {
+				objects = Para.getDAO().readPage(app.getAppIdentifier(), pager);
+				for (ParaObject object : objects) {
+					part.add(object);
+					if (part.size() >= objectsPerPart) {
+						if (!put(parts, part)) {
+							return;
+						}
+						part = new ArrayList<>(objectsPerPart);
+					}
+				}
+			} while (!objects.isEmpty() && !stopped.get());
+			if (!part.isEmpty()) {
+				put(parts, part);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			readError.set(e);
+		} finally {
+			try {
+				put(parts, END);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private boolean put(BlockingQueue<List<ParaObject>> parts, List<ParaObject> part) throws InterruptedException {
+		// the writer may have stopped, e.g. when the client disconnects, and won't take any more parts
+		while (!stopped.get()) {
+			if (parts.offer(part, 100, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void writePart(ZipOutputStream zipOut, int partNum, Future<byte[]> part)
+			throws IOException, ExecutionException, InterruptedException {
+		zipOut.putNextEntry(new ZipEntry(fileName + "_part" + partNum + ".json"));
+		zipOut.write(part.get());
+		zipOut.closeEntry();
+	}
+}
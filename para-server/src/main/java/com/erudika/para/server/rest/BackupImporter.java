@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.rest;
+
+import com.erudika.para.core.App;
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.Sysprop;
+import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.ParaObjectUtils;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Restores the objects of an app from a backup ZIP file. Each JSON part is parsed one object at a time and
+ * the objects are handed, in batches, to a pool of writers through a bounded queue, so memory use doesn't depend
+ * on the size of the backup. Progress is recorded on a {@code paraimport} object, which is updated while the
+ * import is running.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class BackupImporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(BackupImporter.class);
+	private static final List<ParaObject> END = Collections.emptyList();
+	private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+	private final App app;
+	private final String filename;
+	private final ObjectReader reader = ParaObjectUtils.getJsonReader(Map.class);
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicReference<Exception> error = new AtomicReference<>();
+
+	/**
+	 * Default constructor.
+	 * @param app the app to import into
+	 * @param filename the name of the backup file
+	 */
+	BackupImporter(App app, String filename) {
+		this.app = app;
+		this.filename = filename;
+	}
+
+	/**
+	 * Imports all objects from a backup.
+	 * @param is a ZIP stream
+	 * @return the {@code paraimport} object with the number of imported objects
+	 * @throws Exception if the backup can't be read or objects can't be written
+	 */
+	Sysprop importFrom(InputStream is) throws Exception {
+		String appid = app.getAppIdentifier();
+		int batchSize = Math.max(1, Para.getConfig().importBatchSize());
+		int writers = Math.max(1, Para.getConfig().importWriters());
+		Sysprop s = new Sysprop();
+		s.setType("paraimport");
+		s.setCreatorid(appid);
+		s.setName(filename);
+		s.addProperty("count", 0);
+		s.addProperty("status", "running");
+		Para.getDAO().create(appid, s);
+
+		BlockingQueue<List<ParaObject>> batches = new ArrayBlockingQueue<>(writers * 2);
+		List<Thread> threads = new ArrayList<>(writers);
+		for (int i = 0; i < writers; i++) {
+			threads.add(Thread.ofVirtual().name("para-import-" + i).start(() -> write(appid, batches)));
+		}
+		long lastProgress = System.currentTimeMillis();
+		long count = 0;
+		try (ZipInputStream zipIn = new ZipInputStream(is)) {
+			ZipEntry zipEntry;
+			List<ParaObject> batch = new ArrayList<>(batchSize);
+			while (error.get() == null && (zipEntry = zipIn.getNextEntry()) != null) {
+				if (!zipEntry.getName().endsWith(".json")) {
+					continue;
+				}
+				try (JsonParser jp = reader.createParser(nonClosing(zipIn))) {
+					if (jp.nextToken() != JsonToken.START_ARRAY) {
+						throw new JsonParseException(jp, "Expected a JSON array in " + zipEntry.getName());
+					}
+					while (error.get() == null && jp.nextToken() == JsonToken.START_OBJECT) {
+						Map<String, Object> object = reader.readValue(jp);
+						ParaObject pobj = ParaObjectUtils.setAnnotatedFields(object);
+						if (pobj != null) {
+							batch.add(pobj);
+							count++;
+						}
+						if (batch.size() >= batchSize) {
+							batches.put(batch);
+							batch = new ArrayList<>(batchSize);
+						}
+						if (System.currentTimeMillis() - lastProgress > PROGRESS_INTERVAL) {
+							updateProgress(s, "running");
+							lastProgress = System.currentTimeMillis();
+						}
+					}
+				}
+				zipIn.closeEntry();
+			}
+			if (!batch.isEmpty()) {
+				batches.put(batch);
+			}
+		} catch (Exception e) {
+			error.compareAndSet(null, e);
+		} finally {
+			for (int i = 0; i < writers; i++) {
+				batches.put(END);
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		}
+		if (error.get() != null) {
+			s.addProperty("error", error.get().getMessage());
+			updateProgress(s, "failed");
+			throw error.get();
+		}
+		updateProgress(s, "done");
+		logger.info("Imported {} objects to app '{}'", count, app.getId());
+		return s;
+	}
+
+	private void write(String appid, BlockingQueue<List<ParaObject>> batches) {
+		try {
+			List<ParaObject> batch;
+			while ((batch = batches.take()) != END) {
+				if (error.get() != null) {
+					continue; // drain the queue so that the reader isn't blocked
+				}
+				try {
+					Para.getDAO().createAll(appid, batch);
+					written.addAndGet(batch.size());
+				} catch (Exception e) {
+					logger.error("Failed to import a batch of {} objects to app '{}': {}", batch.size(), appid, e.getMessage());
+					error.compareAndSet(null, e);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void updateProgress(Sysprop s, String status) {
+		s.addProperty("count", written.get());
+		s.addProperty("status", status);
+		try {
+			Para.getDAO().update(app.getAppIdentifier(), s);
+		} catch (Exception e) {
+			logger.warn("Failed to update import progress for app '{}': {}", app.getAppIdentifier(), e.getMessage());
+		}
+	}
+
+	private static InputStream nonClosing(ZipInputStream zipIn) {
+		// the parser would otherwise close the whole ZIP stream after the first entry
+		return new FilterInputStream(zipIn) {
+			public void close() throws IOException {
+				// the entry is closed explicitly
+			}
+		};
+	}
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.rest;
+
+import com.erudika.para.core.App;
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.annotations.Locked;
+import com.erudika.para.core.metrics.Metrics;
+import com.erudika.para.core.utils.Config;
+import com.erudika.para.core.utils.CoreUtils;
+import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.ParaObjectUtils;
+import static com.erudika.para.core.validation.ValidationUtils.validateObject;
+import static com.erudika.para.server.security.SecurityUtils.checkIfUserCanModifyObject;
+import static com.erudika.para.server.security.SecurityUtils.checkImplicitAppPermissions;
+import static com.erudika.para.server.security.SecurityUtils.isInternalType;
+import static com.erudika.para.server.security.SecurityUtils.isNotAnApp;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Handles bulk requests in NDJSON format, where each line is an operation on a single object - one of
+ * {@code {"create": {...}}}, {@code {"update": {"id": "...", ...}}} or {@code {"delete": {"id": "..."}}}.
+ * The request body is parsed line by line, while the previous chunk of operations is being written to the DB,
+ * and a result is streamed back for each line, in order, also as NDJSON - {@code {"line": 1, "op": "create",
+ * "id": "...", "status": 201}}. Consecutive operations of the same kind are written together with
+ * {@code createAll()}, {@code updateAll()} or {@code deleteAll()}.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class BulkIngest implements StreamingResponseBody {
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkIngest.class);
+	private static final Set<String> OPS = Set.of("create", "update", "delete");
+	private static final List<Line> END = Collections.emptyList();
+
+	private final App app;
+	private final InputStream is;
+	private final SecurityContext securityContext;
+	private final ObjectReader reader = ParaObjectUtils.getJsonReader(Map.class);
+	private final ObjectWriter writer = ParaObjectUtils.getJsonWriterNoIdent();
+
+	/**
+	 * Default constructor.
+	 * @param app the app
+	 * @param is the request body
+	 */
+	BulkIngest(App app, InputStream is) {
+		this.app = app;
+		this.is = is;
+		// the request is processed on other threads, which need the authenticated user for permission checks
+		this.securityContext = SecurityContextHolder.getContext();
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		int chunkSize = Math.max(1, Para.getConfig().batchChunkSize());
+		int maxLineSize = Para.getConfig().maxEntitySizeBytes();
+		// parsing and writing overlap - at most two parsed chunks wait for the writer
+		BlockingQueue<List<Line>> chunks = new ArrayBlockingQueue<>(2);
+		AtomicBoolean failed = new AtomicBoolean();
+		Thread persister = Thread.ofVirtual().name("para-bulk-" + app.getAppIdentifier()).start(() -> {
+			SecurityContextHolder.setContext(securityContext);
+			try {
+				List<Line> chunk;
+				while ((chunk = chunks.take()) != END) {
+					if (failed.get()) {
+						continue; // drain the remaining chunks so that the parser isn't blocked
+					}
+					try {
+						writeResults(out, persist(chunk));
+					} catch (Exception e) {
+						failed.set(true); // client disconnected
+						logger.debug("Bulk request for app '{}' aborted: {}", app.getAppIdentifier(), e.getMessage());
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				SecurityContextHolder.clearContext();
+			}
+		});
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+			List<Line> chunk = new ArrayList<>(chunkSize);
+			StringBuilder buffer = new StringBuilder();
+			String text;
+			int lineNumber = 0;
+			while (!failed.get() && (text = readLine(br, buffer, maxLineSize)) != null) {
+				lineNumber++;
+				if (text.isBlank()) {
+					continue;
+				}
+				chunk.add(parse(lineNumber, text, maxLineSize));
+				if (chunk.size() >= chunkSize) {
+					chunks.put(chunk);
+					chunk = new ArrayList<>(chunkSize);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				chunks.put(chunk);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				chunks.put(END);
+				persister.join();
+			} catch (InterruptedException e) {
+				persister.interrupt();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Reads the next line, keeping at most one character more than the max. line size in memory - the rest of a
+	 * longer line is skipped, so such a line is rejected by its length without being buffered in full.
+	 * @return the line, without the line terminator, or null at the end of the stream
+	 */
+	private static String readLine(Reader reader, StringBuilder line, int maxLength) throws IOException {
+		line.setLength(0);
+		int c = reader.read();
+		if (c == -1) {
+			return null;
+		}
+		while (c != -1 && c != '\n') {
+			if (line.length() <= maxLength) {
+				line.append((char) c);
+			}
+			c = reader.read();
+		}
+		int last = line.length() - 1;
+		if (last >= 0 && last < maxLength && line.charAt(last) == '\r') {
+			line.setLength(last);
+		}
+		return line.toString();
+	}
+
+	private Line parse(int lineNumber, String text, int maxLineSize) {
+		if (text.length() > maxLineSize) {
+			return Line.error(lineNumber, null, HttpStatus.BAD_REQUEST, "Line is larger than the max. allowed size "
+					+ (maxLineSize / 1024) + " KB.");
+		}
+		try {
+			Map<String, Object> operation = reader.readValue(text);
+			if (operation == null || operation.size() != 1 || !OPS.contains(operation.keySet().iterator().next())) {
+				return Line.error(lineNumber, null, HttpStatus.BAD_REQUEST,
+						"Each line must be an object with a single 'create', 'update' or 'delete' key.");
+			}
+			String op = operation.keySet().iterator().next();
+			if (!(operation.get(op) instanceof Map<?, ?> data)) {
+				return Line.error(lineNumber, op, HttpStatus.BAD_REQUEST, "The '" + op + "' value must be an object.");
+			}
+			@SuppressWarnings("unchecked")
+			Map<String, Object> props = (Map<String, Object>) data;
+			if (!"create".equals(op) && !(props.get(Config._ID) instanceof String)) {
+				return Line.error(lineNumber, op, HttpStatus.BAD_REQUEST, "Missing object id.");
+			}
+			return new Line(lineNumber, op, props, null);
+		} catch (IOException e) {
+			return Line.error(lineNumber, null, HttpStatus.BAD_REQUEST, e.getMessage());
+		}
+	}
+
+	private List<Map<String, Object>> persist(List<Line> chunk) {
+		List<Map<String, Object>> results = new ArrayList<>(chunk.size());
+		int start = 0;
+		// consecutive lines with the same operation are written together, keeping the order of operations
+		while (start < chunk.size()) {
+			String op = chunk.get(start).op();
+			int end = start + 1;
+			while (end < chunk.size() && op != null && op.equals(chunk.get(end).op())) {
+				end++;
+			}
+			List<Line> run = chunk.subList(start, end);
+			start = end;
+			if (op == null) {
+				run.forEach(line -> results.add(line.result()));
+				continue;
+			}
+			try (Metrics.Context context = Metrics.time(app.getAppid(), RestUtils.class, "bulk", op)) {
+				if ("create".equals(op)) {
+					results.addAll(create(run));
+				} else if ("update".equals(op)) {
+					results.addAll(update(run));
+				} else {
+					results.addAll(delete(run));
+				}
+			} catch (Exception e) {
+				logger.error("Bulk {} failed for app '{}': {}", op, app.getAppIdentifier(), e.getMessage());
+				run.forEach(line -> results.add(Line.error(line.number(), line.op(),
+						HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage()).result()));
+			}
+		}
+		return results;
+	}
+
+	private List<Map<String, Object>> create(List<Line> run) {
+		List<Map<String, Object>> results = new ArrayList<>(run.size());
+		List<ParaObject> objects = new ArrayList<>(run.size());
+		List<Object> outcome = new ArrayList<>(run.size());
+		for (Line line : run) {
+			if (line.error() != null) {
+				outcome.add(line);
+				continue;
+			}
+			ParaObject pobj = ParaObjectUtils.setAnnotatedFields(line.data());
+			if (pobj == null) {
+				outcome.add(Line.error(line.number(), line.op(), HttpStatus.BAD_REQUEST, "Invalid object."));
+			} else if (!isNotAnApp(pobj.getType())) {
+				outcome.add(Line.error(line.number(), line.op(), HttpStatus.FORBIDDEN, "Apps can't be created in bulk."));
+			} else if (isInternalType(pobj.getType())) {
+				outcome.add(Line.error(line.number(), line.op(), HttpStatus.FORBIDDEN, "Objects of this type can't be created."));
+			} else {
+				pobj.setAppid(app.getAppIdentifier());
+				RestUtils.setCreatorid(app, pobj);
+				String[] errors = validateObject(app, pobj);
+				if (errors.length > 0) {
+					outcome.add(Line.error(line.number(), line.op(), HttpStatus.BAD_REQUEST, String.join("; ", errors)));
+				} else {
+					objects.add(pobj);
+					outcome.add(pobj);
+				}
+			}
+		}
+		Para.getDAO().createAll(app.getAppIdentifier(), objects);
+		if (!objects.isEmpty()) {
+			Para.asyncExecute(() -> {
+				if (app.addDatatypes(objects.toArray(ParaObject[]::new))) {
+					CoreUtils.getInstance().overwrite(app);
+				}
+			});
+		}
+		for (int i = 0; i < run.size(); i++) {
+			results.add(toResult(run.get(i), outcome.get(i), HttpStatus.CREATED));
+		}
+		return results;
+	}
+
+	private List<Map<String, Object>> update(List<Line> run) {
+		List<String> ids = new ArrayList<>(run.size());
+		run.stream().filter(line -> line.error() == null).forEach(line -> ids.add((String) line.data().get(Config._ID)));
+		Map<String, ParaObject> existing = ids.isEmpty() ? Collections.emptyMap() :
+				Para.getDAO().readAll(app.getAppIdentifier(), ids, true);
+		List<ParaObject> objects = new ArrayList<>(run.size());
+		List<Object> outcome = new ArrayList<>(run.size());
+		for (Line line : run) {
+			if (line.error() != null) {
+				outcome.add(line);
+				continue;
+			}
+			ParaObject old = existing.get((String) line.data().get(Config._ID));
+			if (old == null) {
+				outcome.add(Line.error(line.number(), line.op(), HttpStatus.NOT_FOUND, "Object not found."));
+			} else if (!checkImplicitAppPermissions(app, old) || !isNotAnApp(old.getType())) {
+				outcome.add(Line.error(line.number(), line.op(), HttpStatus.FORBIDDEN, "Apps can't be updated in bulk."));
+			} else if (isInternalType(old.getType())) {
+				outcome.add(Line.error(line.number(), line.op(), HttpStatus.FORBIDDEN, "Objects of this type can't be updated."));
+			} else {
+				ParaObject updated = ParaObjectUtils.setAnnotatedFields(old, line.data(), Locked.class);
+				String[] errors = validateObject(app, updated);
+				if (errors.length > 0) {
+					outcome.add(Line.error(line.number(), line.op(), HttpStatus.BAD_REQUEST, String.join("; ", errors)));
+				} else if (!checkIfUserCanModifyObject(app, updated)) {
+					outcome.add(Line.error(line.number(), line.op(), HttpStatus.FORBIDDEN, "Not allowed."));
+				} else {
+					updated.setAppid(app.getAppIdentifier());
+					objects.add(updated);
+					outcome.add(updated);
+				}
+			}
+		}
+		Para.getDAO().updateAll(app.getAppIdentifier(), objects);
+		List<Map<String, Object>> results = new ArrayList<>(run.size());
+		for (int i = 0; i < run.size(); i++) {
+			Object o = outcome.get(i);
+			if (o instanceof ParaObject pobj && pobj.getVersion() != null && pobj.getVersion() == -1) {
+				o = Line.error(run.get(i).number(), run.get(i).op(), HttpStatus.PRECONDITION_FAILED,
+						"Update failed due to 'version' mismatch.");
+			}
+			results.add(toResult(run.get(i), o, HttpStatus.OK));
+		}
+		return results;
+	}
+
+	private List<Map<String, Object>> delete(List<Line> run) {
+		List<String> ids = new ArrayList<>(run.size());
+		run.stream().filter(line -> line.error() == null).forEach(line -> ids.add((String) line.data().get(Config._ID)));
+		Map<String, ParaObject> existing = ids.isEmpty() ? Collections.emptyMap() :
+				Para.getDAO().readAll(app.getAppIdentifier(), ids, true);
+		List<ParaObject> objects = new ArrayList<>(run.size());
+		List<Object> outcome = new ArrayList<>(run.size());
+		for (Line line : run) {
+			if (line.error() != null) {
+				outcome.add(line);
+				continue;
+			}
+			ParaObject pobj = existing.get((String) line.data().get(Config._ID));
+			if (pobj == null || pobj.getType() == null) {
+				outcome.add(Line.error(line.number(), line.op(), HttpStatus.NOT_FOUND, "Object not found."));
+			} else if (!isNotAnApp(pobj.getType()) || !checkIfUserCanModifyObject(app, pobj)) {
+				outcome.add(Line.error(line.number(), line.op(), HttpStatus.FORBIDDEN, "Not allowed."));
+			} else {
+				objects.add(pobj);
+				outcome.add(pobj);
+			}
+		}
+		Para.getDAO().deleteAll(app.getAppIdentifier(), objects);
+		List<Map<String, Object>> results = new ArrayList<>(run.size());
+		for (int i = 0; i < run.size(); i++) {
+			results.add(toResult(run.get(i), outcome.get(i), HttpStatus.OK));
+		}
+		return results;
+	}
+
+	private Map<String, Object> toResult(Line line, Object outcome, HttpStatus success) {
+		if (outcome instanceof Line failed) {
+			return failed.result();
+		}
+		Map<String, Object> result = new LinkedHashMap<>(4);
+		result.put("line", line.number());
+		result.put("op", line.op());
+		result.put(Config._ID, ((ParaObject) outcome).getId());
+		result.put("status", success.value());
+		return result;
+	}
+
+	private void writeResults(OutputStream out, List<Map<String, Object>> results) throws IOException {
+		for (Map<String, Object> result : results) {
+			out.write(writer.writeValueAsBytes(result));
+			out.write('\n');
+		}
+		out.flush();
+	}
+
+	private record Line(int number, String op, Map<String, Object> data, Map<String, Object> error) {
+
+		static Line error(int number, String op, HttpStatus status, String message) {
+			Map<String, Object> error = new LinkedHashMap<>(4);
+			error.put("line", number);
+			error.put("op", op);
+			error.put("status", status.value());
+			error.put("error", message);
+			return new Line(number, op, null, error);
+		}
+
+		Map<String, Object> result() {
+			return error;
+		}
+	}
+}
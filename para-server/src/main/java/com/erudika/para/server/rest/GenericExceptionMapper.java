@@ -18,6 +18,7 @@
 
 package com.erudika.para.server.rest;
 
+import com.erudika.para.core.queue.QueueFullException;
 import static com.erudika.para.server.ParaServer.API_PATH;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -55,6 +56,18 @@ public class GenericExceptionMapper {
 		return getExceptionResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), ex.getMessage());
 	}
 
+	/**
+	 * Handles rejected messages when the queue is full, for requests which push to the queue directly,
+	 * like triggering a custom webhook event. The client should retry later.
+	 * @param ex the exception
+	 * @return response
+	 */
+	@ExceptionHandler(QueueFullException.class)
+	public ResponseEntity<Map<String, Object>> handleQueueFull(QueueFullException ex) {
+		logger.warn("API request rejected: {}", ex.getMessage());
+		return getExceptionResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), ex.getMessage());
+	}
+
 	/**
 	 * Builds an exception response.
 	 * @param status status code
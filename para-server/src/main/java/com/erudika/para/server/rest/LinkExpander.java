@@ -0,0 +1,202 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.rest;
+
+import com.erudika.para.core.App;
+import com.erudika.para.core.Linker;
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.utils.Pager;
+import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.Utils;
+import static com.erudika.para.server.security.SecurityUtils.checkIfUserCanModifyObject;
+import static com.erudika.para.server.security.SecurityUtils.checkImplicitAppPermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Resolves the objects related to a page of items, as requested with the {@code expand} parameter, e.g.
+ * {@code expand=parent,creator,links:tag}. The ids of all related objects are collected for the whole page first,
+ * so that links are found with one search for each linked type and all objects are read with a single call to
+ * {@code DAO.readAll()}, instead of one request for each item.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class LinkExpander {
+
+	private static final String PARENT = "parent";
+	private static final String CREATOR = "creator";
+	private static final String LINKS_PREFIX = "links:";
+	private static final int MAX_EXPANSIONS = 10;
+
+	private final App app;
+	private final Set<String> expansions = new LinkedHashSet<>();
+	private final Set<String> truncated = new LinkedHashSet<>();
+
+	/**
+	 * Default constructor.
+	 * @param app the app
+	 * @param expand the value of the {@code expand} parameter, a comma-separated list of
+	 * {@code parent}, {@code creator} and {@code links:type}
+	 */
+	LinkExpander(App app, String expand) {
+		this.app = app;
+		for (String e : StringUtils.split(StringUtils.trimToEmpty(expand), ',')) {
+			String expansion = StringUtils.trimToEmpty(e);
+			if ((PARENT.equals(expansion) || CREATOR.equals(expansion) || (expansion.startsWith(LINKS_PREFIX) &&
+					expansion.length() > LINKS_PREFIX.length())) && expansions.size() < MAX_EXPANSIONS) {
+				expansions.add(expansion);
+			}
+		}
+	}
+
+	/**
+	 * @return true if nothing should be expanded
+	 */
+	boolean isEmpty() {
+		return app == null || expansions.isEmpty();
+	}
+
+	/**
+	 * Finds the related objects of each item.
+	 * @param items a page of items
+	 * @return a map of item ids to a map of expansions, e.g. {@code {"parent": {...}, "links:tag": [...]}}
+	 */
+	Map<String, Map<String, Object>> expand(List<? extends ParaObject> items) {
+		if (isEmpty() || items == null || items.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Set<String> ids = new LinkedHashSet<>();
+		Map<String, Map<String, List<String>>> linkedIds = new LinkedHashMap<>();
+		for (String expansion : expansions) {
+			if (expansion.startsWith(LINKS_PREFIX)) {
+				Map<String, List<String>> linked = findLinkedIds(items, StringUtils.removeStart(expansion, LINKS_PREFIX));
+				linked.values().forEach(ids::addAll);
+				linkedIds.put(expansion, linked);
+			} else {
+				for (ParaObject item : items) {
+					addIfNotBlank(ids, PARENT.equals(expansion) ? item.getParentid() : item.getCreatorid());
+				}
+			}
+		}
+		Map<String, ParaObject> objects = readAll(ids);
+		Map<String, Map<String, Object>> expanded = new LinkedHashMap<>(items.size());
+		for (ParaObject item : items) {
+			Map<String, Object> related = new LinkedHashMap<>(expansions.size());
+			for (String expansion : expansions) {
+				if (expansion.startsWith(LINKS_PREFIX)) {
+					List<ParaObject> linked = new ArrayList<>();
+					for (String id : linkedIds.get(expansion).getOrDefault(item.getId(), Collections.emptyList())) {
+						if (objects.containsKey(id)) {
+							linked.add(objects.get(id));
+						}
+					}
+					related.put(expansion, linked);
+				} else {
+					related.put(expansion, objects.get(PARENT.equals(expansion) ? item.getParentid() : item.getCreatorid()));
+				}
+			}
+			expanded.put(item.getId(), related);
+		}
+		return expanded;
+	}
+
+	/**
+	 * @return the expansions with more linked objects than {@code para.expand_max_links}, which were cut short
+	 */
+	Set<String> getTruncated() {
+		return Collections.unmodifiableSet(truncated);
+	}
+
+	/**
+	 * Finds the links of all items to objects of the given type, with one search for each type of item,
+	 * reading the results page by page, up to {@code para.expand_max_links} links in total.
+	 * @return a map of item ids to linked object ids
+	 */
+	private Map<String, List<String>> findLinkedIds(List<? extends ParaObject> items, String type2) {
+		Map<String, List<String>> idsByType = new LinkedHashMap<>();
+		for (ParaObject item : items) {
+			if (item.getId() != null && item.getType() != null) {
+				idsByType.computeIfAbsent(item.getType(), k -> new ArrayList<>()).add(item.getId());
+			}
+		}
+		Map<String, List<String>> linkedIds = new LinkedHashMap<>();
+		int maxLinks = Math.max(1, Para.getConfig().expandMaxLinks());
+		int found = 0;
+		for (Map.Entry<String, List<String>> entry : idsByType.entrySet()) {
+			String type = entry.getKey();
+			Linker proto = new Linker(type, type2, null, null);
+			// when both objects are of the same type, the item can be on either side of the link
+			List<String> idFields = type.equals(type2) ? List.of("id1", "id2") : List.of(proto.getIdFieldNameFor(type));
+			for (String idField : idFields) {
+				Pager pager = new Pager(1, "_docid", false, Math.min(maxLinks + 1, Para.getConfig().maxItemsPerPage()));
+				pager.setCountMode(Pager.CountMode.NONE);
+				List<Linker> links;
+				do {
+					links = Para.getSearch().findTermInList(app.getAppIdentifier(), Utils.type(Linker.class),
+							idField, entry.getValue(), pager);
+					for (Linker link : links) {
+						if (!proto.getName().equals(link.getName())) {
+							continue;
+						}
+						boolean itemIsFirst = "id1".equals(idField);
+						String itemId = itemIsFirst ? link.getId1() : link.getId2();
+						String linkedId = itemIsFirst ? link.getId2() : link.getId1();
+						if (itemId != null && linkedId != null) {
+							if (found >= maxLinks) {
+								truncated.add(LINKS_PREFIX + type2);
+								return linkedIds;
+							}
+							linkedIds.computeIfAbsent(itemId, k -> new ArrayList<>()).add(linkedId);
+							found++;
+						}
+					}
+					if (StringUtils.isBlank(pager.getLastKey())) {
+						pager.setPage(pager.getPage() + 1);
+					}
+				} while (!links.isEmpty() && links.size() >= pager.getLimit());
+			}
+		}
+		return linkedIds;
+	}
+
+	private Map<String, ParaObject> readAll(Set<String> ids) {
+		if (ids.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, ParaObject> objects = Para.getDAO().readAll(app.getAppIdentifier(), new ArrayList<>(ids), true);
+		Map<String, ParaObject> allowed = new LinkedHashMap<>(objects.size());
+		objects.forEach((id, obj) -> {
+			// related objects are subject to the same checks as the items themselves
+			if (obj != null && checkImplicitAppPermissions(app, obj) && checkIfUserCanModifyObject(app, obj)) {
+				allowed.put(id, obj);
+			}
+		});
+		return allowed;
+	}
+
+	private static void addIfNotBlank(Set<String> ids, String id) {
+		if (!StringUtils.isBlank(id)) {
+			ids.add(id);
+		}
+	}
+}
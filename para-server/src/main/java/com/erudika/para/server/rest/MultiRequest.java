@@ -0,0 +1,489 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.rest;
+
+import com.erudika.para.core.App;
+import com.erudika.para.core.User;
+import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.ParaObjectUtils;
+import com.erudika.para.server.ParaServer;
+import static com.erudika.para.server.rest.RestUtils.getStatusResponse;
+import com.erudika.para.server.security.SecurityUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Executes a list of API operations sent in a single request to {@code /v1/_multi}. Each operation is an object
+ * like {@code {"method": "POST", "path": "user", "params": {...}, "body": {...}}} and can refer to the results of
+ * earlier operations with {@code $N.field} (e.g. {@code "path": "user/$0.id/links/$1.id"}), where N is the index
+ * of the earlier operation. An operation runs after the operations it refers to, or lists in {@code dependsOn},
+ * and independent operations run in parallel. Each operation goes through the same permission checks as a
+ * separate request and the results are returned in order, as {@code {"status": 200, "body": {...}}}.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class MultiRequest {
+
+	private static final Logger logger = LoggerFactory.getLogger(MultiRequest.class);
+	private static final Pattern REFERENCE = Pattern.compile("\\$(\\d+)((?:\\.[\\w-]+)+)");
+	private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "PATCH", "DELETE");
+
+	private final Api1 api;
+	private final App app;
+	private final HttpServletRequest req;
+	private final User user;
+	private final boolean anonymous;
+	private final SecurityContext securityContext;
+
+	/**
+	 * Default constructor.
+	 * @param api the API controller which handles the operations
+	 * @param app the app
+	 * @param req the multi-request
+	 */
+	MultiRequest(Api1 api, App app, HttpServletRequest req) {
+		this.api = api;
+		this.app = app;
+		this.req = req;
+		this.user = SecurityUtils.getAuthenticatedUser();
+		this.anonymous = user == null && RestUtils.isAnonymousRequest(req);
+		// operations run on other threads, which need the authenticated user for permission checks
+		this.securityContext = SecurityContextHolder.getContext();
+	}
+
+	/**
+	 * Executes all operations.
+	 * @param operations a list of operations
+	 * @return a list of results, one for each operation, or status code 400 if the operations are invalid
+	 */
+	ResponseEntity<?> execute(List<?> operations) {
+		if (operations == null || operations.isEmpty()) {
+			return getStatusResponse(HttpStatus.BAD_REQUEST, "Missing operations.");
+		}
+		int max = Para.getConfig().multiMaxOperations();
+		if (operations.size() > max) {
+			return getStatusResponse(HttpStatus.BAD_REQUEST, "Too many operations - the maximum is " + max + ".");
+		}
+		List<Operation> ops = new ArrayList<>(operations.size());
+		for (Object o : operations) {
+			if (!(o instanceof Map<?, ?> map)) {
+				return getStatusResponse(HttpStatus.BAD_REQUEST, "Operation " + ops.size() + " is not an object.");
+			}
+			Operation op = new Operation(ops.size(), map);
+			String error = op.validate();
+			if (error != null) {
+				return getStatusResponse(HttpStatus.BAD_REQUEST, "Invalid operation " + op.index + " - " + error);
+			}
+			ops.add(op);
+		}
+		List<CompletableFuture<Result>> futures = new ArrayList<>(ops.size());
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (Operation op : ops) {
+				CompletableFuture<?>[] deps = op.dependencies.stream().map(futures::get).toArray(CompletableFuture[]::new);
+				futures.add(CompletableFuture.allOf(deps).thenApplyAsync(v -> run(op, futures), executor));
+			}
+			List<Map<String, Object>> results = new ArrayList<>(ops.size());
+			for (CompletableFuture<Result> future : futures) {
+				results.add(future.join().toMap());
+			}
+			return ResponseEntity.ok(results);
+		}
+	}
+
+	private Result run(Operation op, List<CompletableFuture<Result>> futures) {
+		for (Integer dep : op.dependencies) {
+			Result r = futures.get(dep).join();
+			if (!r.isSuccessful()) {
+				return Result.error(HttpStatus.FAILED_DEPENDENCY, "Operation " + dep + " failed.");
+			}
+		}
+		SecurityContextHolder.setContext(securityContext);
+		try {
+			Object resolved = resolve(op.spec, futures);
+			if (!(resolved instanceof Map<?, ?> spec)) {
+				return Result.error(HttpStatus.BAD_REQUEST, "Invalid operation.");
+			}
+			String method = StringUtils.upperCase((String) spec.get("method"));
+			String path = StringUtils.strip(String.valueOf(spec.get("path")), "/");
+			String denied = checkPermission(method, path);
+			if (denied != null) {
+				return Result.error(HttpStatus.FORBIDDEN, denied);
+			}
+			SubRequest subRequest = new SubRequest(req, method, path, spec.get("params"), spec.get("body"));
+			return Result.of(dispatch(method, StringUtils.split(path, '/'), subRequest));
+		} catch (Exception e) {
+			logger.error("Operation {} of multi-request failed: {}", op.index, e.getMessage());
+			return Result.error(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+
+	/**
+	 * Does the same checks as {@code RestAuthFilter} for a separate request.
+	 */
+	private String checkPermission(String method, String path) {
+		if (app.getReadOnly() && !"GET".equals(method)) {
+			return "App is in read-only mode. [" + app.getId() + "]";
+		}
+		if ((user == null && !anonymous) || (user != null && user.isAdmin()) ||
+				(path.matches("^_permissions/.+") && "GET".equals(method))) {
+			return null;
+		}
+		String subjectid = (user == null) ? "" : user.getId();
+		if (app.isAllowedTo(subjectid, path, method)) {
+			return null;
+		}
+		return "You don't have permission to access this resource. [user: " +
+				(user == null ? "[GUEST]" : user.getId()) + ", resource: " + method + " " + path + "]";
+	}
+
+	private ResponseEntity<?> dispatch(String method, String[] s, HttpServletRequest r) throws IOException {
+		int n = s.length;
+		boolean isGet = "GET".equals(method);
+		if (n == 0) {
+			return unsupported(method, s);
+		}
+		if (s[0].equals("search") && isGet && n <= 2) {
+			return api.searchHandler(app, null, n == 2 ? s[1] : null, r);
+		}
+		if (s[0].equals("_batch") && isGet && n == 1) {
+			return api.batchReadHandler(app, r);
+		}
+		if (s[0].equals("_id") && isGet && n == 2) {
+			return api.readIdHandler(app, s[1]);
+		}
+		if (s[0].startsWith("_")) {
+			return unsupported(method, s);
+		}
+		if (n == 1) {
+			if (isGet) {
+				return api.searchHandler(app, s[0], null, r);
+			} else if ("POST".equals(method)) {
+				return api.createHandler(app, s[0], r);
+			}
+		} else if (n == 2 || (n == 3 && s[1].equals("search"))) {
+			if (s[1].equals("search") && isGet) {
+				return api.searchHandler(app, s[0], n == 3 ? s[2] : null, r);
+			}
+			return switch (method) {
+				case "GET" -> api.readHandler(app, s[0], s[1]);
+				case "PATCH" -> api.updateHandler(app, s[0], s[1], r);
+				case "PUT" -> api.overwriteHandler(app, s[0], s[1], r);
+				case "DELETE" -> api.deleteHandler(app, s[0], s[1], r);
+				default -> unsupported(method, s);
+			};
+		} else if (s[2].equals("links")) {
+			return dispatchLinks(method, s, r);
+		}
+		return unsupported(method, s);
+	}
+
+	private ResponseEntity<?> dispatchLinks(String method, String[] s, HttpServletRequest r) {
+		int n = s.length;
+		if (n == 3 && "DELETE".equals(method)) {
+			return api.deleteAllLinks(s[0], s[1], r);
+		} else if (n == 4) {
+			return switch (method) {
+				case "GET" -> api.readLinksForType(s[0], s[1], s[3], r);
+				case "POST" -> api.createLink(s[0], s[1], s[3], r);
+				case "PUT" -> api.putLink(s[0], s[1], s[3], r);
+				default -> unsupported(method, s);
+			};
+		} else if (n == 5) {
+			return switch (method) {
+				case "GET" -> api.readLink(s[0], s[1], s[3], s[4], r);
+				case "DELETE" -> api.deleteLink(s[0], s[1], s[3], s[4], r);
+				default -> unsupported(method, s);
+			};
+		}
+		return unsupported(method, s);
+	}
+
+	private ResponseEntity<?> unsupported(String method, String[] path) {
+		return getStatusResponse(HttpStatus.BAD_REQUEST,
+				"Unsupported operation " + method + " " + String.join("/", path));
+	}
+
+	/**
+	 * Replaces all references to the results of earlier operations with their values.
+	 */
+	@SuppressWarnings("unchecked")
+	private Object resolve(Object value, List<CompletableFuture<Result>> futures) {
+		if (value instanceof String str) {
+			Matcher m = REFERENCE.matcher(str);
+			if (m.matches()) {
+				return futures.get(Integer.parseInt(m.group(1))).join().get(m.group(2)); // keep the type of the value
+			}
+			m.reset();
+			StringBuilder sb = new StringBuilder();
+			while (m.find()) {
+				Object v = futures.get(Integer.parseInt(m.group(1))).join().get(m.group(2));
+				m.appendReplacement(sb, Matcher.quoteReplacement(v == null ? "" : String.valueOf(v)));
+			}
+			m.appendTail(sb);
+			return sb.toString();
+		} else if (value instanceof Map<?, ?> map) {
+			Map<String, Object> resolved = new LinkedHashMap<>(map.size());
+			map.forEach((k, v) -> resolved.put(String.valueOf(k), resolve(v, futures)));
+			return resolved;
+		} else if (value instanceof List<?> list) {
+			List<Object> resolved = new ArrayList<>(list.size());
+			list.forEach(v -> resolved.add(resolve(v, futures)));
+			return resolved;
+		}
+		return value;
+	}
+
+	/**
+	 * A single operation.
+	 */
+	private static final class Operation {
+		private final int index;
+		private final Map<?, ?> spec;
+		private final Set<Integer> dependencies = new LinkedHashSet<>();
+
+		Operation(int index, Map<?, ?> spec) {
+			this.index = index;
+			this.spec = spec;
+		}
+
+		String validate() {
+			if (!METHODS.contains(StringUtils.upperCase(String.valueOf(spec.get("method"))))) {
+				return "'method' must be one of " + METHODS + ".";
+			}
+			if (!(spec.get("path") instanceof String)) {
+				return "'path' is required.";
+			}
+			if (spec.get("dependsOn") instanceof List<?> list) {
+				for (Object dep : list) {
+					dependencies.add(NumberUtils.toInt(String.valueOf(dep), -1));
+				}
+			}
+			collectReferences(spec);
+			for (Integer dep : dependencies) {
+				if (dep < 0 || dep >= index) {
+					return "it can only refer to earlier operations.";
+				}
+			}
+			return null;
+		}
+
+		private void collectReferences(Object value) {
+			if (value instanceof String str) {
+				Matcher m = REFERENCE.matcher(str);
+				while (m.find()) {
+					dependencies.add(NumberUtils.toInt(m.group(1), -1));
+				}
+			} else if (value instanceof Map<?, ?> map) {
+				map.values().forEach(this::collectReferences);
+			} else if (value instanceof List<?> list) {
+				list.forEach(this::collectReferences);
+			}
+		}
+	}
+
+	/**
+	 * The result of an operation.
+	 */
+	private static final class Result {
+		private final int status;
+		private final Object body;
+		private JsonNode tree;
+
+		private Result(int status, Object body) {
+			this.status = status;
+			this.body = body;
+		}
+
+		static Result of(ResponseEntity<?> response) {
+			return new Result(response.getStatusCode().value(), response.getBody());
+		}
+
+		static Result error(HttpStatus status, String message) {
+			return of(getStatusResponse(status, message));
+		}
+
+		boolean isSuccessful() {
+			return status >= 200 && status < 300;
+		}
+
+		/**
+		 * Returns the value of a field in the result, e.g. ".id" or ".items.0.name".
+		 */
+		synchronized Object get(String fieldPath) {
+			if (tree == null) {
+				tree = ParaObjectUtils.getJsonMapper().valueToTree(body);
+			}
+			JsonNode node = tree;
+			for (String field : StringUtils.split(fieldPath, '.')) {
+				node = node.isArray() && NumberUtils.isDigits(field) ? node.path(Integer.parseInt(field)) : node.path(field);
+			}
+			return node.isMissingNode() || node.isNull() ? null :
+					ParaObjectUtils.getJsonMapper().convertValue(node, Object.class);
+		}
+
+		Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<>(2);
+			map.put("status", status);
+			map.put("body", body);
+			return map;
+		}
+	}
+
+	/**
+	 * An operation in the form of a request to the API.
+	 */
+	private static final class SubRequest extends HttpServletRequestWrapper {
+		private final String method;
+		private final String path;
+		private final Map<String, String[]> params;
+		private final byte[] body;
+
+		SubRequest(HttpServletRequest request, String method, String path, Object params, Object body) throws IOException {
+			super(request);
+			this.method = method;
+			this.path = path;
+			this.params = new LinkedHashMap<>();
+			if (params instanceof Map<?, ?> map) {
+				map.forEach((k, v) -> {
+					if (v instanceof List<?> list) {
+						this.params.put(String.valueOf(k), list.stream().map(String::valueOf).toArray(String[]::new));
+					} else if (v != null) {
+						this.params.put(String.valueOf(k), new String[]{String.valueOf(v)});
+					}
+				});
+			}
+			this.body = body == null ? new byte[0] : ParaObjectUtils.getJsonWriterNoIdent().writeValueAsBytes(body);
+		}
+
+		@Override
+		public String getMethod() {
+			return method;
+		}
+
+		@Override
+		public String getRequestURI() {
+			return StringUtils.stripEnd(getContextPath(), "/") + ParaServer.API_PATH + "/" + path;
+		}
+
+		@Override
+		public String getQueryString() {
+			return null;
+		}
+
+		@Override
+		public String getParameter(String name) {
+			String[] values = params.get(name);
+			return values == null || values.length == 0 ? null : values[0];
+		}
+
+		@Override
+		public String[] getParameterValues(String name) {
+			return params.get(name);
+		}
+
+		@Override
+		public Map<String, String[]> getParameterMap() {
+			return Collections.unmodifiableMap(params);
+		}
+
+		@Override
+		public Enumeration<String> getParameterNames() {
+			return Collections.enumeration(params.keySet());
+		}
+
+		@Override
+		public String getContentType() {
+			return MediaType.APPLICATION_JSON_VALUE;
+		}
+
+		@Override
+		public int getContentLength() {
+			return body.length;
+		}
+
+		@Override
+		public String getHeader(String name) {
+			if ("X-Para-Respond-Immediately".equalsIgnoreCase(name)) {
+				return null; // results are always returned
+			} else if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+				return getContentType();
+			}
+			return super.getHeader(name);
+		}
+
+		@Override
+		public ServletInputStream getInputStream() {
+			ByteArrayInputStream bais = new ByteArrayInputStream(body);
+			return new ServletInputStream() {
+				@Override
+				public int read() {
+					return bais.read();
+				}
+
+				@Override
+				public int read(byte[] buf, int off, int len) {
+					return bais.read(buf, off, len);
+				}
+
+				@Override
+				public boolean isFinished() {
+					return bais.available() <= 0;
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setReadListener(ReadListener listener) {
+					// noop
+				}
+			};
+		}
+	}
+}
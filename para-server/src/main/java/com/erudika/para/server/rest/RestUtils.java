@@ -35,10 +35,17 @@ import static com.erudika.para.server.security.SecurityUtils.checkIfUserCanModif
 import static com.erudika.para.server.security.SecurityUtils.checkImplicitAppPermissions;
 import static com.erudika.para.server.security.SecurityUtils.getAuthenticatedUser;
 import static com.erudika.para.server.security.SecurityUtils.getPrincipalApp;
+import static com.erudika.para.server.security.SecurityUtils.isInternalType;
 import static com.erudika.para.server.security.SecurityUtils.isNotAnApp;
+import com.erudika.para.server.utils.filters.FieldFilter;
+import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -48,14 +55,19 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
@@ -64,8 +76,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 /**
  * A few helper methods for handling REST requests and responses.
@@ -237,7 +252,7 @@ public final class RestUtils {
 					entity = is;
 				} else {
 					if (batchMode && is.available() > maxReqSize) {
-						JsonNode entityNode = ParaObjectUtils.getJsonReader(type).readTree(is);
+						JsonNode entityNode = getEntityReader(type).readTree(is);
 						boolean tooLarge = false;
 						if (entityNode.isArray()) {
 							for (JsonNode i : entityNode) {
@@ -251,9 +266,9 @@ public final class RestUtils {
 							return getStatusResponse(HttpStatus.BAD_REQUEST, "Batch request too large or "
 									+ "containing items larger than the max. allowed size " + maxReqSizeKb + " KB.");
 						}
-						entity = ParaObjectUtils.getJsonReader(type).readValue(entityNode);
+						entity = getEntityReader(type).readValue(entityNode);
 					} else {
-						entity = ParaObjectUtils.getJsonReader(type).readValue(is);
+						entity = getEntityReader(type).readValue(is);
 					}
 				}
 			} else {
@@ -271,6 +286,20 @@ public final class RestUtils {
 		return ResponseEntity.ok(entity);
 	}
 
+	/**
+	 * Returns a reader for request entities in the format of the current request, based on its
+	 * {@code Content-Type} header - JSON, Smile or CBOR.
+	 * @param type the type to read
+	 * @return an object reader
+	 */
+	static ObjectReader getEntityReader(Class<?> type) {
+		String contentType = null;
+		if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs) {
+			contentType = attrs.getRequest().getContentType();
+		}
+		return ParaObjectUtils.getMapperForMediaType(contentType).readerFor(type);
+	}
+
 	/**
 	 * Process voting request and create vote object.
 	 * @param object the object to cast vote on
@@ -322,7 +351,7 @@ public final class RestUtils {
 			// app can't modify other apps except itself
 			if (app != null && content != null &&
 					checkImplicitAppPermissions(app, content) && checkIfUserCanModifyObject(app, content)) {
-				return ResponseEntity.ok(content);
+				return getConditionalResponse(content, getETag(content));
 			}
 			return getStatusResponse(HttpStatus.NOT_FOUND);
 		}
@@ -347,6 +376,9 @@ public final class RestUtils {
 					newContent.put(Config._TYPE, type);
 				}
 				content = ParaObjectUtils.setAnnotatedFields(newContent);
+				if (content != null && isInternalType(content.getType())) {
+					return getStatusResponse(HttpStatus.FORBIDDEN, "Objects of this type can't be created.");
+				}
 				if (app != null && content != null && isNotAnApp(type)) {
 					content.setAppid(app.getAppIdentifier());
 					setCreatorid(app, content);
@@ -393,6 +425,9 @@ public final class RestUtils {
 					newContent.put(Config._TYPE, type);
 				}
 				content = ParaObjectUtils.setAnnotatedFields(newContent);
+				if (isInternalType(type)) {
+					return getStatusResponse(HttpStatus.FORBIDDEN, "Objects of this type can't be overwritten.");
+				}
 				if (app != null && content != null && !StringUtils.isBlank(id) && isNotAnApp(type)) {
 					content.setType(type);
 					content.setAppid(app.getAppIdentifier());
@@ -431,6 +466,9 @@ public final class RestUtils {
 		try (Metrics.Context context = Metrics.time(app == null ? null : app.getAppid(),
 				RestUtils.class, "crud", "update")) {
 			if (app != null && object != null) {
+				if (isInternalType(object.getType())) {
+					return getStatusResponse(HttpStatus.FORBIDDEN, "Objects of this type can't be updated.");
+				}
 				Map<String, Object> newContent;
 				ResponseEntity<?> entityRes = getEntity(is, Map.class);
 				String[] errors = {};
@@ -507,7 +545,7 @@ public final class RestUtils {
 						results.add(result);
 					}
 				}
-				return ResponseEntity.ok(results);
+				return getConditionalResponse(results, getWeakETag(results));
 			} else {
 				return getStatusResponse(HttpStatus.BAD_REQUEST, "Missing ids.");
 			}
@@ -524,15 +562,15 @@ public final class RestUtils {
 		try (Metrics.Context context = Metrics.time(app == null ? null : app.getAppid(),
 				RestUtils.class, "batch", "create")) {
 			if (app != null) {
-				final LinkedList<ParaObject> newObjects = new LinkedList<>();
+				final List<ParaObject> newObjects = new ArrayList<>();
 				Set<String> ids = new LinkedHashSet<>();
-				ResponseEntity<?> entityRes = getEntity(is, List.class, true);
-				if (entityRes.getStatusCode().is2xxSuccessful()) {
-					List<Map<String, Object>> items = (List<Map<String, Object>>) entityRes.getBody();
+				// objects are created in chunks, as they're read from the request
+				ResponseEntity<?> errorRes = readBatchInChunks(is, items -> {
+					List<ParaObject> chunk = new ArrayList<>(items.size());
 					for (Map<String, Object> object : items) {
 						// can't create multiple apps in batch
 						String type = (String) object.get(Config._TYPE);
-						if (isNotAnApp(type)) {
+						if (isNotAnApp(type) && !isInternalType(type)) {
 							ParaObject pobj = ParaObjectUtils.setAnnotatedFields(object);
 							if (pobj != null && isValidObject(app, pobj)) {
 								pobj.setAppid(app.getAppIdentifier());
@@ -542,20 +580,23 @@ public final class RestUtils {
 											+ "Duplicate object {} might not be persisted!", pobj.getId());
 								}
 								ids.add(pobj.getId());
-								newObjects.add(pobj);
+								chunk.add(pobj);
 							}
 						}
 					}
-
-					Para.getDAO().createAll(app.getAppIdentifier(), newObjects);
-
+					Para.getDAO().createAll(app.getAppIdentifier(), chunk);
+					newObjects.addAll(chunk);
+				});
+				// the chunks created before an error are already stored, so their types are registered either way
+				if (!newObjects.isEmpty()) {
 					Para.asyncExecute(() -> {
 						if (app.addDatatypes(newObjects.toArray(ParaObject[]::new))) {
 							CoreUtils.getInstance().overwrite(app);
 						}
 					});
-				} else {
-					return entityRes;
+				}
+				if (errorRes != null) {
+					return getPartialBatchResponse(errorRes, newObjects);
 				}
 				return ResponseEntity.ok(newObjects);
 			} else {
@@ -577,23 +618,7 @@ public final class RestUtils {
 				RestUtils.class, "batch", "update")) {
 			if (app != null && oldObjects != null && newProperties != null) {
 				LinkedList<ParaObject> updatedObjects = new LinkedList<>();
-				boolean hasPositiveVersions = false;
-				for (Map<String, Object> newProps : newProperties) {
-					if (newProps != null && newProps.containsKey(Config._ID)) {
-						ParaObject oldObject = oldObjects.get((String) newProps.get(Config._ID));
-						// updating apps in batch is not allowed
-						if (oldObject != null && checkImplicitAppPermissions(app, oldObject)) {
-							ParaObject updatedObject = ParaObjectUtils.setAnnotatedFields(oldObject, newProps, Locked.class);
-							if (isValidObject(app, updatedObject) && checkIfUserCanModifyObject(app, updatedObject)) {
-								updatedObject.setAppid(app.getAppIdentifier());
-								updatedObjects.add(updatedObject);
-								if (updatedObject.getVersion() != null && updatedObject.getVersion() > 0) {
-									hasPositiveVersions = true;
-								}
-							}
-						}
-					}
-				}
+				boolean hasPositiveVersions = applyBatchUpdates(app, oldObjects, newProperties, updatedObjects);
 				Para.getDAO().updateAll(app.getAppIdentifier(), updatedObjects);
 				// check if any or all updates failed due to optimistic locking
 				return handleFailedUpdates(hasPositiveVersions, updatedObjects);
@@ -603,6 +628,85 @@ public final class RestUtils {
 		}
 	}
 
+	/**
+	 * Batch update response as JSON. The new properties are read from the request in chunks -
+	 * the objects in each chunk are read from the DB, updated and written back before the next chunk is read.
+	 * @param app the current App object
+	 * @param is entity input stream with a list of new object properties to be updated
+	 * @return a status code 200 or 400
+	 */
+	public static ResponseEntity<?> getBatchUpdateResponse(App app, InputStream is) {
+		try (Metrics.Context context = Metrics.time(app == null ? null : app.getAppid(),
+				RestUtils.class, "batch", "update")) {
+			if (app == null) {
+				return getStatusResponse(HttpStatus.BAD_REQUEST);
+			}
+			LinkedList<ParaObject> updatedObjects = new LinkedList<>();
+			AtomicBoolean hasPositiveVersions = new AtomicBoolean();
+			ResponseEntity<?> errorRes = readBatchInChunks(is, items -> {
+				List<String> ids = new ArrayList<>(items.size());
+				for (Map<String, Object> props : items) {
+					if (props.containsKey(Config._ID)) {
+						ids.add((String) props.get(Config._ID));
+					}
+				}
+				List<ParaObject> chunk = new ArrayList<>(items.size());
+				if (applyBatchUpdates(app, Para.getDAO().readAll(app.getAppIdentifier(), ids, true), items, chunk)) {
+					hasPositiveVersions.set(true);
+				}
+				Para.getDAO().updateAll(app.getAppIdentifier(), chunk);
+				updatedObjects.addAll(chunk);
+			});
+			if (errorRes != null) {
+				// objects which failed due to a version mismatch were not written
+				updatedObjects.removeIf(o -> o.getVersion() != null && o.getVersion() == -1);
+				return getPartialBatchResponse(errorRes, updatedObjects);
+			}
+			// check if any or all updates failed due to optimistic locking
+			return handleFailedUpdates(hasPositiveVersions.get(), updatedObjects);
+		}
+	}
+
+	/**
+	 * Adds the objects which were already written to an error response, when a batch request fails part way
+	 * through, e.g. because of invalid JSON after the first chunk. The response keeps the error status, so the
+	 * client knows that the batch was not fully processed, and lists the stored objects under "items".
+	 * @param errorRes the error response
+	 * @param written the objects written before the error
+	 * @return a response
+	 */
+	private static ResponseEntity<?> getPartialBatchResponse(ResponseEntity<?> errorRes, List<ParaObject> written) {
+		if (written.isEmpty() || !(errorRes.getBody() instanceof Map<?, ?> body)) {
+			return errorRes;
+		}
+		Map<String, Object> partial = new LinkedHashMap<>();
+		body.forEach((k, v) -> partial.put(String.valueOf(k), v));
+		partial.put("items", written);
+		return ResponseEntity.status(errorRes.getStatusCode()).contentType(MediaType.APPLICATION_JSON).body(partial);
+	}
+
+	private static boolean applyBatchUpdates(App app, Map<String, ParaObject> oldObjects,
+			List<Map<String, Object>> newProperties, List<ParaObject> updatedObjects) {
+		boolean hasPositiveVersions = false;
+		for (Map<String, Object> newProps : newProperties) {
+			if (newProps != null && newProps.containsKey(Config._ID)) {
+				ParaObject oldObject = oldObjects.get((String) newProps.get(Config._ID));
+				// updating apps in batch is not allowed
+				if (oldObject != null && checkImplicitAppPermissions(app, oldObject) && !isInternalType(oldObject.getType())) {
+					ParaObject updatedObject = ParaObjectUtils.setAnnotatedFields(oldObject, newProps, Locked.class);
+					if (isValidObject(app, updatedObject) && checkIfUserCanModifyObject(app, updatedObject)) {
+						updatedObject.setAppid(app.getAppIdentifier());
+						updatedObjects.add(updatedObject);
+						if (updatedObject.getVersion() != null && updatedObject.getVersion() > 0) {
+							hasPositiveVersions = true;
+						}
+					}
+				}
+			}
+		}
+		return hasPositiveVersions;
+	}
+
 	/**
 	 * Batch delete response as JSON.
 	 * @param app the current App object
@@ -635,7 +739,8 @@ public final class RestUtils {
 	/////////////////////////////////////////////
 
 	/**
-	 * Handles requests to search for linked objects.
+	 * Handles requests to search for linked objects. The objects related to each of the returned items can be
+	 * embedded in the response, under "expanded", with the {@code expand} parameter, e.g. {@code expand=parent,links:tag}.
 	 * @param pobj the object to operate on
 	 * @param id2 the id of the second object (optional)
 	 * @param type2 the type of the second object
@@ -644,6 +749,7 @@ public final class RestUtils {
 	 * @param req request
 	 * @return a Response
 	 */
+	@SuppressWarnings("unchecked")
 	public static ResponseEntity<?> readLinksHandler(ParaObject pobj, String id2, String type2,
 			Pager pager, boolean childrenOnly, HttpServletRequest req) {
 		try (Metrics.Context context = Metrics.time(null, RestUtils.class, "links", "read")) {
@@ -655,7 +761,7 @@ public final class RestUtils {
 				} else {
 					List<ParaObject> items = new ArrayList<>();
 					if (childrenOnly) {
-						if (req.getParameter("count") != null) {
+						if (isCountOnlyRequest(req)) {
 							pager.setCount(pobj.countChildren(type2));
 						} else {
 							if (req.getParameter("field") != null && req.getParameter("term") != null) {
@@ -669,7 +775,7 @@ public final class RestUtils {
 							}
 						}
 					} else {
-						if (req.getParameter("count") != null) {
+						if (isCountOnlyRequest(req)) {
 							pager.setCount(pobj.countLinks(type2));
 						} else {
 							if (StringUtils.isBlank(query)) {
@@ -679,7 +785,16 @@ public final class RestUtils {
 							}
 						}
 					}
-					return ResponseEntity.ok(buildPageResponse(items, pager));
+					Map<String, Object> result = buildPageResponse(items, pager);
+					LinkExpander expander = new LinkExpander(getPrincipalApp(), req.getParameter("expand"));
+					if (!expander.isEmpty()) {
+						result.put("expanded", expander.expand((List<ParaObject>) result.get("items")));
+						if (!expander.getTruncated().isEmpty()) {
+							// some items are missing links, e.g. "expandedTruncated": ["links:tag"]
+							result.put("expandedTruncated", expander.getTruncated());
+						}
+					}
+					return ResponseEntity.ok(result);
 				}
 			} else {
 				return getStatusResponse(HttpStatus.BAD_REQUEST, "Parameter 'type' is missing.");
@@ -774,6 +889,7 @@ public final class RestUtils {
 			} else if ("wildcard".equals(queryType)) {
 				items = Para.getSearch().findWildcard(appid, type, req.getParameter("field"), query, pager);
 			} else if ("count".equals(queryType)) {
+				pager.setCountMode(Pager.CountMode.EXACT);
 				pager.setCount(Para.getSearch().getCount(appid, type));
 			} else {
 				items = Para.getSearch().findQuery(appid, type, query, pager);
@@ -782,6 +898,29 @@ public final class RestUtils {
 		}
 	}
 
+	/**
+	 * Executes a query on multiple apps at once and returns a single page of merged results.
+	 * The caller must have checked that the principal app is allowed to access each of the given apps.
+	 * The apps for which the query failed, and whose results are missing, are listed in {@code failedAppids}.
+	 * @param appids a list of app identifiers
+	 * @param typeOverride type of object to search for, overrides the type parameter
+	 * @param req the request
+	 * @return a map containing search results
+	 */
+	static Map<String, Object> buildFederatedQueryAndSearch(List<String> appids, String typeOverride,
+			HttpServletRequest req) {
+		String query = paramOrDefault(req, "q", "*");
+		String type = StringUtils.isBlank(typeOverride) ? paramOrDefault(req, Config._TYPE, null) : typeOverride;
+		Pager pager = getPagerFromParams(req);
+		List<String> failedAppids = new ArrayList<>();
+		try (Metrics.Context context = Metrics.time(null, RestUtils.class, "search", "federated")) {
+			Map<String, Object> result = buildPageResponse(Para.getSearch().
+					findQueryFederated(appids, type, query, failedAppids, pager), pager);
+			result.put("failedAppids", failedAppids);
+			return result;
+		}
+	}
+
 	private static <P extends ParaObject> List<P> findTermsQuery(HttpServletRequest req,
 			Pager pager, String appid, String type) {
 		String matchAll = paramOrDefault(req, "matchall", "true");
@@ -794,7 +933,7 @@ public final class RestUtils {
 					terms.put(split[0], split[1]);
 				}
 			}
-			if (req.getParameter("count") != null) {
+			if (isCountOnlyRequest(req)) {
 				pager.setCount(Para.getSearch().getCount(appid, type, terms));
 			} else {
 				return Para.getSearch().findTerms(appid, type, terms, Boolean.parseBoolean(matchAll), pager);
@@ -871,6 +1010,12 @@ public final class RestUtils {
 		return ResponseEntity.ok(updatedObjects);
 	}
 
+	private static boolean isCountOnlyRequest(HttpServletRequest req) {
+		// count=true returns only the number of results, while count=none|approx|exact is a count mode
+		String count = req.getParameter("count");
+		return count != null && Pager.CountMode.fromString(count) == null;
+	}
+
 	private static String paramOrDefault(HttpServletRequest req, String name, String defaultValue) {
 		return req != null && req.getParameter(name) != null ? req.getParameter(name) : defaultValue;
 	}
@@ -889,14 +1034,57 @@ public final class RestUtils {
 		Map<String, Object> result = new HashMap<>();
 		result.put("items", checkedItems);
 		result.put("page", pager.getPage());
-		result.put("totalHits", pager.getCount());
+		if (pager.isCountRequired()) {
+			result.put("totalHits", pager.getCount());
+			result.put("totalHitsRelation", getTotalHitsRelation(pager));
+		}
 		if (!StringUtils.isBlank(pager.getLastKey())) {
 			result.put("lastKey", pager.getLastKey());
 		}
+		String cursor = getNextCursor(items, pager);
+		if (cursor != null) {
+			result.put("cursor", cursor);
+		}
 		return result;
 	}
 
-	private static void setCreatorid(App app, ParaObject content) {
+	/**
+	 * Tells clients how to interpret "totalHits" - with {@code count=approx} the search implementation may stop
+	 * counting at a threshold, so the count is only a lower bound.
+	 * @param pager a pager
+	 * @return "gte" if the count may be a lower bound, "eq" if it's exact
+	 */
+	public static String getTotalHitsRelation(Pager pager) {
+		if (pager != null && pager.getCountMode() == Pager.CountMode.APPROX && Para.getSearch().isCountModeSupported()) {
+			return "gte";
+		}
+		return "eq";
+	}
+
+	private static <P extends ParaObject> String getNextCursor(List<P> items, Pager pager) {
+		if (items == null || items.isEmpty() || items.size() < pager.getLimit()) {
+			return null;
+		}
+		if (!Para.getSearch().isKeysetPaginationSupported() && pager.getPage() >= Para.getConfig().maxPages()) {
+			return null; // the next page can't be reached
+		}
+		// the cursor points past the last item returned by the backend, even if it was filtered out
+		P last = items.get(items.size() - 1);
+		String sortValue = null;
+		try {
+			sortValue = BeanUtils.getProperty(last, pager.getSortby());
+		} catch (Exception e) {
+			logger.debug("Sort field {} not found in object {}: {}", pager.getSortby(), last.getId(), e.getMessage());
+		}
+		return Pager.encodeCursor(Math.max(1, pager.getPage()) + 1, sortValue, last.getId());
+	}
+
+	/**
+	 * Sets the id of the authenticated user as the creator of an object.
+	 * @param app the app
+	 * @param content the object
+	 */
+	static void setCreatorid(App app, ParaObject content) {
 		if (content != null) {
 			User user = getAuthenticatedUser();
 			if (user != null) {
@@ -911,6 +1099,91 @@ public final class RestUtils {
 		}
 	}
 
+	/**
+	 * Reads a JSON array of objects from a stream, one element at a time, and passes the elements on in chunks.
+	 * The size of each element is checked while it's being read, so an element which is too large is rejected
+	 * before it's fully buffered. Only one chunk of elements is kept in memory at a time.
+	 * @param is the entity input stream
+	 * @param chunkHandler called for each chunk of elements, in order
+	 * @return null if the whole array was read, or an error response
+	 */
+	static ResponseEntity<?> readBatchInChunks(InputStream is, Consumer<List<Map<String, Object>>> chunkHandler) {
+		if (is == null) {
+			return getStatusResponse(HttpStatus.BAD_REQUEST, "Missing request body.");
+		}
+		int maxReqSize = Para.getConfig().maxEntitySizeBytes();
+		int maxReqSizeKb = (maxReqSize / 1024);
+		int chunkSize = Math.max(1, Para.getConfig().batchChunkSize());
+		try (JsonParser jp = getEntityReader(Map.class).createParser(is)) {
+			if (is.available() > 100L * maxReqSize) {
+				return getStatusResponse(HttpStatus.BAD_REQUEST, "Batch request is too large - "
+						+ "the maximum total batch size is " + 100 * maxReqSizeKb + " KB.");
+			}
+			if (jp.nextToken() != JsonToken.START_ARRAY) {
+				return getStatusResponse(HttpStatus.BAD_REQUEST, "Expected a JSON array of objects.");
+			}
+			List<Map<String, Object>> chunk = new ArrayList<>(chunkSize);
+			JsonToken token;
+			while ((token = jp.nextToken()) != JsonToken.END_ARRAY) {
+				if (token == null) {
+					throw new JsonParseException(jp, "Unexpected end of batch request.");
+				}
+				if (getOffset(jp.currentTokenLocation()) > 100L * maxReqSize) {
+					return getStatusResponse(HttpStatus.BAD_REQUEST, "Batch request is too large - "
+							+ "the maximum total batch size is " + 100 * maxReqSizeKb + " KB.");
+				}
+				if (token == JsonToken.VALUE_NULL) {
+					continue;
+				}
+				Map<String, Object> item = readBatchItem(jp, maxReqSize);
+				if (item == null) {
+					return getStatusResponse(HttpStatus.BAD_REQUEST, "Batch request too large or "
+							+ "containing items larger than the max. allowed size " + maxReqSizeKb + " KB.");
+				}
+				chunk.add(item);
+				if (chunk.size() >= chunkSize) {
+					chunkHandler.accept(chunk);
+					chunk = new ArrayList<>(chunkSize);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				chunkHandler.accept(chunk);
+			}
+		} catch (JsonMappingException e) {
+			return getStatusResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+		} catch (JsonParseException e) {
+			return getStatusResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+		} catch (IOException e) {
+			logger.error(null, e);
+			return getStatusResponse(HttpStatus.INTERNAL_SERVER_ERROR, e.toString());
+		}
+		return null;
+	}
+
+	private static Map<String, Object> readBatchItem(JsonParser jp, long maxSize) throws IOException {
+		long start = getOffset(jp.currentTokenLocation());
+		try (TokenBuffer buffer = new TokenBuffer(jp)) {
+			int depth = 0;
+			do {
+				JsonToken token = jp.currentToken();
+				if (token.isStructStart()) {
+					depth++;
+				} else if (token.isStructEnd()) {
+					depth--;
+				}
+				buffer.copyCurrentEvent(jp);
+				if (getOffset(jp.currentLocation()) - start > maxSize) {
+					return null;
+				}
+			} while (depth > 0 && jp.nextToken() != null);
+			return ParaObjectUtils.getJsonReader(Map.class).readValue(buffer.asParser());
+		}
+	}
+
+	private static long getOffset(JsonLocation location) {
+		return location.getByteOffset() >= 0 ? location.getByteOffset() : location.getCharOffset();
+	}
+
 	private static int calculateObjectSize(JsonNode jsonNode) {
 		if (jsonNode == null || jsonNode.isNull()) {
 			return 4; // null
@@ -956,9 +1229,146 @@ public final class RestUtils {
 		pager.setSortby(paramOrDefault(req, "sort", pager.getSortby()));
 		pager.setDesc(Boolean.parseBoolean(paramOrDefault(req, "desc", "true")));
 		pager.setLastKey(paramOrDefault(req, "lastKey", null));
+		// count=none|approx|exact lets backends skip or cap counting the total number of results
+		Pager.CountMode countMode = Pager.CountMode.fromString(paramOrDefault(req, "count", null));
+		if (countMode != null) {
+			pager.setCountMode(countMode);
+		}
+		// backends may use the selected fields to skip reading the others
+		List<String> select = FieldFilter.getSelectedFields(paramOrDefault(req, "select", null));
+		if (!select.isEmpty()) {
+			pager.setSelect(select);
+		}
+		String cursor = paramOrDefault(req, "cursor", null);
+		Pager next = new Pager();
+		// an explicit page number, different from the one in the cursor, wins over a stale cursor
+		if (!StringUtils.isBlank(cursor) && next.applyCursor(cursor) &&
+				(req.getParameter("page") == null || pager.getPage() == next.getPage())) {
+			if (Para.getSearch().isKeysetPaginationSupported()) {
+				pager.applyCursor(cursor);
+			} else if (StringUtils.isBlank(pager.getLastKey())) {
+				// the backend can't continue from a sort value - use the page number stored in the cursor
+				pager.setPage(Math.min(next.getPage(), Para.getConfig().maxPages()));
+				pager.setCursor(cursor);
+			}
+		}
 		return pager;
 	}
 
+	/**
+	 * Returns a strong ETag for an object, computed from its id, version and the time it was last updated.
+	 * @param obj an object
+	 * @return a quoted ETag value
+	 */
+	public static String getETag(ParaObject obj) {
+		if (obj == null) {
+			return null;
+		}
+		long version = obj.getVersion() == null ? 0 : obj.getVersion();
+		Long updated = obj.getUpdated() == null ? obj.getTimestamp() : obj.getUpdated();
+		return "\"" + Integer.toHexString(Objects.hashCode(obj.getId())) + "-" + Long.toHexString(version) + "-" +
+				Long.toHexString(updated == null ? 0 : updated) + "\"";
+	}
+
+	/**
+	 * Returns a weak ETag for a list of objects, e.g. a page of search results. It is a hash of the ids, versions
+	 * and update times of all objects, and any other values which are part of the response.
+	 * @param objects a list of objects
+	 * @param extras other values in the response, like the total number of results
+	 * @return a weak ETag value
+	 */
+	public static String getWeakETag(List<? extends ParaObject> objects, Object... extras) {
+		long hash = 17;
+		if (objects != null) {
+			for (ParaObject obj : objects) {
+				if (obj != null) {
+					hash = 31 * hash + Objects.hashCode(obj.getId());
+					hash = 31 * hash + Objects.hashCode(obj.getVersion());
+					hash = 31 * hash + Objects.hashCode(obj.getUpdated() == null ? obj.getTimestamp() : obj.getUpdated());
+				}
+			}
+		}
+		for (Object extra : extras) {
+			hash = 31 * hash + Objects.hashCode(extra);
+		}
+		return "W/\"" + Long.toHexString(hash) + "-" + (objects == null ? 0 : objects.size()) + "\"";
+	}
+
+	/**
+	 * Returns a response with an ETag header. If the current request is a GET request with an
+	 * {@code If-None-Match} header matching that ETag, the response is 304 (Not Modified), without a body.
+	 * The same object can be returned as JSON, Smile or CBOR, so the ETag is suffixed with the format
+	 * negotiated from the {@code Accept} header (except for JSON) and the response varies by {@code Accept}.
+	 * @param body the response body
+	 * @param etag an ETag value
+	 * @return status code 200 or 304
+	 */
+	public static ResponseEntity<?> getConditionalResponse(Object body, String etag) {
+		if (StringUtils.isBlank(etag)) {
+			return ResponseEntity.ok(body);
+		}
+		if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs) {
+			HttpServletRequest req = attrs.getRequest();
+			String format = getResponseFormat(req.getHeader(HttpHeaders.ACCEPT));
+			if (format != null) {
+				etag = Strings.CS.removeEnd(etag, "\"") + "-" + format + "\"";
+			}
+			if (("GET".equals(req.getMethod()) || "HEAD".equals(req.getMethod())) &&
+					eTagMatches(req.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).
+						header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+			}
+		}
+		return ResponseEntity.ok().eTag(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(body);
+	}
+
+	/**
+	 * Finds the format of the response body from the {@code Accept} header, the same way as the media types
+	 * produced by the API are chosen - by quality, with JSON first.
+	 * @param accept the value of the {@code Accept} header
+	 * @return "smile", "cbor" or null for JSON
+	 */
+	public static String getResponseFormat(String accept) {
+		if (StringUtils.isBlank(accept)) {
+			return null;
+		}
+		List<MediaType> types;
+		try {
+			types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+		} catch (InvalidMediaTypeException e) {
+			return null;
+		}
+		types.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+		for (MediaType type : types) {
+			if (type.getQualityValue() <= 0) {
+				continue;
+			}
+			if (type.includes(MediaType.APPLICATION_JSON)) {
+				return null;
+			} else if (type.includes(MediaType.parseMediaType(ParaObjectUtils.SMILE_MEDIA_TYPE))) {
+				return "smile";
+			} else if (type.includes(MediaType.parseMediaType(ParaObjectUtils.CBOR_MEDIA_TYPE))) {
+				return "cbor";
+			}
+		}
+		return null;
+	}
+
+	private static boolean eTagMatches(String ifNoneMatch, String etag) {
+		if (StringUtils.isBlank(ifNoneMatch)) {
+			return false;
+		}
+		// weak comparison, as required for If-None-Match
+		String tag = Strings.CS.removeStart(etag, "W/");
+		for (String candidate : StringUtils.split(ifNoneMatch, ',')) {
+			String c = candidate.trim();
+			if ("*".equals(c) || tag.equals(Strings.CS.removeStart(c, "W/"))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * A generic JSON response handler.
 	 * @param status status code
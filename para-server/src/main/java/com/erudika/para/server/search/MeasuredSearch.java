@@ -19,15 +19,27 @@ package com.erudika.para.server.search;
 
 import com.erudika.para.core.App;
 import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.listeners.IOListener;
+import com.erudika.para.core.listeners.SearchQueryListener;
 import com.erudika.para.core.metrics.Metrics;
 import static com.erudika.para.core.metrics.Metrics.time;
 import com.erudika.para.core.persistence.DAO;
 import com.erudika.para.core.search.Search;
 import com.erudika.para.core.utils.Pager;
 import com.erudika.para.core.utils.Para;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +50,7 @@ import org.slf4j.LoggerFactory;
 public class MeasuredSearch implements Search {
 
 	private static final Logger logger = LoggerFactory.getLogger(MeasuredSearch.class);
+	private static final Map<String, Method> METHODS = new ConcurrentHashMap<>();
 
 	private final Search search;
 
@@ -106,9 +119,15 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> P findById(String appid, String id) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findById")) {
-			return search.findById(appid, id);
-		}
+		return invokeQuery(appid, "findById", () -> {
+			if (isDAOAuthoritative() && !StringUtils.isBlank(id)) {
+				P obj = Para.getDAO().read(appid, id);
+				if (obj != null) {
+					return obj;
+				}
+			}
+			return search.<P>findById(appid, id);
+		}, new Object[] {appid, id}, String.class, String.class);
 	}
 
 	@Override
@@ -118,9 +137,107 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> List<P> findByIds(String appid, List<String> ids) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findByIds")) {
-			return search.findByIds(appid, ids);
+		return invokeQuery(appid, "findByIds", () -> {
+			if (isDAOAuthoritative() && ids != null && !ids.isEmpty()) {
+				return this.<P>findByIdsInDAO(appid, ids);
+			}
+			return search.<P>findByIds(appid, ids);
+		}, new Object[] {appid, ids}, String.class, List.class);
+	}
+
+	private <R> R invokeQuery(String appid, String opName, Supplier<R> query, Object[] args, Class<?>... params) {
+		try (Metrics.Context context = time(appid, search.getClass(), opName)) {
+			Set<IOListener> listeners = Para.getSearchQueryListeners();
+			if (listeners.isEmpty()) {
+				return query.get();
+			}
+			Method method = getMethod(opName, params);
+			onPreInvoke(listeners, method, args);
+			long start = System.nanoTime();
+			R result = query.get();
+			long tookNanos = System.nanoTime() - start;
+			onPostInvoke(listeners, appid, method, args, result, tookNanos);
+			return result;
+		}
+	}
+
+	private Method getMethod(String opName, Class<?>... params) {
+		// the methods are looked up once, only when there are listeners to pass them to
+		return METHODS.computeIfAbsent(opName + Arrays.toString(params), k -> {
+			try {
+				return Search.class.getMethod(opName, params);
+			} catch (NoSuchMethodException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	private void onPreInvoke(Set<IOListener> listeners, Method method, Object[] args) {
+		for (IOListener listener : listeners) {
+			try {
+				listener.onPreInvoke(method, args);
+				logger.debug("Executed {}.onPreInvoke().", listener.getClass().getName());
+			} catch (Exception e) {
+				logger.warn("Search listener {} failed: {}", listener.getClass().getName(), e.getMessage());
+			}
+		}
+	}
+
+	private void onPostInvoke(Set<IOListener> listeners, String appid, Method method, Object[] args,
+			Object result, long tookNanos) {
+		long hits = getHits(args, result);
+		for (IOListener listener : listeners) {
+			try {
+				listener.onPostInvoke(method, args, result);
+				if (listener instanceof SearchQueryListener) {
+					((SearchQueryListener) listener).onQueryCompleted(appid, method, args, hits, tookNanos);
+				}
+				logger.debug("Executed {}.onPostInvoke().", listener.getClass().getName());
+			} catch (Exception e) {
+				logger.warn("Search listener {} failed: {}", listener.getClass().getName(), e.getMessage());
+			}
+		}
+	}
+
+	private long getHits(Object[] args, Object result) {
+		if (result instanceof Long) {
+			return (Long) result;
+		} else if (result instanceof List) {
+			Object pager = args[args.length - 1];
+			if (pager instanceof Pager[] && ((Pager[]) pager).length > 0 && ((Pager[]) pager)[0] != null
+					&& ((Pager[]) pager)[0].getCount() > 0) {
+				return ((Pager[]) pager)[0].getCount();
+			}
+			return ((List<?>) result).size();
 		}
+		return result == null ? 0 : 1;
+	}
+
+	private boolean isDAOAuthoritative() {
+		return Para.getConfig().isDAOAuthoritativeForIds() && Para.getDAO() != null;
+	}
+
+	private <P extends ParaObject> List<P> findByIdsInDAO(String appid, List<String> ids) {
+		Set<String> keys = new LinkedHashSet<>(ids);
+		keys.remove(null);
+		Map<String, P> found = new HashMap<>(Para.getDAO().readAll(appid, new ArrayList<>(keys), true));
+		List<String> missing = keys.stream().filter(id -> found.get(id) == null).collect(Collectors.toList());
+		if (!missing.isEmpty()) {
+			logger.debug("Ids {} not found in DAO, falling back to search.", missing);
+			for (P obj : search.<P>findByIds(appid, missing)) {
+				if (obj != null) {
+					found.put(obj.getId(), obj);
+				}
+			}
+		}
+		List<P> results = new ArrayList<>(keys.size());
+		for (String id : keys) {
+			P obj = found.get(id);
+			if (obj != null) {
+				results.add(obj);
+			}
+		}
+		return results;
 	}
 
 	@Override
@@ -130,9 +247,8 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> List<P> findNearby(String appid, String type, String query, int radius, double lat, double lng, Pager... pager) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findNearby")) {
-			return search.findNearby(appid, type, query, radius, lat, lng, pager);
-		}
+		return invokeQuery(appid, "findNearby", () -> search.findNearby(appid, type, query, radius, lat, lng, pager),
+				new Object[] {appid, type, query, radius, lat, lng, pager}, String.class, String.class, String.class, int.class, double.class, double.class, Pager[].class);
 	}
 
 	@Override
@@ -142,9 +258,8 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> List<P> findPrefix(String appid, String type, String field, String prefix, Pager... pager) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findPrefix")) {
-			return search.findPrefix(appid, type, field, prefix, pager);
-		}
+		return invokeQuery(appid, "findPrefix", () -> search.findPrefix(appid, type, field, prefix, pager),
+				new Object[] {appid, type, field, prefix, pager}, String.class, String.class, String.class, String.class, Pager[].class);
 	}
 
 	@Override
@@ -154,9 +269,15 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> List<P> findQuery(String appid, String type, String query, Pager... pager) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findQuery")) {
-			return search.findQuery(appid, type, query, pager);
-		}
+		return invokeQuery(appid, "findQuery", () -> search.findQuery(appid, type, query, pager),
+				new Object[] {appid, type, query, pager}, String.class, String.class, String.class, Pager[].class);
+	}
+
+	@Override
+	public <P extends ParaObject> List<P> findQueryFederated(List<String> appids, String type, String query, Pager... pager) {
+		return invokeQuery(Para.getConfig().getRootAppIdentifier(), "findQueryFederated",
+				() -> search.<P>findQueryFederated(appids, type, query, pager),
+				new Object[] {appids, type, query, pager}, List.class, String.class, String.class, Pager[].class);
 	}
 
 	@Override
@@ -166,9 +287,8 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> List<P> findNestedQuery(String appid, String type, String field, String query, Pager... pager) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findNestedQuery")) {
-			return search.findNestedQuery(appid, type, field, query, pager);
-		}
+		return invokeQuery(appid, "findNestedQuery", () -> search.findNestedQuery(appid, type, field, query, pager),
+				new Object[] {appid, type, field, query, pager}, String.class, String.class, String.class, String.class, Pager[].class);
 	}
 
 	@Override
@@ -178,9 +298,8 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> List<P> findSimilar(String appid, String type, String filterKey, String[] fields, String liketext, Pager... pager) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findSimilar")) {
-			return search.findSimilar(appid, type, filterKey, fields, liketext, pager);
-		}
+		return invokeQuery(appid, "findSimilar", () -> search.findSimilar(appid, type, filterKey, fields, liketext, pager),
+				new Object[] {appid, type, filterKey, fields, liketext, pager}, String.class, String.class, String.class, String[].class, String.class, Pager[].class);
 	}
 
 	@Override
@@ -190,9 +309,8 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> List<P> findTagged(String appid, String type, String[] tags, Pager... pager) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findTagged")) {
-			return search.findTagged(appid, type, tags, pager);
-		}
+		return invokeQuery(appid, "findTagged", () -> search.findTagged(appid, type, tags, pager),
+				new Object[] {appid, type, tags, pager}, String.class, String.class, String[].class, Pager[].class);
 	}
 
 	@Override
@@ -201,10 +319,14 @@ public class MeasuredSearch implements Search {
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public <P extends ParaObject> List<P> findTags(String appid, String keyword, Pager... pager) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findTags")) {
-			return search.findTags(appid, keyword, pager);
-		}
+		return invokeQuery(appid, "findTags", () -> {
+			if (Para.getConfig().tagsIndexEnabled()) {
+				return (List<P>) TagIndex.getInstance().findTags(search, appid, keyword, pager);
+			}
+			return search.<P>findTags(appid, keyword, pager);
+		}, new Object[] {appid, keyword, pager}, String.class, String.class, Pager[].class);
 	}
 
 	@Override
@@ -214,9 +336,8 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> List<P> findTermInList(String appid, String type, String field, List<?> terms, Pager... pager) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findTermInList")) {
-			return search.findTermInList(appid, type, field, terms, pager);
-		}
+		return invokeQuery(appid, "findTermInList", () -> search.findTermInList(appid, type, field, terms, pager),
+				new Object[] {appid, type, field, terms, pager}, String.class, String.class, String.class, List.class, Pager[].class);
 	}
 
 	@Override
@@ -226,9 +347,8 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> List<P> findTerms(String appid, String type, Map<String, ?> terms, boolean matchAll, Pager... pager) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findTerms")) {
-			return search.findTerms(appid, type, terms, matchAll, pager);
-		}
+		return invokeQuery(appid, "findTerms", () -> search.findTerms(appid, type, terms, matchAll, pager),
+				new Object[] {appid, type, terms, matchAll, pager}, String.class, String.class, Map.class, boolean.class, Pager[].class);
 	}
 
 	@Override
@@ -238,9 +358,8 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public <P extends ParaObject> List<P> findWildcard(String appid, String type, String field, String wildcard, Pager... pager) {
-		try (Metrics.Context context = time(appid, search.getClass(), "findWildcard")) {
-			return search.findWildcard(appid, type, field, wildcard, pager);
-		}
+		return invokeQuery(appid, "findWildcard", () -> search.findWildcard(appid, type, field, wildcard, pager),
+				new Object[] {appid, type, field, wildcard, pager}, String.class, String.class, String.class, String.class, Pager[].class);
 	}
 
 	@Override
@@ -250,9 +369,8 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public Long getCount(String appid, String type) {
-		try (Metrics.Context context = time(appid, search.getClass(), "getCount")) {
-			return search.getCount(appid, type);
-		}
+		return invokeQuery(appid, "getCount", () -> search.getCount(appid, type),
+				new Object[] {appid, type}, String.class, String.class);
 	}
 
 	@Override
@@ -262,9 +380,8 @@ public class MeasuredSearch implements Search {
 
 	@Override
 	public Long getCount(String appid, String type, Map<String, ?> terms) {
-		try (Metrics.Context context = time(appid, search.getClass(), "getCount")) {
-			return search.getCount(appid, type, terms);
-		}
+		return invokeQuery(appid, "getCount", () -> search.getCount(appid, type, terms),
+				new Object[] {appid, type, terms}, String.class, String.class, Map.class);
 	}
 
 	@Override
@@ -288,6 +405,16 @@ public class MeasuredSearch implements Search {
 		return search.isValidQueryString(queryString);
 	}
 
+	@Override
+	public boolean isKeysetPaginationSupported() {
+		return search.isKeysetPaginationSupported();
+	}
+
+	@Override
+	public boolean isCountModeSupported() {
+		return search.isCountModeSupported();
+	}
+
 	@Override
 	public void createIndex(App app) {
 		String appid = app != null ? app.getAppIdentifier() : Para.getConfig().getRootAppIdentifier();
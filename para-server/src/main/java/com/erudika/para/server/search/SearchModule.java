@@ -56,6 +56,14 @@ public class SearchModule {
 			search = bindToDefault();
 		}
 		CoreUtils.getInstance().setSearch(new MeasuredSearch(search));
+		int slowQueryThreshold = Para.getConfig().slowQueryThresholdMillis();
+		if ((slowQueryThreshold > 0 || Para.getConfig().metricsEnabled()) &&
+				Para.getSearchQueryListeners().stream().noneMatch(SlowQueryListener.class::isInstance)) {
+			Para.addSearchQueryListener(new SlowQueryListener(slowQueryThreshold, Para.getConfig().metricsEnabled()));
+		}
+		if (Para.getConfig().tagsIndexEnabled()) {
+			Para.addIOListener(TagIndex.getInstance());
+		}
 		return Para.getSearch();
 	}
 
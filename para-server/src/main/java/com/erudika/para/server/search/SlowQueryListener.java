@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.search;
+
+import com.erudika.para.core.listeners.SearchQueryListener;
+import com.erudika.para.core.metrics.Metrics;
+import com.erudika.para.core.search.Search;
+import com.erudika.para.core.utils.Pager;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the latency of each search query in a histogram per app and query type and logs
+ * queries which are slower than a given threshold, along with their normalized shape.
+ * The shape of a query has all literal values replaced with {@code ?}, e.g. {@code name:? AND age:?},
+ * so that similar queries can be grouped together.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class SlowQueryListener implements SearchQueryListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(SlowQueryListener.class);
+
+	private static final Pattern QUOTED = Pattern.compile("\"(?:[^\"\\\\]|\\\\.)*\"");
+	private static final Pattern FIELD_VALUE = Pattern.compile("([\\w.\\-]+):(\\[[^\\]]*\\]|\\{[^}]*\\}|[^\\s()]+)");
+	private static final Pattern TERM = Pattern.compile("[^\\s()]+");
+	private static final Pattern REPEATED = Pattern.compile("\\?(\\s+\\?)+");
+	private static final Set<String> OPERATORS = Set.of("AND", "OR", "NOT", "&&", "||", "*", "TO");
+	private static final Set<String> STRUCTURAL_PARAMS = Set.of("type", "field", "filterKey", "fields", "matchAll");
+
+	private final long thresholdNanos;
+	private final boolean histogramsEnabled;
+
+	/**
+	 * Default constructor.
+	 * @param thresholdMillis queries slower than this are logged, 0 disables logging
+	 * @param histogramsEnabled if true, latency histograms are recorded for each app and query type
+	 */
+	public SlowQueryListener(int thresholdMillis, boolean histogramsEnabled) {
+		this.thresholdNanos = thresholdMillis <= 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.histogramsEnabled = histogramsEnabled;
+	}
+
+	@Override
+	public void onQueryCompleted(String appid, Method method, Object[] args, long hits, long tookNanos) {
+		String queryType = method.getName();
+		if (histogramsEnabled) {
+			Metrics.histogram(appid, Search.class, queryType, "latency").update(TimeUnit.NANOSECONDS.toMicros(tookNanos));
+		}
+		if (tookNanos >= thresholdNanos) {
+			logger.warn("Slow query took {}ms, {} hits - app: {}, {}", TimeUnit.NANOSECONDS.toMillis(tookNanos), hits,
+					appid, getQueryShape(method, args));
+		}
+	}
+
+	/**
+	 * Returns the normalized shape of a search query, with all literal values replaced with {@code ?}.
+	 * The type and field names are preserved.
+	 * @param method the {@code Search} method
+	 * @param args the arguments of the method
+	 * @return a string like {@code findQuery(type=user, query=name:? AND age:?, pager=sort:timestamp)}
+	 */
+	static String getQueryShape(Method method, Object[] args) {
+		StringBuilder sb = new StringBuilder(method.getName()).append("(");
+		Parameter[] params = method.getParameters();
+		boolean first = true;
+		for (int i = 0; args != null && i < args.length; i++) {
+			String name = i < params.length ? params[i].getName() : "arg" + i;
+			boolean namesPresent = i < params.length && params[i].isNamePresent();
+			if ((namesPresent && "appid".equals(name)) || (!namesPresent && i == 0)) {
+				continue; // appid is logged separately
+			}
+			if (!first) {
+				sb.append(", ");
+			}
+			first = false;
+			sb.append(name).append("=").append(normalizeArgument(args[i], namesPresent && STRUCTURAL_PARAMS.contains(name)));
+		}
+		return sb.append(")").toString();
+	}
+
+	private static String normalizeArgument(Object arg, boolean structural) {
+		if (arg == null) {
+			return "null";
+		} else if (arg instanceof Pager[] pagers) {
+			return pagers.length > 0 && pagers[0] != null ? "sort:" + pagers[0].getSortby() : "none";
+		} else if (structural) {
+			return arg instanceof Object[] arr ? Arrays.toString(arr) : arg.toString();
+		} else if (arg instanceof String str) {
+			return normalizeQueryString(str);
+		} else if (arg instanceof Map<?, ?> map) {
+			return new TreeSet<>(map.keySet().stream().map(k -> k + ":?").toList()).toString();
+		} else if (arg instanceof Collection<?> col) {
+			return "[" + col.size() + " values]";
+		} else if (arg instanceof Object[] arr) {
+			return "[" + arr.length + " values]";
+		}
+		return "?";
+	}
+
+	/**
+	 * Replaces all literal values in a query string with {@code ?}, keeping field names and operators.
+	 * @param query a query string
+	 * @return the normalized query
+	 */
+	static String normalizeQueryString(String query) {
+		if (StringUtils.isBlank(query)) {
+			return "";
+		}
+		String q = QUOTED.matcher(query.trim()).replaceAll("?");
+		q = FIELD_VALUE.matcher(q).replaceAll("$1:?");
+		q = TERM.matcher(q).replaceAll(m -> {
+			String t = m.group();
+			return (OPERATORS.contains(t) || t.endsWith(":?") || "?".equals(t)) ? Matcher.quoteReplacement(t) : "?";
+		});
+		return REPEATED.matcher(q).replaceAll("?");
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.search;
+
+import com.erudika.para.core.Sysprop;
+import com.erudika.para.core.Tag;
+import com.erudika.para.core.listeners.IOListener;
+import com.erudika.para.core.search.Search;
+import com.erudika.para.core.utils.Pager;
+import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.Utils;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory index of tag names for each app, used for autocompleting tags without querying the search backend.
+ * Each app has its own {@link TagTrie} which is loaded from the search index on first use and is then kept
+ * up to date by listening for DAO writes on {@link Tag} objects. The tries are reloaded periodically, in case
+ * tags were modified on a different node. A trie is loaded by one thread while the others wait for it, and writes
+ * made while it's loading are buffered and applied to it once it's loaded, so they are not lost.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public final class TagIndex implements IOListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(TagIndex.class);
+	private static final TagIndex INSTANCE = new TagIndex();
+	private static final Set<String> WRITE_OPS = Set.of("create", "overwrite", "update", "createAll", "updateAll");
+	private static final Set<String> DELETE_OPS = Set.of("delete", "deleteAll");
+
+	private final Map<String, TagTrie> tries = new ConcurrentHashMap<>();
+	private final Map<String, Long> loadedAt = new ConcurrentHashMap<>();
+	private final Map<String, Loading> loading = new ConcurrentHashMap<>();
+
+	private TagIndex() { }
+
+	/**
+	 * Returns the singleton instance.
+	 * @return an instance of this class
+	 */
+	public static TagIndex getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the tags starting with a given keyword, ordered by count, highest first.
+	 * @param search the search backend used to load the tags of an app on first use
+	 * @param appid the app identifier
+	 * @param keyword a tag prefix
+	 * @param pager a pager, the total number of matching tags is set on it
+	 * @return a list of tags
+	 */
+	public List<Tag> findTags(Search search, String appid, String keyword, Pager... pager) {
+		Pager page = (pager != null && pager.length > 0 && pager[0] != null) ? pager[0] : new Pager();
+		String prefix = StringUtils.trimToEmpty(keyword).toLowerCase().replaceAll("\\*", "");
+		TagTrie trie = getTrie(search, appid);
+		int skip = (int) Math.min(Integer.MAX_VALUE, Math.max(0, page.getPage() - 1) * page.getLimit());
+		List<Tag> results = trie.top(prefix, skip + page.getLimit());
+		page.setCount(trie.count(prefix));
+		return skip >= results.size() ? new ArrayList<>() : new ArrayList<>(results.subList(skip, results.size()));
+	}
+
+	/**
+	 * Removes the tag index of an app from memory.
+	 * @param appid the app identifier
+	 */
+	public void clear(String appid) {
+		if (appid != null) {
+			tries.remove(appid);
+			loadedAt.remove(appid);
+		}
+	}
+
+	private TagTrie getTrie(Search search, String appid) {
+		long refresh = TimeUnit.SECONDS.toMillis(Para.getConfig().tagsIndexRefreshIntervalSec());
+		Long loaded = loadedAt.get(appid);
+		if (loaded != null && refresh > 0 && loaded + refresh < System.currentTimeMillis()) {
+			clear(appid);
+		}
+		TagTrie trie = tries.get(appid);
+		if (trie != null) {
+			return trie;
+		}
+		// the trie is loaded outside of the map, as that takes a while, and other threads wait for it
+		Loading load = new Loading();
+		Loading current = loading.putIfAbsent(appid, load);
+		if (current != null) {
+			try {
+				return current.future.join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException re ? re : e;
+			}
+		}
+		try {
+			trie = loadTrie(search, appid);
+			load.complete(trie);
+			tries.put(appid, trie);
+			return trie;
+		} catch (RuntimeException e) {
+			load.future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(appid, load);
+		}
+	}
+
+	private TagTrie loadTrie(Search search, String appid) {
+		TagTrie trie = new TagTrie();
+		Pager pager = new Pager(1, "_docid", false, Para.getConfig().maxItemsPerPage());
+		List<Tag> tags;
+		do {
+			tags = search.findQuery(appid, Utils.type(Tag.class), "*", pager);
+			tags.forEach(trie::put);
+			if (StringUtils.isBlank(pager.getLastKey())) {
+				pager.setPage(pager.getPage() + 1);
+			}
+		} while (!tags.isEmpty() && tags.size() >= pager.getLimit());
+		loadedAt.put(appid, System.currentTimeMillis());
+		logger.debug("Loaded {} tags for app '{}' into memory.", trie.size(), appid);
+		return trie;
+	}
+
+	@Override
+	public void onPreInvoke(Method method, Object[] args) {
+		// noop
+	}
+
+	@Override
+	public void onPostInvoke(Method method, Object[] args, Object result) {
+		if (method == null || args == null || args.length < 2 || !(args[0] instanceof String) || args[1] == null) {
+			return;
+		}
+		boolean isWrite = WRITE_OPS.contains(method.getName());
+		if (!isWrite && !DELETE_OPS.contains(method.getName())) {
+			return;
+		}
+		List<Tag> tags = new ArrayList<>();
+		List<?> objects = args[1] instanceof List<?> list ? list : List.of(args[1]);
+		for (Object obj : objects) {
+			Tag tag = toTag(obj);
+			if (tag != null) {
+				tags.add(tag);
+			}
+		}
+		if (tags.isEmpty()) {
+			return;
+		}
+		// checked before the loaded tries, as a trie is added there before it's removed from here
+		Loading load = loading.get((String) args[0]);
+		if (load != null) {
+			load.offer(tags, isWrite);
+			return;
+		}
+		TagTrie trie = tries.get((String) args[0]);
+		if (trie != null) {
+			apply(trie, tags, isWrite);
+		}
+	}
+
+	private static void apply(TagTrie trie, List<Tag> tags, boolean isWrite) {
+		for (Tag tag : tags) {
+			if (isWrite) {
+				trie.put(tag);
+			} else {
+				trie.remove(tag.getTag());
+			}
+		}
+	}
+
+	private Tag toTag(Object obj) {
+		if (obj instanceof Tag tag) {
+			if (StringUtils.isBlank(tag.getTag()) && tag.getId() != null) {
+				Tag t = new Tag(tag.getId());
+				t.setCount(tag.getCount());
+				return t;
+			}
+			return tag;
+		} else if (obj instanceof Sysprop sp && Utils.type(Tag.class).equals(sp.getType()) && sp.getId() != null) {
+			Tag tag = new Tag(sp.getId());
+			tag.setCount(NumberUtils.toInt(String.valueOf(sp.getProperty("count")), 0));
+			return tag;
+		}
+		return null;
+	}
+
+	/**
+	 * A trie which is being loaded, with the writes made meanwhile.
+	 */
+	private static final class Loading {
+		private final CompletableFuture<TagTrie> future = new CompletableFuture<>();
+		private final List<Map.Entry<List<Tag>, Boolean>> writes = new ArrayList<>();
+		private TagTrie trie;
+
+		/**
+		 * Buffers a write until the trie is loaded, or applies it if the trie was loaded already.
+		 */
+		synchronized void offer(List<Tag> tags, boolean isWrite) {
+			if (trie == null) {
+				writes.add(Map.entry(tags, isWrite));
+			} else {
+				apply(trie, tags, isWrite);
+			}
+		}
+
+		synchronized void complete(TagTrie loaded) {
+			// replays the writes made while loading, which the search index may not have had yet
+			writes.forEach(w -> apply(loaded, w.getKey(), w.getValue()));
+			writes.clear();
+			trie = loaded;
+			future.complete(loaded);
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.search;
+
+import com.erudika.para.core.Tag;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A compressed prefix tree (radix tree) of tags, weighted by {@link Tag#getCount()}.
+ * Each node keeps the highest weight in its subtree, so the top K completions for a prefix
+ * are found with a best-first search, without visiting the whole subtree. Thread-safe.
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+final class TagTrie {
+
+	private static final Comparator<Entry> BY_WEIGHT = Comparator.comparingInt(Entry::weight).reversed().
+			thenComparing(Entry::key);
+
+	private final Node root = new Node("");
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Adds a tag or updates an existing one.
+	 * @param tag a tag
+	 */
+	void put(Tag tag) {
+		if (tag == null || tag.getTag() == null || tag.getTag().isEmpty()) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			put(root, tag.getTag(), tag, tag.getCount() == null ? 0 : tag.getCount());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a tag.
+	 * @param key the tag name
+	 */
+	void remove(String key) {
+		if (key == null || key.isEmpty()) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			remove(root, key);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of tags in this trie.
+	 * @return the number of tags
+	 */
+	int size() {
+		lock.readLock().lock();
+		try {
+			return root.size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of tags starting with a given prefix.
+	 * @param prefix a prefix
+	 * @return the number of matching tags
+	 */
+	int count(String prefix) {
+		lock.readLock().lock();
+		try {
+			Node node = find(prefix);
+			return node == null ? 0 : node.size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the tags starting with a given prefix, ordered by weight (highest first).
+	 * @param prefix a prefix, empty string matches all tags
+	 * @param k max number of tags to return
+	 * @return a list of tags
+	 */
+	List<Tag> top(String prefix, int k) {
+		if (k <= 0) {
+			return Collections.emptyList();
+		}
+		lock.readLock().lock();
+		try {
+			Node start = find(prefix);
+			if (start == null) {
+				return Collections.emptyList();
+			}
+			List<Tag> results = new ArrayList<>(Math.min(k, start.size));
+			PriorityQueue<Entry> queue = new PriorityQueue<>(BY_WEIGHT);
+			queue.add(new Entry(start.maxWeight, "", start, null));
+			while (!queue.isEmpty() && results.size() < k) {
+				Entry e = queue.poll();
+				if (e.tag() != null) {
+					results.add(e.tag());
+					continue;
+				}
+				Node node = e.node();
+				if (node.tag != null) {
+					queue.add(new Entry(node.weight, node.tag.getTag(), null, node.tag));
+				}
+				for (Node child : node.children.values()) {
+					queue.add(new Entry(child.maxWeight, child.label, child, null));
+				}
+			}
+			return results;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Node find(String prefix) {
+		Node node = root;
+		String rem = prefix == null ? "" : prefix;
+		while (!rem.isEmpty()) {
+			Node child = node.children.get(rem.charAt(0));
+			if (child == null) {
+				return null;
+			}
+			int common = commonPrefix(rem, child.label);
+			if (common == rem.length()) {
+				return child; // prefix ends inside or at the end of this edge
+			} else if (common < child.label.length()) {
+				return null;
+			}
+			node = child;
+			rem = rem.substring(common);
+		}
+		return node;
+	}
+
+	private void put(Node node, String key, Tag tag, int weight) {
+		if (key.isEmpty()) {
+			node.tag = tag;
+			node.weight = weight;
+		} else {
+			Node child = node.children.get(key.charAt(0));
+			if (child == null) {
+				child = new Node(key);
+				child.tag = tag;
+				child.weight = weight;
+				child.update();
+				node.children.put(key.charAt(0), child);
+			} else {
+				int common = commonPrefix(key, child.label);
+				if (common < child.label.length()) {
+					// split the edge
+					Node mid = new Node(child.label.substring(0, common));
+					child.label = child.label.substring(common);
+					mid.children.put(child.label.charAt(0), child);
+					node.children.put(mid.label.charAt(0), mid);
+					child = mid;
+				}
+				put(child, key.substring(common), tag, weight);
+			}
+		}
+		node.update();
+	}
+
+	private boolean remove(Node node, String key) {
+		if (key.isEmpty()) {
+			boolean removed = node.tag != null;
+			node.tag = null;
+			node.weight = 0;
+			node.update();
+			return removed;
+		}
+		Node child = node.children.get(key.charAt(0));
+		if (child == null || !key.startsWith(child.label)) {
+			return false;
+		}
+		boolean removed = remove(child, key.substring(child.label.length()));
+		if (removed) {
+			if (child.tag == null && child.children.isEmpty()) {
+				node.children.remove(key.charAt(0));
+			} else if (child.tag == null && child.children.size() == 1) {
+				// merge the child with its only descendant
+				Node grandchild = child.children.values().iterator().next();
+				grandchild.label = child.label.concat(grandchild.label);
+				node.children.put(key.charAt(0), grandchild);
+			}
+			node.update();
+		}
+		return removed;
+	}
+
+	private static int commonPrefix(String a, String b) {
+		int max = Math.min(a.length(), b.length());
+		int i = 0;
+		while (i < max && a.charAt(i) == b.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+
+	private record Entry(int weight, String key, Node node, Tag tag) { }
+
+	private static final class Node {
+		private String label;
+		private final Map<Character, Node> children = new HashMap<>(4);
+		private Tag tag;
+		private int weight;
+		private int maxWeight;
+		private int size;
+
+		Node(String label) {
+			this.label = label;
+		}
+
+		void update() {
+			int max = tag == null ? Integer.MIN_VALUE : weight;
+			int count = tag == null ? 0 : 1;
+			for (Node child : children.values()) {
+				max = Math.max(max, child.maxWeight);
+				count += child.size;
+			}
+			this.maxWeight = max;
+			this.size = count;
+		}
+	}
+}
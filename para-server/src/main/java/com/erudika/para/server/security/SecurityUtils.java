@@ -20,6 +20,7 @@ package com.erudika.para.server.security;
 import com.erudika.para.core.App;
 import com.erudika.para.core.ParaObject;
 import com.erudika.para.core.User;
+import com.erudika.para.core.queue.RetryScheduler;
 import com.erudika.para.core.rest.Signer;
 import com.erudika.para.core.utils.Config;
 import com.erudika.para.core.utils.CoreUtils;
@@ -192,6 +193,15 @@ public final class SecurityUtils {
 		return !Strings.CS.equals(type, Utils.type(App.class));
 	}
 
+	/**
+	 * Checks if objects of a given type are managed internally and can't be written through the API.
+	 * @param type some type
+	 * @return true if type is "retrytask" or "deadletter"
+	 */
+	public static boolean isInternalType(String type) {
+		return RetryScheduler.RETRY_TYPE.equals(type) || RetryScheduler.DEAD_LETTER_TYPE.equals(type);
+	}
+
 	/**
 	 * Check if a user can modify an object. If there's no user principal found, this returns true.
 	 *
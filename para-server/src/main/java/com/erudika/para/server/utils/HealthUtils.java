@@ -3,14 +3,18 @@ package com.erudika.para.server.utils;
 import com.erudika.para.core.App;
 import com.erudika.para.core.Sysprop;
 import com.erudika.para.core.listeners.InitializeListener;
+import com.erudika.para.core.utils.Config;
 import com.erudika.para.core.utils.CoreUtils;
+import com.erudika.para.core.utils.Pager;
 import com.erudika.para.core.utils.Para;
+import com.erudika.para.core.utils.Utils;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -52,6 +56,15 @@ public enum HealthUtils implements InitializeListener, Runnable {
 			return healthy;
 		}
 
+		private boolean isIndexed(String rootAppId) {
+			if (Para.getConfig().isDAOAuthoritativeForIds()) {
+				// id lookups are served by the DAO, so query the index directly to make sure it's reachable
+				return !Para.getSearch().findTermInList(Utils.type(App.class), Config._ID,
+						Collections.singletonList(rootAppId), new Pager(1)).isEmpty();
+			}
+			return Para.getSearch().findById(rootAppId) != null;
+		}
+
 		@Override
 		public synchronized void performHealthCheck() {
 			String rootAppId = App.id(Para.getConfig().getRootAppIdentifier());
@@ -70,7 +83,7 @@ public enum HealthUtils implements InitializeListener, Runnable {
 				}
 			}
 			// read the root app from the search, if enabled
-			if (healthy && Para.getConfig().isSearchEnabled() && Para.getSearch().findById(rootAppId) == null) {
+			if (healthy && Para.getConfig().isSearchEnabled() && !isIndexed(rootAppId)) {
 				healthy = false;
 				failedServices.add("Search");
 			}
@@ -19,15 +19,24 @@ package com.erudika.para.server.utils.filters;
 
 import com.erudika.para.core.ParaObject;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import jakarta.servlet.http.HttpServletRequest;
+import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +52,8 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
 /**
  * Filter response entities dynamically, based on a list of selected fields. Returns partial objects.
+ * The getters of each class are looked up once and cached as method handles, and the selected fields
+ * are written straight to the response, without copying them into intermediate maps.
  *
  * @author Alex Bogdanovski [alex@erudika.com]
  */
@@ -51,6 +62,13 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 public class FieldFilter implements ResponseBodyAdvice<Object> {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(FieldFilter.class);
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final ClassValue<Map<String, MethodHandle>> ACCESSORS = new ClassValue<>() {
+		@Override
+		protected Map<String, MethodHandle> computeValue(Class<?> type) {
+			return compileAccessors(type);
+		}
+	};
 
 	/**
 	 * No-args constructor.
@@ -76,15 +94,10 @@ public class FieldFilter implements ResponseBodyAdvice<Object> {
 			if (servletRequest == null) {
 				return body;
 			}
-			String select = servletRequest.getParameter("select");
-			if (StringUtils.isBlank(select)) {
-				return body;
-			}
-			String[] sarr = StringUtils.split(select, ",");
-			if (sarr == null || sarr.length == 0) {
+			List<String> fields = getSelectedFields(servletRequest.getParameter("select"));
+			if (fields.isEmpty()) {
 				return body;
 			}
-			List<String> fields = Arrays.asList(sarr);
 			Object filtered = filterEntity(body, fields);
 			return filtered != null ? filtered : body;
 		} catch (Exception e) {
@@ -93,6 +106,24 @@ public class FieldFilter implements ResponseBodyAdvice<Object> {
 		}
 	}
 
+	/**
+	 * Parses the value of the {@code select} parameter.
+	 * @param select a comma-separated list of field names
+	 * @return a list of distinct field names, empty if none are selected
+	 */
+	public static List<String> getSelectedFields(String select) {
+		if (StringUtils.isBlank(select)) {
+			return Collections.emptyList();
+		}
+		LinkedHashSet<String> fields = new LinkedHashSet<>();
+		for (String f : StringUtils.split(select, ",")) {
+			if (!StringUtils.isBlank(f)) {
+				fields.add(f.trim());
+			}
+		}
+		return new ArrayList<>(fields);
+	}
+
 	private HttpServletRequest getServletRequest(ServerHttpRequest request) {
 		if (request instanceof ServletServerHttpRequest) {
 			return ((ServletServerHttpRequest) request).getServletRequest();
@@ -105,16 +136,19 @@ public class FieldFilter implements ResponseBodyAdvice<Object> {
 		if (fields == null || fields.isEmpty()) {
 			return null;
 		}
+		// projections are compiled once per class of object in the response
+		Map<Class<?>, Projection> projections = new HashMap<>(2);
 		Object newEntity = null;
 		if (entity instanceof ParaObject) {
-			newEntity = getFilteredProperties(entity, fields);
+			newEntity = project(entity, fields, projections);
 		} else if (entity instanceof Map) {
 			Map<String, Object> map = (Map<String, Object>) entity;
 			if (map.containsKey("items") && map.get("items") instanceof List) {
-				List<Object> filteredItems = new ArrayList<>();
-				for (Object item : (List<?>) map.get("items")) {
+				List<?> items = (List<?>) map.get("items");
+				List<Object> filteredItems = new ArrayList<>(items.size());
+				for (Object item : items) {
 					if (item instanceof ParaObject) {
-						filteredItems.add(getFilteredProperties(item, fields));
+						filteredItems.add(project(item, fields, projections));
 					} else {
 						filteredItems.add(item);
 					}
@@ -125,10 +159,10 @@ public class FieldFilter implements ResponseBodyAdvice<Object> {
 		} else if (entity instanceof List) {
 			List<?> list = (List<?>) entity;
 			if (!list.isEmpty() && list.get(0) instanceof ParaObject) {
-				List<Map<String, Object>> newList = new ArrayList<>();
+				List<Object> newList = new ArrayList<>(list.size());
 				for (Object item : list) {
 					if (item instanceof ParaObject) {
-						newList.add(getFilteredProperties(item, fields));
+						newList.add(project(item, fields, projections));
 					}
 				}
 				newEntity = newList;
@@ -137,24 +171,89 @@ public class FieldFilter implements ResponseBodyAdvice<Object> {
 		return newEntity;
 	}
 
-	private Map<String, Object> getFilteredProperties(Object object, List<String> fields) {
-		Map<String, Object> newItem = new HashMap<>();
-		for (String f : fields) {
-			String field = StringUtils.trimToEmpty(f);
-			newItem.put(field, getProperty(object, field));
+	private Object project(Object object, List<String> fields, Map<Class<?>, Projection> projections) {
+		return projections.computeIfAbsent(object.getClass(), c -> new Projection(fields, ACCESSORS.get(c))).of(object);
+	}
+
+	/**
+	 * Finds the readable and writable properties of a class, which are not ignored by Jackson.
+	 */
+	private static Map<String, MethodHandle> compileAccessors(Class<?> type) {
+		Map<String, MethodHandle> accessors = new HashMap<>();
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			for (PropertyDescriptor pd : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+				Method m = pd.getReadMethod();
+				if (m != null && pd.getWriteMethod() != null && !m.isAnnotationPresent(JsonIgnore.class)) {
+					try {
+						accessors.put(pd.getName(), lookup.unreflect(m).asType(GETTER_TYPE));
+					} catch (IllegalAccessException e) {
+						LOGGER.debug("Property '{}' of {} is not accessible.", pd.getName(), type.getName());
+					}
+				}
+			}
+		} catch (Exception e) {
+			LOGGER.warn("Failed to inspect the properties of {}: {}", type.getName(), e.getMessage());
 		}
-		return newItem;
+		return accessors;
 	}
 
-	private Object getProperty(Object obj, String prop) {
-		if (obj != null && !StringUtils.isBlank(prop)) {
-			try {
-				Method m = PropertyUtils.getReadMethod(new PropertyDescriptor(prop, obj.getClass()));
-				if (m != null && !m.isAnnotationPresent(JsonIgnore.class)) {
-					return PropertyUtils.getProperty(obj, prop);
+	/**
+	 * The getters of the selected fields of a class.
+	 */
+	private static final class Projection {
+		private final String[] names;
+		private final MethodHandle[] getters;
+
+		Projection(List<String> fields, Map<String, MethodHandle> accessors) {
+			this.names = fields.toArray(String[]::new);
+			this.getters = new MethodHandle[names.length];
+			for (int i = 0; i < names.length; i++) {
+				getters[i] = accessors.get(names[i]);
+			}
+		}
+
+		ProjectedObject of(Object object) {
+			Object[] values = new Object[names.length];
+			for (int i = 0; i < names.length; i++) {
+				if (getters[i] != null) {
+					try {
+						values[i] = (Object) getters[i].invokeExact(object);
+					} catch (Throwable e) {
+						LOGGER.debug("Failed to read property '{}': {}", names[i], e.getMessage());
+					}
 				}
-			} catch (Exception e) {	}
+			}
+			return new ProjectedObject(names, values);
+		}
+	}
+
+	/**
+	 * The selected fields of an object, serialized directly as a JSON object. Fields which don't exist are null.
+	 */
+	private static final class ProjectedObject implements JsonSerializable {
+		private final String[] names;
+		private final Object[] values;
+
+		ProjectedObject(String[] names, Object[] values) {
+			this.names = names;
+			this.values = values;
+		}
+
+		@Override
+		public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+			gen.writeStartObject();
+			for (int i = 0; i < names.length; i++) {
+				gen.writeFieldName(names[i]);
+				serializers.defaultSerializeValue(values[i], gen);
+			}
+			gen.writeEndObject();
+		}
+
+		@Override
+		public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+				throws IOException {
+			serialize(gen, serializers);
 		}
-		return null;
 	}
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.core.search;
+
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.Sysprop;
+import com.erudika.para.core.utils.Pager;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ *
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class FederatedQueryTest {
+
+	@AfterEach
+	public void tearDown() {
+		System.clearProperty("para.max_pages");
+		System.clearProperty("para.max_items_per_page");
+	}
+
+	private static List<ParaObject> objects(long... timestamps) {
+		List<ParaObject> list = new ArrayList<>();
+		for (long timestamp : timestamps) {
+			Sysprop s = new Sysprop("s" + timestamp);
+			s.setTimestamp(timestamp);
+			list.add(s);
+		}
+		return list;
+	}
+
+	@Test
+	public void testMergeAndReportFailedApps() {
+		Search search = mock(Search.class);
+		when(search.<ParaObject>findQuery(eq("app1"), any(), anyString(), any(Pager.class))).thenReturn(objects(5, 3, 1));
+		when(search.<ParaObject>findQuery(eq("app2"), any(), anyString(), any(Pager.class))).thenReturn(objects(4, 2));
+		when(search.<ParaObject>findQuery(eq("app3"), any(), anyString(), any(Pager.class))).
+				thenThrow(new IllegalStateException("search failed"));
+
+		List<String> failed = new ArrayList<>();
+		List<ParaObject> results = FederatedQuery.execute(search, List.of("app1", "app2", "app3"), null, "*", failed,
+				new Pager(1, "timestamp", true, 4));
+		assertEquals(List.of(5L, 4L, 3L, 2L), results.stream().map(ParaObject::getTimestamp).toList());
+		// the results of the failed app are missing, so it's reported
+		assertEquals(List.of("app3"), failed);
+	}
+
+	@Test
+	public void testWindowIsCapped() {
+		System.setProperty("para.max_pages", "2");
+		System.setProperty("para.max_items_per_page", "5");
+		Search search = mock(Search.class);
+		when(search.<ParaObject>findQuery(anyString(), any(), anyString(), any(Pager.class))).thenReturn(objects(1));
+
+		FederatedQuery.execute(search, List.of("app1"), null, "*", null, new Pager(1000, "timestamp", true, 100));
+		ArgumentCaptor<Pager> pager = ArgumentCaptor.forClass(Pager.class);
+		verify(search).findQuery(eq("app1"), any(), eq("*"), pager.capture());
+		// no more than max_pages * max_items_per_page results per app, however deep the requested page is
+		assertEquals(10, pager.getValue().getLimit());
+	}
+}
@@ -18,24 +18,38 @@
 package com.erudika.para.rest;
 
 import com.erudika.para.core.App;
+import com.erudika.para.core.ParaObject;
 import com.erudika.para.core.Sysprop;
 import com.erudika.para.core.Tag;
 import com.erudika.para.core.utils.CoreUtils;
+import com.erudika.para.core.utils.Pager;
 import com.erudika.para.core.utils.Para;
 import com.erudika.para.core.utils.ParaObjectUtils;
 import com.erudika.para.server.ParaServer;
+import com.erudika.para.server.rest.Api1;
 import com.erudika.para.server.rest.GenericExceptionMapper;
 import static com.erudika.para.server.rest.RestUtils.*;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.lang3.Strings;
 import org.junit.jupiter.api.AfterAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -45,6 +59,10 @@ import org.springframework.boot.WebApplicationType;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 /**
  *
  * @author Alex Bogdanovski [alex@erudika.com]
@@ -74,6 +92,35 @@ public class RestUtilsTest {
 		Para.destroy();
 	}
 
+	private InputStream getInputStream(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private HttpServletRequest getRequest(String body) throws IOException {
+		return getRequest(body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private HttpServletRequest getRequest(byte[] body) throws IOException {
+		ByteArrayInputStream bytes = new ByteArrayInputStream(body);
+		HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+		Mockito.when(req.getInputStream()).thenReturn(new ServletInputStream() {
+			public int read() {
+				return bytes.read();
+			}
+
+			public boolean isFinished() {
+				return bytes.available() == 0;
+			}
+
+			public boolean isReady() {
+				return true;
+			}
+
+			public void setReadListener(ReadListener listener) { }
+		});
+		return req;
+	}
+
 	private InputStream getInputStream(Object obj) throws JsonProcessingException {
 		if (obj != null) {
 			return new ByteArrayInputStream(ParaObjectUtils.getJsonWriter().
@@ -91,6 +138,45 @@ public class RestUtilsTest {
 		assertEquals(HttpStatus.OK, getReadResponse(root, new App("test1")).getStatusCode());
 	}
 
+	@Test
+	public void testConditionalReadResponse() {
+		App app = new App("test");
+		Tag tag = new Tag("etag");
+		tag.setVersion(1L);
+		tag.setUpdated(1000L);
+		String etag = getETag(tag);
+		assertEquals(etag, getReadResponse(app, tag).getHeaders().getETag());
+		tag.setVersion(2L);
+		assertFalse(etag.equals(getETag(tag)));
+		assertTrue(getWeakETag(List.of(tag), 1L).startsWith("W/"));
+		assertFalse(getWeakETag(List.of(tag), 1L).equals(getWeakETag(List.of(tag), 2L)));
+
+		HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+		Mockito.when(req.getMethod()).thenReturn("GET");
+		Mockito.when(req.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"x\", " + getETag(tag));
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(req));
+		try {
+			assertEquals(HttpStatus.NOT_MODIFIED, getReadResponse(app, tag).getStatusCode());
+			assertNull(getReadResponse(app, tag).getBody());
+			assertEquals(List.of(HttpHeaders.ACCEPT), getReadResponse(app, tag).getHeaders().getVary());
+			// the CBOR representation of the same object has a different ETag
+			Mockito.when(req.getHeader(HttpHeaders.ACCEPT)).thenReturn("application/cbor");
+			assertEquals(HttpStatus.OK, getReadResponse(app, tag).getStatusCode());
+			assertEquals(Strings.CS.removeEnd(getETag(tag), "\"") + "-cbor\"",
+					getReadResponse(app, tag).getHeaders().getETag());
+			tag.setUpdated(2000L);
+			Mockito.when(req.getHeader(HttpHeaders.ACCEPT)).thenReturn(null);
+			assertEquals(HttpStatus.OK, getReadResponse(app, tag).getStatusCode());
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+		assertNull(getResponseFormat(null));
+		assertNull(getResponseFormat("*/*"));
+		assertNull(getResponseFormat("application/json, application/cbor"));
+		assertEquals("cbor", getResponseFormat("application/json;q=0.5, application/cbor"));
+		assertEquals("smile", getResponseFormat("application/x-jackson-smile"));
+	}
+
 	@Test
 	public void testGetCreateUpdateDeleteResponse() throws JsonProcessingException {
 		Tag t = new Tag("tag");
@@ -234,4 +320,203 @@ public class RestUtilsTest {
 		assertNull(readResourcePath(appid, "sysprop/" + s.getId()));
 		app.delete();
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testBatchRequestsInChunks() {
+		App app = new App(Para.getConfig().appName());
+		System.setProperty("para.batch_chunk_size", "2");
+		System.setProperty("para.max_entity_size_bytes", "1024");
+		try {
+			String ok = "[{\"id\": \"chunk1\", \"type\": \"sysprop\"}, null, {\"id\": \"chunk2\", \"type\": \"sysprop\"}, "
+					+ "{\"id\": \"chunk3\", \"type\": \"sysprop\"}]";
+			ResponseEntity<?> res = getBatchCreateResponse(app, getInputStream(ok));
+			assertEquals(HttpStatus.OK, res.getStatusCode());
+			assertEquals(3, ((List<?>) res.getBody()).size());
+			assertNotNull(Para.getDAO().read(app.getAppIdentifier(), "chunk3"));
+
+			assertEquals(HttpStatus.BAD_REQUEST, getBatchCreateResponse(app, getInputStream("{}")).getStatusCode());
+			String tooLarge = "[{\"type\": \"sysprop\", \"name\": \"" + "x".repeat(2048) + "\"}]";
+			res = getBatchCreateResponse(app, getInputStream(tooLarge));
+			assertEquals(HttpStatus.BAD_REQUEST, res.getStatusCode());
+			assertNull(((Map<?, ?>) res.getBody()).get("items"));
+
+			// the first chunk is stored before the error is found, so it's returned along with the error
+			String broken = "[{\"id\": \"partial1\", \"type\": \"sysprop\"}, {\"id\": \"partial2\", \"type\": \"sysprop\"}, "
+					+ "{\"id\": \"partial3\", \"type\": \"sysprop\"}, {broken";
+			res = getBatchCreateResponse(app, getInputStream(broken));
+			assertEquals(HttpStatus.BAD_REQUEST, res.getStatusCode());
+			assertEquals(2, ((List<?>) ((Map<?, ?>) res.getBody()).get("items")).size());
+			assertNotNull(Para.getDAO().read(app.getAppIdentifier(), "partial2"));
+			assertNull(Para.getDAO().read(app.getAppIdentifier(), "partial3"));
+
+			String updates = "[{\"id\": \"chunk1\", \"name\": \"c1\"}, {\"id\": \"chunk2\", \"name\": \"c2\"}, {broken";
+			res = getBatchUpdateResponse(app, getInputStream(updates));
+			assertEquals(HttpStatus.BAD_REQUEST, res.getStatusCode());
+			assertEquals(2, ((List<?>) ((Map<?, ?>) res.getBody()).get("items")).size());
+		} finally {
+			System.clearProperty("para.batch_chunk_size");
+			System.clearProperty("para.max_entity_size_bytes");
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBulkResultsPerLine() throws IOException {
+		App app = new App(Para.getConfig().appName());
+		System.setProperty("para.max_entity_size_bytes", "1024");
+		try {
+			String body = "{\"create\": {\"id\": \"bulk1\", \"type\": \"sysprop\"}}\r\n"
+					+ "\n"
+					+ "{\"create\": {\"type\": \"sysprop\", \"name\": \"" + "x".repeat(5000) + "\"}}\n"
+					+ "{\"update\": {\"id\": \"bulk1\", \"name\": \"updated\"}}\n"
+					+ "{\"update\": {\"name\": \"no id\"}}\n"
+					+ "not json\n"
+					+ "{\"delete\": {\"id\": \"bulk1\"}}";
+			ResponseEntity<?> res = new Api1().bulkHandler(app, getRequest(body));
+			assertEquals(HttpStatus.OK, res.getStatusCode());
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			((StreamingResponseBody) res.getBody()).writeTo(out);
+			List<Map<String, Object>> results = new ArrayList<>();
+			for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+				results.add(ParaObjectUtils.getJsonReader(Map.class).readValue(line));
+			}
+			assertEquals(6, results.size());
+			assertEquals(List.of(1, 3, 4, 5, 6, 7), results.stream().map(r -> r.get("line")).toList());
+			assertEquals(201, results.get(0).get("status"));
+			assertEquals(400, results.get(1).get("status")); // too large
+			assertEquals(200, results.get(2).get("status"));
+			assertEquals(400, results.get(3).get("status"));
+			assertEquals(400, results.get(4).get("status"));
+			assertEquals(200, results.get(5).get("status"));
+			assertNull(Para.getDAO().read(app.getAppIdentifier(), "bulk1"));
+		} finally {
+			System.clearProperty("para.max_entity_size_bytes");
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testMultiRequestReferencesAndFailedDependencies() throws IOException {
+		App app = new App(Para.getConfig().appName());
+		String ops = "["
+				+ "{\"method\": \"POST\", \"path\": \"sysprop\", \"body\": {\"id\": \"multi1\", \"name\": \"first\"}},"
+				+ "{\"method\": \"PATCH\", \"path\": \"sysprop/$0.id\", \"body\": {\"name\": \"copy of $0.name\"}},"
+				+ "{\"method\": \"GET\", \"path\": \"sysprop/multi-missing\"},"
+				+ "{\"method\": \"GET\", \"path\": \"sysprop/$2.id\"},"
+				+ "{\"method\": \"GET\", \"path\": \"sysprop/multi1\", \"dependsOn\": [1]}"
+				+ "]";
+		try {
+			HttpServletRequest req = getRequest(ops);
+			Mockito.when(req.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn("Bearer test");
+			ResponseEntity<?> res = new Api1().multiHandler(app, req);
+			assertEquals(HttpStatus.OK, res.getStatusCode());
+			List<Map<String, Object>> results = (List<Map<String, Object>>) res.getBody();
+			assertEquals(List.of(201, 200, 404, 424, 200), results.stream().map(r -> r.get("status")).toList());
+			// "$0.id" is replaced in the path and "$0.name" inside a string in the body
+			assertEquals("copy of first", ((ParaObject) results.get(1).get("body")).getName());
+			assertEquals("copy of first", ((ParaObject) results.get(4).get("body")).getName());
+			// an operation which refers to a failed one is not executed
+			assertTrue(String.valueOf(results.get(3).get("body")).contains("Operation 2 failed"));
+
+			// operations can only refer to earlier ones
+			req = getRequest("[{\"method\": \"GET\", \"path\": \"sysprop/$1.id\"}, {\"method\": \"GET\", \"path\": \"search\"}]");
+			Mockito.when(req.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn("Bearer test");
+			assertEquals(HttpStatus.BAD_REQUEST, new Api1().multiHandler(app, req).getStatusCode());
+		} finally {
+			Para.getDAO().delete(app.getAppIdentifier(), new Sysprop("multi1"));
+		}
+	}
+
+	@Test
+	public void testExportImportRoundTrip() throws IOException {
+		String appid = "export-test";
+		App app = new App(appid);
+		app.create();
+		List<ParaObject> objects = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			Sysprop s = new Sysprop("export" + i);
+			s.setAppid(appid);
+			s.setName("exported " + i);
+			objects.add(s);
+		}
+		Para.getDAO().createAll(appid, objects);
+		System.setProperty("para.export_objects_per_part", "10");
+		try {
+			ResponseEntity<StreamingResponseBody> res = new Api1().backupHandler(app);
+			assertEquals(HttpStatus.OK, res.getStatusCode());
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			res.getBody().writeTo(out);
+			int parts = 0;
+			try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+				while (zipIn.getNextEntry() != null) {
+					parts++;
+				}
+			}
+			assertTrue(parts >= 3);
+
+			Para.getDAO().deleteAll(appid, objects);
+			assertNull(Para.getDAO().read(appid, "export0"));
+			ResponseEntity<?> imported = new Api1().restoreHandler(app, getRequest(out.toByteArray()));
+			assertEquals(HttpStatus.OK, imported.getStatusCode());
+			assertEquals("done", ((Sysprop) imported.getBody()).getProperty("status"));
+			for (int i = 0; i < 25; i++) {
+				ParaObject restored = Para.getDAO().read(appid, "export" + i);
+				assertNotNull(restored);
+				assertEquals("exported " + i, restored.getName());
+			}
+		} finally {
+			System.clearProperty("para.export_objects_per_part");
+			Para.getDAO().deleteAll(appid, objects);
+			app.delete();
+		}
+	}
+
+	@Test
+	public void testGetPagerFromParamsWithCursor() {
+		String cursor = Pager.encodeCursor(3, "1234", "id:5");
+		Pager p = new Pager();
+		assertTrue(p.applyCursor(cursor));
+		assertEquals(3, p.getPage());
+		assertEquals("1234", p.getLastSortValue());
+		assertEquals("id:5", p.getLastKey());
+		assertFalse(new Pager().applyCursor("invalid"));
+		assertFalse(new Pager().applyCursor(null));
+
+		HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+		Mockito.when(req.getParameter("cursor")).thenReturn(cursor);
+		Pager pager = getPagerFromParams(req);
+		assertEquals(3, pager.getPage());
+		assertEquals(cursor, pager.getCursor());
+
+		// an explicit page which doesn't match the cursor means that the cursor is stale
+		Mockito.when(req.getParameter("page")).thenReturn("1");
+		pager = getPagerFromParams(req);
+		assertEquals(1, pager.getPage());
+		assertNull(pager.getCursor());
+		Mockito.when(req.getParameter("page")).thenReturn("3");
+		assertEquals(cursor, getPagerFromParams(req).getCursor());
+	}
+
+	@Test
+	public void testGetPagerFromParamsWithCountMode() {
+		HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+		assertEquals(Pager.CountMode.EXACT, getPagerFromParams(req).getCountMode());
+		Mockito.when(req.getParameter("count")).thenReturn("none");
+		assertEquals(Pager.CountMode.NONE, getPagerFromParams(req).getCountMode());
+		assertFalse(getPagerFromParams(req).isCountRequired());
+		Mockito.when(req.getParameter("count")).thenReturn("APPROX");
+		assertEquals(Pager.CountMode.APPROX, getPagerFromParams(req).getCountMode());
+		Mockito.when(req.getParameter("count")).thenReturn("true");
+		assertEquals(Pager.CountMode.EXACT, getPagerFromParams(req).getCountMode());
+		assertTrue(getPagerFromParams(req).isCountRequired());
+	}
+
+	@Test
+	public void testGetTotalHitsRelation() {
+		Pager pager = new Pager();
+		assertEquals("eq", getTotalHitsRelation(null));
+		assertEquals("eq", getTotalHitsRelation(pager));
+		pager.setCountMode(Pager.CountMode.APPROX);
+		assertEquals(Para.getSearch().isCountModeSupported() ? "gte" : "eq", getTotalHitsRelation(pager));
+	}
+}
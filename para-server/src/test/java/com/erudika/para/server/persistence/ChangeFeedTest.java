@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.persistence;
+
+import com.erudika.para.core.Sysprop;
+import com.erudika.para.server.persistence.ChangeFeed.Change;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class ChangeFeedTest {
+
+	private final ChangeFeed feed = ChangeFeed.getInstance();
+
+	@AfterEach
+	public void tearDown() {
+		System.clearProperty("para.changes_feed.buffer_size");
+		System.clearProperty("para.changes_feed.max_streams_per_app");
+	}
+
+	@Test
+	public void testResume() throws InterruptedException {
+		String appid = "feed-resume";
+		assertEquals(0, feed.getLastSeq(appid));
+		assertEquals(1, feed.record(appid, "create", new Sysprop("s1")));
+		assertEquals(2, feed.record(appid, "update", new Sysprop("s1")));
+		assertEquals(3, feed.record(appid, "delete", new Sysprop("s1")));
+		assertEquals(3, feed.getLastSeq(appid));
+
+		List<Change> changes = feed.read(appid, 0, 10, 0);
+		assertEquals(List.of(1L, 2L, 3L), changes.stream().map(Change::seq).toList());
+		assertTrue(changes.get(0).json().startsWith("{\"seq\":1,\"op\":\"create\""));
+		assertFalse(changes.get(2).json().contains("\"object\""));
+		// clients resume after the last change they have seen
+		assertEquals(List.of(3L), feed.read(appid, 2, 10, 0).stream().map(Change::seq).toList());
+		assertEquals(List.of(1L, 2L), feed.read(appid, 0, 2, 0).stream().map(Change::seq).toList());
+		assertTrue(feed.read(appid, 3, 10, 0).isEmpty());
+
+		// and wait for new changes
+		Thread writer = new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			feed.record(appid, "create", new Sysprop("s2"));
+		});
+		writer.start();
+		assertEquals(List.of(4L), feed.read(appid, 3, 10, 5000).stream().map(Change::seq).toList());
+		writer.join();
+	}
+
+	@Test
+	public void testReset() throws InterruptedException {
+		System.setProperty("para.changes_feed.buffer_size", "3");
+		String appid = "feed-reset";
+		for (int i = 1; i <= 5; i++) {
+			feed.record(appid, "create", new Sysprop("s" + i));
+		}
+		// only the last 3 changes are kept, so a client which has seen change 1 has missed change 2
+		assertNull(feed.read(appid, 1, 10, 0));
+		assertEquals(List.of(3L, 4L, 5L), feed.read(appid, 2, 10, 0).stream().map(Change::seq).toList());
+		assertEquals(List.of(3L, 4L, 5L), feed.read(appid, 0, 10, 0).stream().map(Change::seq).toList());
+		// a client which is ahead, e.g. after the change feed was reset, has to resync too
+		assertNull(feed.read(appid, 6, 10, 0));
+	}
+
+	@Test
+	public void testCursorFromAnotherNode() {
+		System.setProperty("para.worker_id", "2");
+		try {
+			assertEquals("2:15", feed.toCursor(15));
+			assertEquals(15, feed.parseCursor(feed.toCursor(15), 7));
+			assertEquals(15, feed.parseCursor("15", 7));
+			assertEquals(0, feed.parseCursor("0", 7));
+			assertEquals(7, feed.parseCursor(" ", 7));
+			// sequence numbers of other nodes are unrelated
+			assertEquals(-1, feed.parseCursor("1:15", 7));
+			assertEquals(-1, feed.parseCursor("2:x", 7));
+			assertEquals(-1, feed.parseCursor("-5", 7));
+		} finally {
+			System.clearProperty("para.worker_id");
+		}
+	}
+
+	@Test
+	public void testStreamLimits() {
+		System.setProperty("para.changes_feed.max_streams_per_app", "1");
+		String appid = "feed-streams";
+		assertTrue(feed.acquireStream(appid));
+		assertFalse(feed.acquireStream(appid));
+		assertTrue(feed.acquireStream("feed-streams2"));
+		feed.releaseStream(appid);
+		feed.releaseStream("feed-streams2");
+		assertTrue(feed.acquireStream(appid));
+		feed.releaseStream(appid);
+	}
+}
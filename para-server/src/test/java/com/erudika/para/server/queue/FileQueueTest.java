@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.queue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class FileQueueTest extends QueueTest {
+
+	private static Path dir;
+
+	public FileQueueTest() throws IOException {
+		super();
+		dir = Files.createTempDirectory("para-queue");
+		q = new FileQueue("test", dir);
+	}
+
+	@Test
+	public void testRedeliveryAfterRestart() {
+		FileQueue fq = (FileQueue) q;
+		fq.push("{\"test1\": 1 }");
+		fq.push("{\"test2\": 2 }");
+		assertEquals("{\"test1\": 1 }", fq.pull());
+		fq.commit();
+		assertEquals("{\"test2\": 2 }", fq.pull());
+		fq.rollback();
+		assertEquals("{\"test2\": 2 }", fq.pull());
+
+		// not committed - should be delivered again after reopening the journal
+		FileQueue reopened = new FileQueue("test", dir);
+		assertEquals("{\"test2\": 2 }", reopened.pull());
+		assertEquals("", reopened.pull());
+	}
+
+	@Test
+	public void testCommitUpToPosition() throws IOException {
+		Path dir2 = Files.createTempDirectory("para-queue");
+		FileQueue fq = new FileQueue("test", dir2);
+		fq.push("{\"test1\": 1 }");
+		fq.push("{\"test2\": 2 }");
+		fq.push("{\"test3\": 3 }");
+		assertEquals("{\"test1\": 1 }", fq.pull());
+		long first = fq.position();
+		assertEquals("{\"test2\": 2 }", fq.pull());
+		// the first message is done while the second one is still being processed
+		fq.commit(first);
+		// positions which are already committed or not read yet are ignored
+		fq.commit(0);
+		fq.commit(Long.MAX_VALUE);
+
+		FileQueue reopened = new FileQueue("test", dir2);
+		assertEquals("{\"test2\": 2 }", reopened.pull());
+		assertEquals("{\"test3\": 3 }", reopened.pull());
+		assertEquals("", reopened.pull());
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.queue;
+
+import com.erudika.para.core.queue.QueueFullException;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ *
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class LocalQueueTest {
+
+	@BeforeEach
+	public void setUp() {
+		System.setProperty("para.queue.local_capacity", "2");
+		System.setProperty("para.queue.overflow_timeout_ms", "200");
+	}
+
+	@AfterEach
+	public void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+		System.clearProperty("para.queue.local_capacity");
+		System.clearProperty("para.queue.overflow_policy");
+		System.clearProperty("para.queue.overflow_timeout_ms");
+		System.clearProperty("para.queue.file_dir");
+	}
+
+	@Test
+	public void testReject() {
+		System.setProperty("para.queue.overflow_policy", "reject");
+		LocalQueue q = new LocalQueue("test-reject");
+		q.push("m1");
+		q.push("m2");
+		assertThrows(QueueFullException.class, () -> q.push("m3"));
+		assertEquals("m1", q.pull());
+		q.push("m3");
+		assertEquals(List.of("m2", "m3"), q.pullBatch(10, 0));
+	}
+
+	@Test
+	public void testBlock() throws InterruptedException {
+		System.setProperty("para.queue.overflow_policy", "block");
+		LocalQueue q = new LocalQueue("test-block");
+		q.push("m1");
+		q.push("m2");
+		// background threads never wait for free space
+		long start = System.currentTimeMillis();
+		assertThrows(QueueFullException.class, () -> q.push("m3"));
+		assertTrue(System.currentTimeMillis() - start < 200);
+
+		// request threads wait until there's room, or until the timeout
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(Mockito.mock(HttpServletRequest.class)));
+		Thread consumer = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			q.pull();
+		});
+		consumer.start();
+		q.push("m3");
+		consumer.join();
+		start = System.currentTimeMillis();
+		assertThrows(QueueFullException.class, () -> q.push("m4"));
+		assertTrue(System.currentTimeMillis() - start >= 150);
+		assertEquals(List.of("m2", "m3"), q.pullBatch(10, 0));
+	}
+
+	@Test
+	public void testSpill() throws IOException {
+		System.setProperty("para.queue.overflow_policy", "spill");
+		System.setProperty("para.queue.file_dir", Files.createTempDirectory("para-queue").toString());
+		LocalQueue q = new LocalQueue("test-spill");
+		q.push("m1");
+		q.push("m2");
+		q.push("m3");
+		assertEquals("m1", q.pull());
+		// there's room in memory again, but new messages go to disk until it's drained, to keep them in order
+		q.push("m4");
+		assertEquals(List.of("m2", "m3", "m4"), q.pullBatch(10, 0));
+		assertEquals("", q.pull());
+		// once drained, messages are kept in memory again
+		q.push("m5");
+		q.push("m6");
+		q.push("m7");
+		assertEquals(List.of("m5", "m6"), q.pullBatch(2, 0));
+		assertEquals(List.of("m7"), q.pullBatch(10, 0));
+		assertTrue(q.pullBatch(10, 0).isEmpty());
+	}
+}
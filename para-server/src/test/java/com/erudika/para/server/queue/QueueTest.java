@@ -17,10 +17,25 @@
  */
 package com.erudika.para.server.queue;
 
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.persistence.DAO;
+import com.erudika.para.core.persistence.MockDAO;
 import com.erudika.para.core.queue.Queue;
+import com.erudika.para.core.queue.RetryScheduler;
+import com.erudika.para.core.utils.CoreUtils;
+import com.erudika.para.core.utils.Para;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 
 /**
  *
@@ -52,4 +67,78 @@ public abstract class QueueTest {
 		assertEquals("", q.pull());
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testPullBatch() {
+		assertTrue(q.pullBatch(10, 50).isEmpty());
+		String msg1 = "{\"test1\": 123 }";
+		String msg2 = "{\"test2\": 123 }";
+		q.push(msg1);
+		q.push(msg2);
+		assertEquals(List.of(msg1), q.pullBatch(1, 1000));
+		assertEquals(List.of(msg2), q.pullBatch(10, 1000));
+		assertTrue(q.pullBatch(10, 0).isEmpty());
+	}
+
+	@Test
+	public void testPartitionDispatch() {
+		assertEquals("app1", PartitionedRiver.getAppid("{\"type\": \"sysprop\", \"appid\": \"app1\", \"x\": {}}"));
+		assertEquals("app2", PartitionedRiver.getAppid("{\"nested\": {\"appid\": \"other\"}, \"appid\": \"app2\"}"));
+		assertEquals("", PartitionedRiver.getAppid("{\"appid\": 123}"));
+		assertEquals("", PartitionedRiver.getAppid("not json"));
+		assertEquals("", PartitionedRiver.getAppid("[]"));
+
+		for (int partitions = 1; partitions <= 8; partitions++) {
+			int p = PartitionedRiver.partition("app1", partitions);
+			assertTrue(p >= 0 && p < partitions);
+			assertEquals(p, PartitionedRiver.partition("app1", partitions));
+			assertEquals(PartitionedRiver.partition("", partitions), PartitionedRiver.partition(null, partitions));
+		}
+		// Integer.MIN_VALUE hash code must not produce a negative partition
+		assertTrue(PartitionedRiver.partition("polygenelubricants", 7) >= 0);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testPoisonMessageDoesNotStallRiver() throws InterruptedException {
+		System.setProperty("para.river.max_delivery_attempts", "2");
+		System.setProperty("para.river.retry_base_delay_ms", "1");
+		DAO oldDao = CoreUtils.getInstance().getDao();
+		DAO dao = spy(new MockDAO());
+		// the poison message can never be written, while the others can be written on their own
+		doAnswer(i -> {
+			if (((List<ParaObject>) i.getArgument(0)).stream().anyMatch(o -> "poison".equals(o.getId()))) {
+				throw new IllegalStateException("poison");
+			}
+			return i.callRealMethod();
+		}).when(dao).createAll(anyList());
+		CoreUtils.getInstance().setDao(dao);
+		String root = Para.getConfig().getRootAppIdentifier();
+		Thread river = Thread.ofVirtual().start(new PartitionedRiver(q, 2, 10, 100));
+		try {
+			q.push(message("ok1"));
+			q.push("not json");
+			q.push(message("poison"));
+			q.push(message("ok2"));
+			verify(dao, timeout(10000)).create(eq("app1"), argThat((ParaObject o) ->
+					RetryScheduler.DEAD_LETTER_TYPE.equals(o.getType())));
+			verify(dao, timeout(10000)).createAll(argThat((List<ParaObject> l) -> l.size() == 1 &&
+					"ok2".equals(l.get(0).getId())));
+			// the river keeps going after the poison message was moved to the dead-letter store
+			q.push(message("ok3"));
+			verify(dao, timeout(10000)).createAll(argThat((List<ParaObject> l) -> l.size() == 1 &&
+					"ok3".equals(l.get(0).getId())));
+			assertTrue(dao.read(root, "ok1") != null && dao.read(root, "ok3") != null);
+		} finally {
+			river.interrupt();
+			river.join(5000);
+			CoreUtils.getInstance().setDao(oldDao);
+			System.clearProperty("para.river.max_delivery_attempts");
+			System.clearProperty("para.river.retry_base_delay_ms");
+		}
+	}
+
+	private static String message(String id) {
+		return "{\"type\": \"sysprop\", \"appid\": \"app1\", \"id\": \"" + id + "\", \"_create\": \"true\"}";
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.queue;
+
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.Sysprop;
+import com.erudika.para.core.persistence.DAO;
+import com.erudika.para.core.persistence.MockDAO;
+import com.erudika.para.core.queue.MockQueue;
+import com.erudika.para.core.queue.Queue;
+import com.erudika.para.core.queue.RetryScheduler;
+import com.erudika.para.core.search.Search;
+import com.erudika.para.core.utils.CoreUtils;
+import com.erudika.para.core.utils.ParaObjectUtils;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ *
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class RetrySchedulerTest {
+
+	private final RetryScheduler retries = RetryScheduler.getInstance();
+	private final String appid = "retry-test";
+	private DAO oldDao;
+	private Search oldSearch;
+	private Queue oldQueue;
+	private DAO dao;
+	private Search search;
+	private Queue queue;
+
+	@BeforeEach
+	public void setUp() {
+		System.setProperty("para.river.retry_base_delay_ms", "1");
+		System.setProperty("para.river.max_indexing_retries", "2");
+		oldDao = CoreUtils.getInstance().getDao();
+		oldSearch = CoreUtils.getInstance().getSearch();
+		oldQueue = CoreUtils.getInstance().getQueue();
+		dao = spy(new MockDAO());
+		search = mock(Search.class);
+		queue = new MockQueue();
+		CoreUtils.getInstance().setDao(dao);
+		CoreUtils.getInstance().setSearch(search);
+		CoreUtils.getInstance().setQueue(queue);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		CoreUtils.getInstance().setDao(oldDao);
+		CoreUtils.getInstance().setSearch(oldSearch);
+		CoreUtils.getInstance().setQueue(oldQueue);
+		System.clearProperty("para.river.retry_base_delay_ms");
+		System.clearProperty("para.river.retry_max_delay_sec");
+		System.clearProperty("para.river.max_indexing_retries");
+	}
+
+	@Test
+	public void testBackoffDelay() {
+		System.setProperty("para.river.retry_base_delay_ms", "100");
+		System.setProperty("para.river.retry_max_delay_sec", "1");
+		for (int i = 0; i < 20; i++) {
+			long first = RetryScheduler.getBackoffDelayMillis(0);
+			long third = RetryScheduler.getBackoffDelayMillis(2);
+			long last = RetryScheduler.getBackoffDelayMillis(100);
+			assertTrue(first >= 50 && first <= 100);
+			assertTrue(third >= 200 && third <= 400);
+			// capped at the max delay
+			assertTrue(last >= 500 && last <= 1000);
+		}
+	}
+
+	@Test
+	public void testRetryIndexing() {
+		String appid2 = "retry-test-found";
+		dao.create(appid2, new Sysprop("found1"));
+		retries.retryIndexing(appid2, List.of("found1"));
+		verify(search, timeout(5000)).indexAll(eq(appid2), anyList());
+	}
+
+	@Test
+	public void testRetryWhenTaskCannotBeSaved() {
+		String appid2 = "retry-test-unsaved";
+		dao.create(appid2, new Sysprop("found2"));
+		doThrow(new IllegalStateException("database is down")).when(dao).create(eq(appid2), any());
+		// the retry is still scheduled, it's just not saved
+		retries.retryIndexing(appid2, List.of("found2"));
+		verify(search, timeout(5000)).indexAll(eq(appid2), anyList());
+	}
+
+	@Test
+	public void testRetryIndexingMovesToDeadLetters() {
+		retries.retryIndexing(appid, List.of("missing1", "missing2"));
+		retries.retryIndexing(appid, List.of("missing2"));
+		ArgumentCaptor<ParaObject> deadLetter = ArgumentCaptor.forClass(ParaObject.class);
+		verify(dao, timeout(5000)).create(eq(appid), argThat((ParaObject o) ->
+				RetryScheduler.DEAD_LETTER_TYPE.equals(o.getType())));
+		verify(dao, timeout(5000).atLeastOnce()).create(eq(appid), deadLetter.capture());
+		Sysprop letter = (Sysprop) deadLetter.getAllValues().stream().
+				filter(o -> RetryScheduler.DEAD_LETTER_TYPE.equals(o.getType())).findFirst().orElseThrow();
+		assertEquals(2, letter.getProperty("attempts"));
+		assertTrue(retries.getPendingIds(appid).isEmpty());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testReplayDeadLetter() throws Exception {
+		Sysprop letter = new Sysprop("letter1");
+		letter.setType(RetryScheduler.DEAD_LETTER_TYPE);
+		letter.setAppid(appid);
+		letter.addProperty("kind", "index");
+		letter.addProperty("ids", List.of("a", "b", "a"));
+		dao.create(appid, letter);
+
+		// dead letters can only be replayed in their own app
+		assertFalse(retries.replay("other-app", "letter1"));
+		assertFalse(retries.replay(appid, "missing"));
+		assertTrue(retries.replay(appid, "letter1"));
+		assertNull(dao.read(appid, "letter1"));
+		assertFalse(retries.replay(appid, "letter1"));
+
+		Map<String, Object> message = ParaObjectUtils.getJsonReader(Map.class).readValue(queue.pull());
+		assertEquals("index_all_op", message.get("id"));
+		assertEquals(appid, message.get("appid"));
+		assertEquals(List.of("a", "b"), message.get("payload"));
+		assertEquals("", queue.pull());
+
+		// webhook messages are rebuilt from a webhook in the same app, never replayed as stored
+		Sysprop webhookLetter = new Sysprop("letter2");
+		webhookLetter.setType(RetryScheduler.DEAD_LETTER_TYPE);
+		webhookLetter.setAppid(appid);
+		webhookLetter.addProperty("kind", "webhook");
+		webhookLetter.addProperty("message", Map.of("type", "webhookpayload", "id", "no-such-webhook",
+				"payload", "{\"event\": \"create\", \"items\": []}", "targetUrl", "http://localhost"));
+		dao.create(appid, webhookLetter);
+		assertFalse(retries.replay(appid, "letter2"));
+		assertNotNull(dao.read(appid, "letter2"));
+		assertEquals("", queue.pull());
+
+		// other queue messages are sent back to the app they were stored in
+		retries.deadLetter(appid, "{\"type\": \"sysprop\", \"appid\": \"other-app\", \"id\": \"s1\"}", "error");
+		ArgumentCaptor<ParaObject> messageLetter = ArgumentCaptor.forClass(ParaObject.class);
+		verify(dao, timeout(5000).atLeastOnce()).create(eq(appid), messageLetter.capture());
+		String messageLetterId = messageLetter.getAllValues().stream().filter(o -> RetryScheduler.DEAD_LETTER_TYPE.
+				equals(o.getType()) && "message".equals(((Sysprop) o).getProperty("kind"))).findFirst().orElseThrow().getId();
+		assertTrue(retries.replay(appid, messageLetterId));
+		message = ParaObjectUtils.getJsonReader(Map.class).readValue(queue.pull());
+		assertEquals(appid, message.get("appid"));
+		assertEquals("s1", message.get("id"));
+
+		// pending retry tasks are not dead letters
+		Sysprop task = new Sysprop("task1");
+		task.setType(RetryScheduler.RETRY_TYPE);
+		task.setAppid(appid);
+		dao.create(appid, task);
+		assertFalse(retries.replay(appid, "task1"));
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.rest;
+
+import com.erudika.para.core.App;
+import com.erudika.para.core.Linker;
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.Sysprop;
+import com.erudika.para.core.Tag;
+import com.erudika.para.core.User;
+import com.erudika.para.core.persistence.DAO;
+import com.erudika.para.core.persistence.MockDAO;
+import com.erudika.para.core.search.Search;
+import com.erudika.para.core.utils.CoreUtils;
+import com.erudika.para.core.utils.Utils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ *
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class LinkExpanderTest {
+
+	private final App app = new App("expand-test");
+	private DAO oldDao;
+	private Search oldSearch;
+	private DAO dao;
+	private Search search;
+	private List<ParaObject> items;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		oldDao = CoreUtils.getInstance().getDao();
+		oldSearch = CoreUtils.getInstance().getSearch();
+		dao = spy(new MockDAO());
+		search = mock(Search.class);
+		CoreUtils.getInstance().setDao(dao);
+		CoreUtils.getInstance().setSearch(search);
+
+		String appid = app.getAppIdentifier();
+		Sysprop parent = new Sysprop("parent1");
+		User creator = new User("creator1");
+		dao.createAll(appid, List.of(parent, creator, new User("u1"), new User("u2"), new User("u3")));
+		items = new ArrayList<>();
+		for (String id : List.of("t1", "t2")) {
+			Tag tag = new Tag(id);
+			tag.setParentid(parent.getId());
+			tag.setCreatorid(creator.getId());
+			items.add(tag);
+		}
+		List<ParaObject> links = new ArrayList<>();
+		links.add(new Linker(Utils.type(Tag.class), Utils.type(User.class), "tag:t1", "u1"));
+		links.add(new Linker(Utils.type(Tag.class), Utils.type(User.class), "tag:t1", "u2"));
+		links.add(new Linker(Utils.type(Tag.class), Utils.type(User.class), "tag:t2", "u1"));
+		when(search.findTermInList(eq(appid), eq(Utils.type(Linker.class)), anyString(), anyList(), any())).
+				thenReturn(links);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		CoreUtils.getInstance().setDao(oldDao);
+		CoreUtils.getInstance().setSearch(oldSearch);
+		System.clearProperty("para.expand_max_links");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testExpandReadsEachObjectOnce() {
+		LinkExpander expander = new LinkExpander(app, "parent, creator,parent,links:user,foo,links:");
+		assertFalse(expander.isEmpty());
+		assertTrue(new LinkExpander(null, "parent").isEmpty());
+		assertTrue(new LinkExpander(app, "links:,foo").isEmpty());
+
+		Map<String, Map<String, Object>> expanded = expander.expand(items);
+		assertEquals(2, expanded.size());
+		assertEquals(List.of("parent", "creator", "links:user"), new ArrayList<>(expanded.get("tag:t1").keySet()));
+		assertSame(expanded.get("tag:t1").get("parent"), expanded.get("tag:t2").get("parent"));
+		assertSame(expanded.get("tag:t1").get("creator"), expanded.get("tag:t2").get("creator"));
+		assertEquals(2, ((List<ParaObject>) expanded.get("tag:t1").get("links:user")).size());
+		assertEquals(1, ((List<ParaObject>) expanded.get("tag:t2").get("links:user")).size());
+		assertTrue(expander.getTruncated().isEmpty());
+
+		// the parent, the creator and the users linked to both tags are read only once, with a single call
+		ArgumentCaptor<List<String>> ids = ArgumentCaptor.forClass(List.class);
+		verify(dao, times(1)).readAll(eq(app.getAppIdentifier()), ids.capture(), anyBoolean());
+		assertEquals(List.of("parent1", "creator1", "u1", "u2"), ids.getValue());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testExpandMarksTruncatedLinks() {
+		System.setProperty("para.expand_max_links", "2");
+		LinkExpander expander = new LinkExpander(app, "links:user");
+		Map<String, Map<String, Object>> expanded = expander.expand(items);
+		assertEquals(2, ((List<ParaObject>) expanded.get("tag:t1").get("links:user")).size());
+		assertTrue(((List<ParaObject>) expanded.get("tag:t2").get("links:user")).isEmpty());
+		assertEquals(List.of("links:user"), new ArrayList<>(expander.getTruncated()));
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.search;
+
+import static com.erudika.para.server.search.SlowQueryListener.normalizeQueryString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class SlowQueryListenerTest {
+
+	@Test
+	public void testNormalizeQueryString() {
+		assertEquals("", normalizeQueryString(null));
+		assertEquals("*", normalizeQueryString("*"));
+		assertEquals("?", normalizeQueryString("hello world"));
+		assertEquals("name:? AND age:?", normalizeQueryString("name:John AND age:[1 TO 30]"));
+		assertEquals("(name:? OR title:?) AND ?", normalizeQueryString("(name:\"John Doe\" OR title:test*) AND foo"));
+		assertEquals(normalizeQueryString("properties.tag:a AND x"), normalizeQueryString("properties.tag:b AND y"));
+	}
+}
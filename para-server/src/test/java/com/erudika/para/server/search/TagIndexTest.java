@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.search;
+
+import com.erudika.para.core.ParaObject;
+import com.erudika.para.core.Tag;
+import com.erudika.para.core.persistence.DAO;
+import com.erudika.para.core.search.Search;
+import com.erudika.para.core.utils.Pager;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ *
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class TagIndexTest {
+
+	private final TagIndex index = TagIndex.getInstance();
+
+	@Test
+	public void testWritesDuringLoadAreKept() throws Exception {
+		String appid = "tag-index-load";
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Search search = mock(Search.class);
+		when(search.<Tag>findQuery(eq(appid), anyString(), anyString(), any(Pager.class))).thenAnswer(i -> {
+			started.countDown();
+			assertTrue(release.await(5, TimeUnit.SECONDS));
+			return List.of(new Tag("java"));
+		});
+		index.clear(appid);
+		try {
+			CompletableFuture<List<Tag>> first = CompletableFuture.supplyAsync(() -> index.findTags(search, appid, "j"));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			// readers wait for the trie which is being loaded, instead of loading it again
+			CompletableFuture<List<Tag>> second = CompletableFuture.supplyAsync(() -> index.findTags(search, appid, "j"));
+			// tags written while loading are applied once the trie is loaded
+			index.onPostInvoke(DAO.class.getMethod("create", String.class, ParaObject.class),
+					new Object[] {appid, new Tag("jakarta")}, null);
+			release.countDown();
+			assertEquals(List.of("jakarta", "java"), first.get(5, TimeUnit.SECONDS).stream().map(Tag::getTag).sorted().toList());
+			assertEquals(2, second.get(5, TimeUnit.SECONDS).size());
+			verify(search, times(1)).findQuery(eq(appid), anyString(), anyString(), any(Pager.class));
+		} finally {
+			index.clear(appid);
+		}
+	}
+}
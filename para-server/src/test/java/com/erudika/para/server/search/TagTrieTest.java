@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.search;
+
+import com.erudika.para.core.Tag;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class TagTrieTest {
+
+	private Tag tag(String name, int count) {
+		Tag t = new Tag(name);
+		t.setCount(count);
+		return t;
+	}
+
+	@Test
+	public void testTopCompletions() {
+		TagTrie trie = new TagTrie();
+		trie.put(tag("java", 10));
+		trie.put(tag("javascript", 50));
+		trie.put(tag("jar", 5));
+		trie.put(tag("python", 30));
+		trie.put(tag("ja", 1));
+
+		assertEquals(5, trie.size());
+		assertEquals(4, trie.count("ja"));
+		assertEquals(List.of("javascript", "java"), trie.top("jav", 2).stream().map(Tag::getTag).toList());
+		assertEquals(List.of("javascript", "python", "java", "jar", "ja"),
+				trie.top("", 10).stream().map(Tag::getTag).toList());
+		assertTrue(trie.top("rust", 5).isEmpty());
+
+		trie.put(tag("java", 100));
+		assertEquals("java", trie.top("j", 1).get(0).getTag());
+		assertEquals(5, trie.size());
+
+		trie.remove("java");
+		trie.remove("ja");
+		assertEquals(3, trie.size());
+		assertEquals(List.of("javascript", "jar"), trie.top("ja", 5).stream().map(Tag::getTag).toList());
+		assertEquals(0, trie.count("java "));
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013-2026 Erudika. https://erudika.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For issues and patches go to: https://github.com/erudika
+ */
+package com.erudika.para.server.utils.filters;
+
+import com.erudika.para.core.Tag;
+import com.erudika.para.core.User;
+import com.erudika.para.core.utils.ParaObjectUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpRequest;
+
+/**
+ *
+ * @author Alex Bogdanovski [alex@erudika.com]
+ */
+public class FieldFilterTest {
+
+	private final FieldFilter filter = new FieldFilter();
+
+	private Object filter(Object body, String select) {
+		HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+		Mockito.when(req.getParameter("select")).thenReturn(select);
+		return filter.beforeBodyWrite(body, null, MediaType.APPLICATION_JSON, null,
+				new ServletServerHttpRequest(req), null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> toMap(Object projected) throws Exception {
+		String json = ParaObjectUtils.getJsonWriter().writeValueAsString(projected);
+		return ParaObjectUtils.getJsonReader(Map.class).readValue(json);
+	}
+
+	@Test
+	public void testGetSelectedFields() {
+		assertTrue(FieldFilter.getSelectedFields(null).isEmpty());
+		assertTrue(FieldFilter.getSelectedFields(" , ").isEmpty());
+		assertEquals(List.of("id", "tag", "count"), FieldFilter.getSelectedFields(" id,tag,, count ,id"));
+	}
+
+	@Test
+	public void testProjectObject() throws Exception {
+		Tag tag = new Tag("test");
+		tag.setCount(3);
+		assertSame(tag, filter(tag, null));
+		assertSame(tag, filter(tag, " "));
+
+		Map<String, Object> projected = toMap(filter(tag, "count,id,foo"));
+		// only the selected fields, in the order they were selected, and null for unknown fields
+		assertEquals(List.of("count", "id", "foo"), new ArrayList<>(projected.keySet()));
+		assertEquals(3, projected.get("count"));
+		assertEquals("tag:test", projected.get("id"));
+		assertNull(projected.get("foo"));
+
+		User user = new User("u1");
+		user.setEmail("u1@example.com");
+		user.setTokenSecret("secret");
+		projected = toMap(filter(user, "email,tokenSecret"));
+		assertEquals("u1@example.com", projected.get("email"));
+		// properties ignored by Jackson are never exposed
+		assertTrue(projected.containsKey("tokenSecret"));
+		assertNull(projected.get("tokenSecret"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testProjectItems() throws Exception {
+		Tag tag = new Tag("test");
+		User user = new User("u1");
+		user.setEmail("u1@example.com");
+
+		Map<String, Object> page = new HashMap<>();
+		page.put("items", List.of(tag, user, "other"));
+		page.put("totalHits", 3);
+		Map<String, Object> projected = toMap(filter(page, "id,email"));
+		assertEquals(3, projected.get("totalHits"));
+		List<Object> items = (List<Object>) projected.get("items");
+		assertEquals(3, items.size());
+		assertEquals("tag:test", ((Map<String, Object>) items.get(0)).get("id"));
+		assertNull(((Map<String, Object>) items.get(0)).get("email"));
+		assertEquals("u1@example.com", ((Map<String, Object>) items.get(1)).get("email"));
+		assertEquals("other", items.get(2));
+
+		List<Object> list = (List<Object>) toMap(Map.of("list", filter(List.of(user, user), "id"))).get("list");
+		assertEquals(2, list.size());
+		assertEquals(Map.of("id", "u1"), list.get(1));
+		assertFalse(((Map<String, Object>) list.get(0)).containsKey("email"));
+
+		Map<String, Object> other = Map.of("x", 1);
+		assertSame(other, filter(other, "id"));
+	}
+}